@@ -0,0 +1,98 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import kemp.roel.guitaristgear.GuitaristGearApplication;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearColumnStore;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Start de applicatie zonder webserver tegen een H2 database in het geheugen en vult die met "gearCount" Gear
+ * objecten, 20 merken en een gitarist per 10 Gear objecten, die ieder 10 Gear objecten in hun "gear list" hebben.
+ * Gedeeld door alle benchmarks van één parameterwaarde.
+ */
+
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+    static final String[] TYPES = {"Electric guitar", "Acoustic guitar", "Bass guitar", "Amplifier",
+            "Overdrive pedal", "Delay pedal", "Fuzz pedal", "Cabinet"};
+    static final String[] GENRES = {"Rock", "Blues", "Jazz", "Metal", "Funk"};
+    static final int BRAND_COUNT = 20;
+    private static final int GEAR_PER_GUITARIST = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int gearCount;
+
+    ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(GuitaristGearApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "gg.columnar.enabled=true",
+                        "gg.reactive.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        seed();
+        context.getBean(GearColumnStore.class).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Vult de database via de repositories, zonder de events van de services. De "gear lists" worden met
+     * JDBC gevuld, omdat een nieuw Guitarist object nog geen lijst heeft.
+     */
+    private void seed() {
+        List<Manufacturer> brands = new ArrayList<>();
+        for (int i = 0; i < BRAND_COUNT; i++) {
+            brands.add(new Manufacturer(null, "Brand " + i, TYPES[i % TYPES.length], "City " + i, 1900 + i));
+        }
+        brands = bean(ManufacturerRepository.class).saveAll(brands);
+
+        List<Gear> gear = new ArrayList<>();
+        for (int i = 0; i < gearCount; i++) {
+            Gear g = new Gear(null, "Model " + i, TYPES[i % TYPES.length], 500 + (i * 37) % 4000);
+            g.setBrand(brands.get(i % BRAND_COUNT));
+            gear.add(g);
+        }
+        gear = bean(GearRepository.class).saveAll(gear);
+
+        List<Guitarist> guitarists = new ArrayList<>();
+        for (int i = 0; i < gearCount / GEAR_PER_GUITARIST; i++) {
+            guitarists.add(new Guitarist(null, "Guitarist " + i, "City " + i, 1940 + i % 60, GENRES[i % GENRES.length]));
+        }
+        guitarists = bean(GuitaristRepository.class).saveAll(guitarists);
+
+        List<Object[]> gearListRows = new ArrayList<>();
+        for (int i = 0; i < guitarists.size(); i++) {
+            for (int j = 0; j < GEAR_PER_GUITARIST; j++) {
+                gearListRows.add(new Object[]{guitarists.get(i).getId(), gear.get(i * GEAR_PER_GUITARIST + j).getId()});
+            }
+        }
+        bean(JdbcTemplate.class).batchUpdate(
+                "insert into guitarist_gear_list (guitarist_id, gear_list_id) values (?, ?)", gearListRows);
+    }
+}
@@ -0,0 +1,76 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearColumnStore;
+import kemp.roel.guitaristgear.gear.GearColumnView;
+import kemp.roel.guitaristgear.gear.GearService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Meet GearService.getAllGear via JPA naast dezelfde filters op de GearColumnStore, met en zonder het
+ * serialiseren naar JSON.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GearBenchmark {
+    private GearService gearService;
+    private GearColumnStore gearColumnStore;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        gearService = context.bean(GearService.class);
+        gearColumnStore = context.bean(GearColumnStore.class);
+        objectMapper = context.bean(ObjectMapper.class);
+    }
+
+    @Benchmark
+    public List<Gear> getAllGearJpa() {
+        return gearService.getAllGear(null, null);
+    }
+
+    @Benchmark
+    public List<Gear> getAllGearByBrandAndTypeJpa() {
+        return gearService.getAllGear("brand-4", "overdrive-pedal");
+    }
+
+    @Benchmark
+    public List<Gear> getAllGearByTypeJpa() {
+        return gearService.getAllGear(null, "amplifier");
+    }
+
+    @Benchmark
+    public GearColumnView getAllGearColumnar() {
+        return gearColumnStore.select(null, null);
+    }
+
+    @Benchmark
+    public GearColumnView getAllGearByBrandAndTypeColumnar() {
+        return gearColumnStore.select("brand-4", "overdrive-pedal");
+    }
+
+    @Benchmark
+    public GearColumnView getAllGearByTypeColumnar() {
+        return gearColumnStore.select(null, "amplifier");
+    }
+
+    @Benchmark
+    public byte[] serializeAllGearJpa() throws Exception {
+        return objectMapper.writeValueAsBytes(gearService.getAllGear(null, null));
+    }
+
+    @Benchmark
+    public byte[] serializeAllGearColumnar() throws Exception {
+        return objectMapper.writeValueAsBytes(gearColumnStore.select(null, null));
+    }
+}
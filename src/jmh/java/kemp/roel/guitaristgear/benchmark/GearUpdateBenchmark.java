@@ -0,0 +1,86 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Vergelijkt het wijzigen van alleen het gewicht van een Gear object via updateGear (PUT, het hele object) en via
+ * patchGear (PATCH, alleen het gewicht). Na afloop wordt per variant het gemiddelde aantal JDBC statements per
+ * aanroep geprint, uit de Hibernate statistieken.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GearUpdateBenchmark {
+    private GearService gearService;
+    private ObjectMapper objectMapper;
+    private Statistics statistics;
+    private List<Gear> gear;
+    private int next;
+
+    private long putCalls;
+    private long putStatements;
+    private long patchCalls;
+    private long patchStatements;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        gearService = context.bean(GearService.class);
+        objectMapper = context.bean(ObjectMapper.class);
+        statistics = context.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        gear = gearService.getAllGear(null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void printStatements() {
+        System.out.printf(Locale.ROOT, "%nJDBC statements per call: PUT %.2f, PATCH %.2f%n",
+                (double) putStatements / Math.max(putCalls, 1), (double) patchStatements / Math.max(patchCalls, 1));
+    }
+
+    @Benchmark
+    public void updateWeightWithPut() {
+        Gear current = nextGear();
+        Gear replacement = new Gear(null, current.getName(), current.getType(), nextWeight());
+        replacement.setBrand(current.getBrand());
+        long before = statistics.getPrepareStatementCount();
+        gearService.updateGear(current.getId(), replacement, null);
+        putStatements += statistics.getPrepareStatementCount() - before;
+        putCalls++;
+    }
+
+    @Benchmark
+    public void updateWeightWithPatch() {
+        Gear current = nextGear();
+        long before = statistics.getPrepareStatementCount();
+        gearService.patchGear(current.getId(), objectMapper.createObjectNode().put("weightInGrams", nextWeight()),
+                null);
+        patchStatements += statistics.getPrepareStatementCount() - before;
+        patchCalls++;
+    }
+
+    private Gear nextGear() {
+        return gear.get(next++ % gear.size());
+    }
+
+    /**
+     * Een ander gewicht bij iedere aanroep, zodat er altijd echt iets gewijzigd wordt.
+     */
+    private int nextWeight() {
+        return 500 + next % 4000;
+    }
+}
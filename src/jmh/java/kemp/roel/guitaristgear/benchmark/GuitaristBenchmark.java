@@ -0,0 +1,54 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.guitarist.GuitaristService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Meet GuitaristService.getAllGuitarists met en zonder filters, en het serialiseren van gitaristen met hun
+ * "gear list" los van het ophalen.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GuitaristBenchmark {
+    private GuitaristService guitaristService;
+    private ObjectMapper objectMapper;
+    private List<Guitarist> loadedGuitarists;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        guitaristService = context.bean(GuitaristService.class);
+        objectMapper = context.bean(ObjectMapper.class);
+        loadedGuitarists = guitaristService.getAllGuitarists(null, null);
+    }
+
+    @Benchmark
+    public List<Guitarist> getAllGuitarists() {
+        return guitaristService.getAllGuitarists(null, null);
+    }
+
+    @Benchmark
+    public List<Guitarist> getAllGuitaristsByGenre() {
+        return guitaristService.getAllGuitarists("rock", null);
+    }
+
+    @Benchmark
+    public List<Guitarist> getAllGuitaristsByBirthYear() {
+        return guitaristService.getAllGuitarists(null, "1970");
+    }
+
+    @Benchmark
+    public byte[] serializeGuitaristsWithGearList() throws Exception {
+        return objectMapper.writeValueAsBytes(loadedGuitarists);
+    }
+}
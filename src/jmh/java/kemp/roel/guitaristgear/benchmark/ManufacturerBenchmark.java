@@ -0,0 +1,38 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Meet ManufacturerService.getAllManufacturers met en zonder filter op mainProductType.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManufacturerBenchmark {
+    private ManufacturerService manufacturerService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        manufacturerService = context.bean(ManufacturerService.class);
+    }
+
+    @Benchmark
+    public List<Manufacturer> getAllManufacturers() {
+        return manufacturerService.getAllManufacturers(null);
+    }
+
+    @Benchmark
+    public List<Manufacturer> getAllManufacturersByMainProductType() {
+        return manufacturerService.getAllManufacturers("electric-guitar");
+    }
+}
@@ -0,0 +1,152 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import kemp.roel.guitaristgear.cache.SecondLevelCacheRegions;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearService;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.guitarist.GuitaristService;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Vergelijkt de leesroutes die de second-level cache gebruiken met een warme cache (hit) en met een cache die voor
+ * iedere aanroep geleegd is (miss, alles uit de database). Het legen gebeurt in een setup per aanroep en telt dus
+ * niet mee in de gemeten tijd. De hit ratio per regio staat via RegionHitRatios als secundaire metric in
+ * build/reports/jmh/results.json.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecondLevelCacheBenchmark {
+    private GearService gearService;
+    private GuitaristService guitaristService;
+    private List<Gear> gear;
+    private List<Guitarist> guitarists;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        gearService = context.bean(GearService.class);
+        guitaristService = context.bean(GuitaristService.class);
+        gear = gearService.getAllGear(null, null);
+        guitarists = guitaristService.getAllGuitarists(null, null);
+    }
+
+    /**
+     * De hit ratio per regio over één iteratie. De Hibernate tellers lopen de hele fork door (ook tijdens de
+     * warmup), dus aan het begin van iedere iteratie worden ze vastgelegd en telt alleen wat er daarna bijkomt.
+     * JMH leest de methodes aan het einde van de iteratie; een regio zonder hits en misses geeft 0.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RegionHitRatios {
+        private SecondLevelCacheRegions regions;
+        private Map<String, Map<String, Object>> atStart;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext context) {
+            regions = context.bean(SecondLevelCacheRegions.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void markStart() {
+            atStart = regions.getStats();
+        }
+
+        public double gearHitRatio() {
+            return hitRatio(Gear.class.getName());
+        }
+
+        public double guitaristHitRatio() {
+            return hitRatio(Guitarist.class.getName());
+        }
+
+        public double gearListHitRatio() {
+            return hitRatio(Guitarist.class.getName() + ".gearList");
+        }
+
+        public double queryHitRatio() {
+            return hitRatio(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        }
+
+        private double hitRatio(String region) {
+            Map<String, Object> now = regions.getStats().getOrDefault(region, Map.of());
+            Map<String, Object> before = atStart.getOrDefault(region, Map.of());
+            long hits = count(now, "hits") - count(before, "hits");
+            long misses = count(now, "misses") - count(before, "misses");
+            return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+        }
+
+        private static long count(Map<String, Object> stats, String name) {
+            return ((Number) stats.getOrDefault(name, 0L)).longValue();
+        }
+    }
+
+    /**
+     * Leegt de hele second-level cache voor iedere aanroep van een "miss" benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class EmptyCache {
+        private Cache cache;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext context) {
+            cache = context.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache();
+        }
+
+        @Setup(Level.Invocation)
+        public void evict() {
+            cache.evictAllRegions();
+        }
+    }
+
+    @Benchmark
+    public Gear gearByIdHit(RegionHitRatios hitRatios) {
+        return gearService.getGearById(nextGear().getId());
+    }
+
+    @Benchmark
+    public Gear gearByIdMiss(EmptyCache emptyCache, RegionHitRatios hitRatios) {
+        return gearService.getGearById(nextGear().getId());
+    }
+
+    @Benchmark
+    public List<Gear> gearListOfGuitaristHit(RegionHitRatios hitRatios) {
+        return gearService.getAllGearFromGuitarist(nextGuitarist().getId());
+    }
+
+    @Benchmark
+    public List<Gear> gearListOfGuitaristMiss(EmptyCache emptyCache, RegionHitRatios hitRatios) {
+        return gearService.getAllGearFromGuitarist(nextGuitarist().getId());
+    }
+
+    @Benchmark
+    public List<Guitarist> guitaristsByBirthYearHit(RegionHitRatios hitRatios) {
+        return guitaristService.getAllGuitarists(null, "1970");
+    }
+
+    @Benchmark
+    public List<Guitarist> guitaristsByBirthYearMiss(EmptyCache emptyCache, RegionHitRatios hitRatios) {
+        return guitaristService.getAllGuitarists(null, "1970");
+    }
+
+    private Gear nextGear() {
+        return gear.get(next++ % gear.size());
+    }
+
+    private Guitarist nextGuitarist() {
+        return guitarists.get(next++ % guitarists.size());
+    }
+}
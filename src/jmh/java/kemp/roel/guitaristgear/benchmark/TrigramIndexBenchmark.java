@@ -0,0 +1,61 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import kemp.roel.guitaristgear.search.SearchHit;
+import kemp.roel.guitaristgear.search.TrigramIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Zoekt in een TrigramIndex met een miljoen verzonnen namen, zonder Spring context en zonder database.
+ * De namen bestaan uit drie woorden uit een kleine woordenlijst, zodat de posting lists van veelvoorkomende
+ * trigrammen honderdduizenden documenten lang worden; daar zit het werk van het samenvoegen van de lijsten.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TrigramIndexBenchmark {
+    private static final String[] WORDS = {
+            "fender", "gibson", "ibanez", "gretsch", "rickenbacker", "marshall", "vox", "orange", "mesa", "boogie",
+            "stratocaster", "telecaster", "jazzmaster", "les", "paul", "standard", "custom", "junior", "special",
+            "flying", "explorer", "firebird", "hollowbody", "semi", "acoustic", "bass", "precision", "jazz",
+            "overdrive", "distortion", "fuzz", "delay", "reverb", "chorus", "wah", "tremolo", "combo", "head",
+            "cabinet", "vintage"
+    };
+
+    @Param({"1000000"})
+    public int documents;
+
+    @Param({"stratocaster", "les paul standard", "telecastr"})
+    public String query;
+
+    private TrigramIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new TrigramIndex();
+        Random random = new Random(42);
+        for (long id = 0; id < documents; id++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)];
+            index.put(id % 2 == 0 ? "gear" : "guitarist", id, name, name);
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> search() {
+        return index.search(query, null, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> searchGear() {
+        return index.search(query, "gear", 10);
+    }
+}
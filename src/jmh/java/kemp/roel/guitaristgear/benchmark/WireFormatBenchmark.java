@@ -0,0 +1,88 @@
+package kemp.roel.guitaristgear.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearService;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.guitarist.GuitaristService;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
+import kemp.roel.guitaristgear.wireformat.WireFormats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Vergelijkt JSON, CBOR en Smile bij het schrijven en lezen van de volledige lijsten met gear en gitaristen, met
+ * dezelfde ObjectMappers als de REST endpoints. De grootte van beide lijsten per formaat komt via ByteSizes als
+ * secundaire metric ("gearBytes", "guitaristBytes") in build/reports/jmh/results.json, naast de tijd.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private JavaType gearListType;
+    private JavaType guitaristListType;
+    private List<Gear> gear;
+    private List<Guitarist> guitarists;
+    private byte[] gearBytes;
+    private byte[] guitaristBytes;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) throws Exception {
+        mapper = context.bean(WireFormats.class).mapper(WireFormat.forName(format));
+        gearListType = mapper.getTypeFactory().constructCollectionType(List.class, Gear.class);
+        guitaristListType = mapper.getTypeFactory().constructCollectionType(List.class, Guitarist.class);
+        gear = context.bean(GearService.class).getAllGear(null, null);
+        guitarists = context.bean(GuitaristService.class).getAllGuitarists(null, null);
+        gearBytes = mapper.writeValueAsBytes(gear);
+        guitaristBytes = mapper.writeValueAsBytes(guitarists);
+    }
+
+    /**
+     * De grootte van de geserialiseerde lijsten in het formaat van deze run. JMH leest de velden aan het einde van
+     * iedere iteratie; ze veranderen niet, dus het gemiddelde over de iteraties is de grootte zelf.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ByteSizes {
+        public long gearBytes;
+        public long guitaristBytes;
+
+        @Setup(Level.Trial)
+        public void setUp(WireFormatBenchmark benchmark) {
+            gearBytes = benchmark.gearBytes.length;
+            guitaristBytes = benchmark.guitaristBytes.length;
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeGear(ByteSizes sizes) throws Exception {
+        return mapper.writeValueAsBytes(gear);
+    }
+
+    @Benchmark
+    public List<Gear> deserializeGear(ByteSizes sizes) throws Exception {
+        return mapper.readValue(gearBytes, gearListType);
+    }
+
+    @Benchmark
+    public byte[] serializeGuitarists(ByteSizes sizes) throws Exception {
+        return mapper.writeValueAsBytes(guitarists);
+    }
+
+    @Benchmark
+    public List<Guitarist> deserializeGuitarists(ByteSizes sizes) throws Exception {
+        return mapper.readValue(guitaristBytes, guitaristListType);
+    }
+}
@@ -0,0 +1,369 @@
+package kemp.roel.guitaristgear.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kemp.roel.guitaristgear.GuitaristGearApplication;
+import kemp.roel.guitaristgear.reactive.ReactiveServer;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een open-loop load test over HTTP. Start de applicatie op een H2 database in het geheugen (of gebruikt een
+ * draaiende server via "loadtest.url"), vult de database en verstuurt requests volgens een vast schema van
+ * "loadtest.rate" requests per seconde, ongeacht hoe snel de server antwoordt. Latencies worden vanaf het geplande
+ * verstuurmoment gemeten en per endpoint in een HdrHistogram bijgehouden. De "reactive-*" operaties gaan naar de
+ * reactieve lees API, zodat bijvoorbeeld "gear-list" en "reactive-gear-list" bij dezelfde rate te vergelijken zijn.
+ * Te starten met "./gradlew loadTest -Dloadtest.rate=500 -Dloadtest.duration=60".
+ */
+
+public class LoadTest {
+    // gear-page, gear-histogram, search en guitarist-rig komen niet uit de response cache of de second-level cache,
+    // zodat de mix ook de queries meet die bij iedere aanroep de database (of de zoekindex) raken
+    private static final String DEFAULT_MIX = "gear-filter:25,gear-get:15,gear-list:5,guitarist-list:10,"
+            + "guitarist-get:10,manufacturer-list:5,manufacturer-get:5,gear-page:5,gear-histogram:4,search:4,"
+            + "guitarist-rig:2,gear-create:4,gear-update:4,guitarist-create:2";
+    private static final int BRAND_COUNT = 20;
+    private static final int GEAR_PER_GUITARIST = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+        int seedGear = Integer.getInteger("loadtest.seed", 1000);
+        String mix = System.getProperty("loadtest.mix", DEFAULT_MIX);
+        String url = System.getProperty("loadtest.url");
+        String reactiveUrl = System.getProperty("loadtest.reactive-url");
+        Path output = Paths.get(System.getProperty("loadtest.output", "build/reports/loadtest/summary.csv"));
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            context = new SpringApplicationBuilder(GuitaristGearApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "gg.reactive.enabled=true",
+                            "gg.reactive.port=0",
+                            "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.show-sql=false",
+                            "logging.level.root=WARN")
+                    .run();
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            reactiveUrl = "http://localhost:" + context.getBean(ReactiveServer.class).getPort();
+        }
+        try {
+            LoadTest loadTest = new LoadTest();
+            LoadTestData data = loadTest.seed(url, reactiveUrl, seedGear);
+            List<Operation> operations = loadTest.parseMix(mix);
+            System.out.printf(Locale.ROOT, "Load test against %s: %d req/s, %d s warmup, %d s measured%n",
+                    url, rate, warmupSeconds, durationSeconds);
+            loadTest.run(data, operations, rate, warmupSeconds, durationSeconds);
+            loadTest.report(operations, durationSeconds, output);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Verstuurt de requests volgens het schema. De verzendende thread wacht nooit op antwoorden, zodat een trage
+     * server het aantal requests niet verlaagt. Requests tijdens de warmup worden niet gemeten. Gemeten requests
+     * die na het versturen van het laatste request nog 60 seconden geen antwoord hebben, tellen als "unfinished":
+     * een fout met de maximale latency, zodat een vastgelopen server niet als een snelle server in het rapport staat.
+     */
+    private void run(LoadTestData data, List<Operation> operations, int rate, int warmupSeconds, int durationSeconds)
+            throws InterruptedException {
+        int totalWeight = operations.stream().mapToInt(Operation::getWeight).sum();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong inFlight = new AtomicLong();
+        // gemeten requests zonder antwoord, op gepland verstuurmoment; wie de sleutel verwijdert, legt hem vast
+        Map<Long, Operation> pending = new ConcurrentHashMap<>();
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + i * intervalNanos;
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick(operations, totalWeight);
+            boolean measured = intendedStart >= measureFrom;
+            inFlight.incrementAndGet();
+            if (measured) {
+                pending.put(intendedStart, operation);
+            }
+            client.sendAsync(operation.newRequest(data), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (pending.remove(intendedStart) != null) {
+                            operation.record(intendedStart, error == null && response.statusCode() / 100 == 2);
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        for (Long intendedStart : pending.keySet()) {
+            Operation operation = pending.remove(intendedStart);
+            if (operation != null) {
+                operation.recordUnfinished();
+            }
+        }
+    }
+
+    /**
+     * Print per endpoint het aantal requests, de doorvoer, het aantal fouten (waarvan "unfinished" zonder antwoord)
+     * en de p50/p99/p99.9/max latency, en schrijft dezelfde tabel als CSV.
+     */
+    private void report(List<Operation> operations, int durationSeconds, Path output) throws IOException {
+        Histogram all = new Histogram(operations.get(0).getLatencies().getHighestTrackableValue(), 3);
+        long allErrors = 0;
+        long allUnfinished = 0;
+        List<String> rows = new ArrayList<>();
+        rows.add("endpoint,requests,throughput_per_s,errors,unfinished,p50_ms,p99_ms,p999_ms,max_ms");
+        for (Operation operation : operations) {
+            all.add(operation.getLatencies());
+            allErrors += operation.getErrors();
+            allUnfinished += operation.getUnfinished();
+            rows.add(row(operation.getName(), operation.getLatencies(), operation.getErrors(),
+                    operation.getUnfinished(), durationSeconds));
+        }
+        rows.add(row("all", all, allErrors, allUnfinished, durationSeconds));
+
+        System.out.printf(Locale.ROOT, "%-18s %9s %10s %7s %10s %9s %9s %9s %9s%n", "endpoint", "requests",
+                "req/s", "errors", "unfinished", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String row : rows.subList(1, rows.size())) {
+            String[] columns = row.split(",");
+            System.out.printf(Locale.ROOT, "%-18s %9s %10s %7s %10s %9s %9s %9s %9s%n", (Object[]) columns);
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            rows.forEach(writer::println);
+        }
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static String row(String name, Histogram latencies, long errors, long unfinished, int durationSeconds) {
+        return String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%.2f,%.2f,%.2f,%.2f", name, latencies.getTotalCount(),
+                (double) latencies.getTotalCount() / durationSeconds, errors, unfinished,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static Operation pick(List<Operation> operations, int totalWeight) {
+        int choice = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            choice -= operation.getWeight();
+            if (choice < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    /**
+     * Zet een mix als "gear-get:20,gear-create:5" om in operaties met hun gewicht.
+     */
+    private List<Operation> parseMix(String mix) {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            operations.put(parts[0].trim(), operation(parts[0].trim(), weight));
+        }
+        return new ArrayList<>(operations.values());
+    }
+
+    private Operation operation(String name, int weight) {
+        switch (name) {
+            case "gear-list":
+                return new Operation(name, weight, data -> get(data.url("/gg/gear")));
+            case "gear-filter":
+                return new Operation(name, weight, data -> get(data.url("/gg/gear?brandName="
+                        + slug(data.randomManufacturerName()) + "&type=" + slug(LoadTestData.randomType()))));
+            case "gear-get":
+                return new Operation(name, weight, data -> get(data.url("/gg/gear/" + data.randomGearId())));
+            case "reactive-gear-list":
+                return new Operation(name, weight, data -> get(data.reactiveUrl("/gg/gear")));
+            case "reactive-gear-filter":
+                return new Operation(name, weight, data -> get(data.reactiveUrl("/gg/gear?brandName="
+                        + slug(data.randomManufacturerName()) + "&type=" + slug(LoadTestData.randomType()))));
+            case "reactive-gear-get":
+                return new Operation(name, weight, data -> get(data.reactiveUrl("/gg/gear/" + data.randomGearId())));
+            case "gear-page":
+                return new Operation(name, weight, data -> get(data.url("/gg/gear/page?sort="
+                        + (ThreadLocalRandom.current().nextBoolean() ? "id" : "name") + "&pageSize=20")));
+            case "gear-histogram":
+                return new Operation(name, weight, data -> get(data.url("/gg/gear/weight-histogram?bucketSize="
+                        + (250 + 250 * ThreadLocalRandom.current().nextInt(4)))));
+            case "search":
+                return new Operation(name, weight, data -> get(data.url("/gg/search?q=model+"
+                        + ThreadLocalRandom.current().nextInt(1000))));
+            case "guitarist-rig":
+                return new Operation(name, weight, data ->
+                        get(data.url("/gg/guitarist/" + data.randomGuitaristId() + "/rig")));
+            case "guitarist-list":
+                return new Operation(name, weight, data -> get(data.url("/gg/guitarist?genre="
+                        + slug(LoadTestData.randomGenre()))));
+            case "guitarist-get":
+                return new Operation(name, weight, data -> get(data.url("/gg/guitarist/" + data.randomGuitaristId())));
+            case "manufacturer-list":
+                return new Operation(name, weight, data -> get(data.url("/gg/manufacturer")));
+            case "manufacturer-get":
+                return new Operation(name, weight, data ->
+                        get(data.url("/gg/manufacturer/" + data.randomManufacturerId())));
+            case "gear-create":
+                return new Operation(name, weight, data -> send("POST", data.url("/gg/gear"),
+                        gearJson(data.randomManufacturerId())));
+            case "gear-update":
+                return new Operation(name, weight, data -> send("PUT", data.url("/gg/gear/" + data.randomGearId()),
+                        gearJson(data.randomManufacturerId())));
+            case "gear-patch":
+                return new Operation(name, weight, data -> send("PATCH", data.url("/gg/gear/" + data.randomGearId()),
+                        "{\"weightInGrams\":" + (500 + ThreadLocalRandom.current().nextInt(4000)) + "}"));
+            case "guitarist-create":
+                return new Operation(name, weight, data -> send("POST", data.url("/gg/guitarist"), guitaristJson()));
+            default:
+                throw new IllegalArgumentException("Unknown load test operation \"" + name + "\"");
+        }
+    }
+
+    /**
+     * Vult de database via de bulk endpoints en haalt daarna de id's op die in de requests gebruikt worden.
+     */
+    private LoadTestData seed(String url, String reactiveUrl, int gearCount) throws IOException, InterruptedException {
+        ArrayNode manufacturers = objectMapper.createArrayNode();
+        for (int i = 0; i < BRAND_COUNT; i++) {
+            manufacturers.addObject().put("name", "Brand " + i).put("mainProductType", LoadTestData.TYPES[i % 8])
+                    .put("placeFounded", "City " + i).put("yearFounded", 1900 + i);
+        }
+        sendBlocking(send("POST", url + "/gg/manufacturer/bulk", manufacturers.toString()));
+        List<Long> manufacturerIds = new ArrayList<>();
+        List<String> manufacturerNames = new ArrayList<>();
+        for (JsonNode manufacturer : getJson(url + "/gg/manufacturer")) {
+            manufacturerIds.add(manufacturer.get("id").asLong());
+            manufacturerNames.add(manufacturer.get("name").asText());
+        }
+
+        ArrayNode gear = objectMapper.createArrayNode();
+        for (int i = 0; i < gearCount; i++) {
+            ObjectNode g = gear.addObject().put("name", "Model " + i).put("type", LoadTestData.TYPES[i % 8])
+                    .put("weightInGrams", 500 + (i * 37) % 4000);
+            g.putObject("brand").put("id", manufacturerIds.get(i % manufacturerIds.size()));
+        }
+        sendBlocking(send("POST", url + "/gg/gear/bulk", gear.toString()));
+        List<Long> gearIds = ids(getJson(url + "/gg/gear"));
+
+        for (int i = 0; i < gearCount / GEAR_PER_GUITARIST; i++) {
+            sendBlocking(send("POST", url + "/gg/guitarist", guitaristJson()));
+        }
+        List<Long> guitaristIds = ids(getJson(url + "/gg/guitarist"));
+        for (int i = 0; i < guitaristIds.size(); i++) {
+            for (int j = 0; j < GEAR_PER_GUITARIST; j++) {
+                Long gearId = gearIds.get((i * GEAR_PER_GUITARIST + j) % gearIds.size());
+                sendBlocking(send("PUT", url + "/gg/gear/guitarist/" + guitaristIds.get(i), "{\"id\":" + gearId + "}"));
+            }
+        }
+        System.out.printf(Locale.ROOT, "Seeded %d manufacturers, %d gear, %d guitarists%n",
+                manufacturerIds.size(), gearIds.size(), guitaristIds.size());
+        return new LoadTestData(url, reactiveUrl, gearIds, guitaristIds, manufacturerIds, manufacturerNames);
+    }
+
+    private String gearJson(Long brandId) {
+        ObjectNode gear = objectMapper.createObjectNode()
+                .put("name", "Load test model " + ThreadLocalRandom.current().nextInt(1_000_000))
+                .put("type", LoadTestData.randomType())
+                .put("weightInGrams", 500 + ThreadLocalRandom.current().nextInt(4000));
+        gear.putObject("brand").put("id", brandId);
+        return gear.toString();
+    }
+
+    private String guitaristJson() {
+        int n = ThreadLocalRandom.current().nextInt(1_000_000);
+        return objectMapper.createObjectNode()
+                .put("name", "Guitarist " + n)
+                .put("birthPlace", "City " + n % 100)
+                .put("birthYear", 1940 + n % 60)
+                .put("genre", LoadTestData.randomGenre())
+                .toString();
+    }
+
+    private JsonNode getJson(String url) throws IOException, InterruptedException {
+        return objectMapper.readTree(sendBlocking(get(url)));
+    }
+
+    private String sendBlocking(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        array.forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private static HttpRequest send(String method, String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String slug(String value) {
+        return value.replace(' ', '-');
+    }
+}
@@ -0,0 +1,71 @@
+package kemp.roel.guitaristgear.loadtest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * De id's en namen die na het vullen van de database in de requests gebruikt worden.
+ */
+
+class LoadTestData {
+    static final String[] TYPES = {"Electric guitar", "Acoustic guitar", "Bass guitar", "Amplifier",
+            "Overdrive pedal", "Delay pedal", "Fuzz pedal", "Cabinet"};
+    static final String[] GENRES = {"Rock", "Blues", "Jazz", "Metal", "Funk"};
+
+    private final String baseUrl;
+    private final String reactiveBaseUrl;
+    private final List<Long> gearIds;
+    private final List<Long> guitaristIds;
+    private final List<Long> manufacturerIds;
+    private final List<String> manufacturerNames;
+
+    LoadTestData(String baseUrl, String reactiveBaseUrl, List<Long> gearIds, List<Long> guitaristIds,
+                 List<Long> manufacturerIds, List<String> manufacturerNames) {
+        this.baseUrl = baseUrl;
+        this.reactiveBaseUrl = reactiveBaseUrl;
+        this.gearIds = gearIds;
+        this.guitaristIds = guitaristIds;
+        this.manufacturerIds = manufacturerIds;
+        this.manufacturerNames = manufacturerNames;
+    }
+
+    String url(String path) {
+        return baseUrl + path;
+    }
+
+    String reactiveUrl(String path) {
+        if (reactiveBaseUrl == null) {
+            throw new IllegalStateException("No reactive server, set -Dloadtest.reactive-url");
+        }
+        return reactiveBaseUrl + path;
+    }
+
+    Long randomGearId() {
+        return random(gearIds);
+    }
+
+    Long randomGuitaristId() {
+        return random(guitaristIds);
+    }
+
+    Long randomManufacturerId() {
+        return random(manufacturerIds);
+    }
+
+    String randomManufacturerName() {
+        return random(manufacturerNames);
+    }
+
+    static String randomType() {
+        return TYPES[ThreadLocalRandom.current().nextInt(TYPES.length)];
+    }
+
+    static String randomGenre() {
+        return GENRES[ThreadLocalRandom.current().nextInt(GENRES.length)];
+    }
+
+    private static <T> T random(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+}
@@ -0,0 +1,79 @@
+package kemp.roel.guitaristgear.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpRequest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén soort request uit de mix, met zijn gewicht en de gemeten latencies.
+ */
+
+class Operation {
+    // latencies tot 60 seconden, met 3 significante cijfers
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final String name;
+    private final int weight;
+    private final Function<LoadTestData, HttpRequest> requestFactory;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder unfinished = new LongAdder();
+
+    Operation(String name, int weight, Function<LoadTestData, HttpRequest> requestFactory) {
+        this.name = name;
+        this.weight = weight;
+        this.requestFactory = requestFactory;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getWeight() {
+        return weight;
+    }
+
+    HttpRequest newRequest(LoadTestData data) {
+        return requestFactory.apply(data);
+    }
+
+    /**
+     * Legt de latency van één request vast, gemeten vanaf het moment dat het request volgens het schema verstuurd
+     * had moeten worden. Zo telt de wachttijd achter een trage server mee (correctie voor coordinated omission).
+     * @param intendedStartNanos Het geplande verstuurmoment.
+     * @param success Of de server met een 2xx status antwoordde.
+     */
+    void record(long intendedStartNanos, boolean success) {
+        latencies.recordValue(Math.min(System.nanoTime() - intendedStartNanos, MAX_LATENCY_NANOS));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Legt een request vast dat bij het einde van de test nog geen antwoord had. Het telt als fout met de maximale
+     * latency; de echte latency is in ieder geval niet lager.
+     */
+    void recordUnfinished() {
+        latencies.recordValue(MAX_LATENCY_NANOS);
+        errors.increment();
+        unfinished.increment();
+    }
+
+    Histogram getLatencies() {
+        return latencies;
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getUnfinished() {
+        return unfinished.sum();
+    }
+}
@@ -0,0 +1,202 @@
+package kemp.roel.guitaristgear.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Meet de koude start: de tijd van het starten van een nieuwe JVM tot het eerste GET /gg/gear dat 200 teruggeeft.
+ * Iedere variant wordt "startup.runs" keer in een eigen JVM gestart, op dezelfde H2 database in build/startup:
+ * "default" (de standaard instellingen), "fast" (het fast profiel) en "fast-cds" (het fast profiel met het
+ * AppCDS archief). Een eerste, niet gemeten start met de standaard instellingen maakt het schema aan.
+ * Met "startup.mode=cds-archive" wordt in plaats daarvan het AppCDS archief gemaakt: één start met het fast profiel
+ * tot het eerste geslaagde request schrijft de geladen klassen weg, waarna een JVM met -Xshare:dump ze in het
+ * archief zet. Te starten met "./gradlew cdsArchive startupBenchmark".
+ */
+
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "kemp.roel.guitaristgear.GuitaristGearApplication";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    private final String classpath;
+    private final Path workDir;
+    private final Path log;
+
+    private StartupBenchmark(String classpath, Path workDir) {
+        this.classpath = classpath;
+        this.workDir = workDir;
+        this.log = workDir.resolve("startup.log");
+    }
+
+    public static void main(String[] args) throws Exception {
+        String classpath = System.getProperty("startup.classpath");
+        if (classpath == null) {
+            throw new IllegalStateException("startup.classpath is not set, start this with ./gradlew startupBenchmark");
+        }
+        Path workDir = Paths.get(System.getProperty("startup.dir", "build/startup"));
+        Path archive = Paths.get(System.getProperty("startup.cds-archive", "build/cds/guitarist-gear.jsa"));
+        Files.createDirectories(workDir);
+        StartupBenchmark benchmark = new StartupBenchmark(classpath, workDir);
+
+        if ("cds-archive".equals(System.getProperty("startup.mode"))) {
+            benchmark.createArchive(archive);
+            return;
+        }
+
+        int runs = Integer.getInteger("startup.runs", 5);
+        List<String> variants =
+                Arrays.asList(System.getProperty("startup.variants", "default,fast,fast-cds").split(","));
+        Path output = Paths.get(System.getProperty("startup.output", "build/reports/startup/summary.csv"));
+
+        benchmark.timeFirstRequest(Collections.emptyList(), Collections.emptyList());
+
+        List<String> rows = new ArrayList<>();
+        rows.add("variant,runs,min_ms,median_ms,max_ms");
+        for (String variant : variants) {
+            List<String> jvmArgs = new ArrayList<>();
+            List<String> appArgs = new ArrayList<>();
+            switch (variant.trim()) {
+                case "default":
+                    break;
+                case "fast":
+                    appArgs.add("--spring.profiles.active=fast");
+                    break;
+                case "fast-cds":
+                    if (!Files.exists(archive)) {
+                        System.out.println("Skipping fast-cds: " + archive + " does not exist, "
+                                + "run ./gradlew cdsArchive first");
+                        continue;
+                    }
+                    // zonder -Xshare:on valt de JVM stil terug op geen archief als het classpath niet klopt
+                    jvmArgs.add("-Xshare:on");
+                    jvmArgs.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+                    appArgs.add("--spring.profiles.active=fast");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown variant " + variant);
+            }
+
+            List<Long> millis = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                millis.add(TimeUnit.NANOSECONDS.toMillis(benchmark.timeFirstRequest(jvmArgs, appArgs)));
+            }
+            Collections.sort(millis);
+            rows.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%d", variant.trim(), runs, millis.get(0),
+                    millis.get(millis.size() / 2), millis.get(millis.size() - 1)));
+        }
+
+        System.out.printf(Locale.ROOT, "%-10s %5s %9s %10s %9s%n", "variant", "runs", "min ms", "median ms", "max ms");
+        for (String row : rows.subList(1, rows.size())) {
+            System.out.printf(Locale.ROOT, "%-10s %5s %9s %10s %9s%n", (Object[]) row.split(","));
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            rows.forEach(writer::println);
+        }
+        System.out.println("Results written to " + output.toAbsolutePath() + ", application output in " + log);
+    }
+
+    /**
+     * Maakt het AppCDS archief in twee stappen, zoals Java 11 dat vereist: eerst een lijst van de klassen die bij
+     * het opstarten en het eerste request geladen worden, daarna het archief zelf. Het archief geldt alleen voor
+     * hetzelfde classpath met dezelfde jars; na een nieuwe build moet het opnieuw gemaakt worden.
+     */
+    private void createArchive(Path archive) throws IOException, InterruptedException {
+        Files.createDirectories(archive.toAbsolutePath().getParent());
+        Path classList = archive.resolveSibling("classes.lst");
+        timeFirstRequest(Collections.emptyList(), Collections.emptyList());
+        timeFirstRequest(List.of("-XX:DumpLoadedClassList=" + classList.toAbsolutePath()),
+                List.of("--spring.profiles.active=fast"));
+
+        List<String> command = List.of(java, "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList.toAbsolutePath(),
+                "-XX:SharedArchiveFile=" + archive.toAbsolutePath(),
+                "-cp", classpath);
+        Process dump = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile())).start();
+        if (dump.waitFor() != 0) {
+            throw new IllegalStateException("-Xshare:dump failed, see " + log);
+        }
+        System.out.println("AppCDS archive written to " + archive.toAbsolutePath());
+    }
+
+    /**
+     * Start de applicatie in een nieuwe JVM en meet de tijd tot het eerste geslaagde GET /gg/gear. Daarna wordt
+     * de applicatie netjes afgesloten, zodat H2 de database sluit en de JVM zijn klassenlijst wegschrijft.
+     * @return De tijd in nanoseconden.
+     */
+    private long timeFirstRequest(List<String> jvmArgs, List<String> appArgs) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--server.port=" + port);
+        command.add("--gg.reactive.port=0");
+        command.add("--spring.datasource.url=jdbc:h2:file:" + workDir.toAbsolutePath().resolve("GGDB"));
+        command.addAll(appArgs);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/gg/gear"))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        File logFile = log.toFile();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile)).start();
+        try {
+            long deadline = start + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return System.nanoTime() - start;
+                    }
+                } catch (IOException e) {
+                    // de server luistert nog niet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No successful GET /gg/gear within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
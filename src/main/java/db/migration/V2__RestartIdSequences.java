@@ -0,0 +1,41 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Zet gear_seq en manufacturer_seq boven het hoogste id dat al in hun tabel staat. V1 laat ze bij 1000 beginnen,
+ * maar een oude database kan uit "hibernate_sequence" al hogere id's uitgedeeld hebben; dan zou de eerste insert
+ * op een bestaand id botsen. Dit staat in Java omdat de nieuwe startwaarde uit de data zelf moet komen.
+ */
+
+public class V2__RestartIdSequences extends BaseJavaMigration {
+    private static final long FIRST_ID = 1000;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            restartAboveMaxId(statement, "gear_seq", "gear");
+            restartAboveMaxId(statement, "manufacturer_seq", "manufacturer");
+        }
+    }
+
+    /**
+     * Laat de sequence verder tellen vanaf het hoogste id plus één, maar nooit onder de 1000 van V1. Met pooled-lo
+     * is de waarde van de sequence het eerste id van het volgende blok, dus er wordt geen id dubbel uitgedeeld.
+     * Omdat de migratie vóór het opstarten van de applicatie draait, heeft nog geen instantie een blok in handen.
+     */
+    private static void restartAboveMaxId(Statement statement, String sequence, String table) throws SQLException {
+        long next;
+        try (ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            resultSet.next();
+            next = Math.max(resultSet.getLong(1) + 1, FIRST_ID);
+        }
+        statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+    }
+}
@@ -2,6 +2,7 @@ package kemp.roel.guitaristgear;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  *  Auteur: Roel Kemp (500781)
@@ -9,6 +10,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 
 @SpringBootApplication
+@EnableScheduling
 public class GuitaristGearApplication {
     public static void main(String[] args) {
         SpringApplication.run(GuitaristGearApplication.class, args);
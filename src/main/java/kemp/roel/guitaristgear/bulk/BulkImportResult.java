@@ -0,0 +1,87 @@
+package kemp.roel.guitaristgear.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Het resultaat van een bulk import: hoeveel rijen er geïmporteerd zijn, hoeveel er fout gingen, hoe snel dat ging
+ * en per foute rij de reden. Er worden maximaal MAX_REPORTED_ERRORS fouten teruggegeven.
+ */
+
+public class BulkImportResult {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long imported;
+    private long failed;
+    private long durationMillis;
+    private final List<BulkRowError> errors = new ArrayList<>();
+
+    /**
+     * Telt een aantal geïmporteerde rijen op bij het totaal.
+     * @param rows Het aantal rijen dat geïmporteerd is.
+     */
+    void addImported(long rows) {
+        imported += rows;
+    }
+
+    /**
+     * Registreert een rij die niet geïmporteerd kon worden.
+     * @param row Het rijnummer in de import, beginnend bij 1.
+     * @param message De reden waarom de rij niet geïmporteerd is.
+     */
+    void addError(long row, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new BulkRowError(row, message));
+        }
+    }
+
+    /**
+     * Legt vast hoe lang de import geduurd heeft.
+     * @param durationMillis De duur van de import in milliseconden.
+     */
+    void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Getter voor het aantal geïmporteerde rijen.
+     * @return Het aantal geïmporteerde rijen.
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Getter voor het aantal rijen dat niet geïmporteerd kon worden.
+     * @return Het aantal foute rijen.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Getter voor de duur van de import.
+     * @return De duur van de import in milliseconden.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Berekent de doorvoer van de import.
+     * @return Het aantal geïmporteerde rijen per seconde.
+     */
+    public double getRowsPerSecond() {
+        return durationMillis == 0 ? imported : imported * 1000.0 / durationMillis;
+    }
+
+    /**
+     * Getter voor de fouten per rij.
+     * @return De eerste MAX_REPORTED_ERRORS fouten. Kan leeg zijn.
+     */
+    public List<BulkRowError> getErrors() {
+        return errors;
+    }
+}
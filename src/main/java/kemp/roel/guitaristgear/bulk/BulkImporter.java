@@ -0,0 +1,155 @@
+package kemp.roel.guitaristgear.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
+import kemp.roel.guitaristgear.wireformat.WireFormats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Importeert grote hoeveelheden objecten uit een array of een reeks losse objecten, in JSON (NDJSON), CBOR of Smile.
+ * De objecten worden één voor één ingelezen en per blok ("chunk") in een eigen transactie weggeschreven, zodat
+ * Hibernate de inserts kan bundelen.
+ * Als een blok faalt wordt dat blok rij voor rij opnieuw geschreven, zodat alleen de foute rijen overgeslagen worden.
+ */
+
+@Component
+public class BulkImporter {
+    private final WireFormats wireFormats;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructor voor BulkImporter.
+     * @param wireFormats Nodig om de rijen uit de request body in het juiste formaat in te lezen.
+     * @param transactionManager Nodig om ieder blok in een eigen transactie te schrijven.
+     * @param chunkSize Het aantal rijen per transactie, in te stellen met "gg.bulk.chunk-size".
+     */
+    @Autowired
+    public BulkImporter(WireFormats wireFormats, PlatformTransactionManager transactionManager,
+                        @Value("${gg.bulk.chunk-size:1000}") int chunkSize) {
+        this.wireFormats = wireFormats;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Leest alle rijen uit de stream in en schrijft ze in blokken weg.
+     * @param in De stream met een array of met objecten achter elkaar (bijv. NDJSON of een CBOR sequence).
+     * @param format Het formaat van de stream.
+     * @param type Het type van de rijen.
+     * @param validator Controleert een rij voordat deze geschreven wordt. Geeft een foutmelding terug,
+     *                  of null als de rij in orde is.
+     * @param writer Schrijft één rij weg. Wordt binnen de transactie van het blok aangeroepen.
+     * @return Het resultaat van de import, met per foute rij de reden.
+     * @throws IOException Als de stream niet gelezen kan worden.
+     */
+    public <T> BulkImportResult importAll(InputStream in, WireFormat format, Class<T> type,
+                                          Function<T, String> validator, Consumer<T> writer) throws IOException {
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Long> rowNumbers = new ArrayList<>(chunkSize);
+
+        try (MappingIterator<T> rows = wireFormats.mapper(format).readerFor(type).readValues(in)) {
+            long rowNumber = 0;
+            while (true) {
+                T row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    rowNumber++;
+                    row = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    // de rij is geldige JSON maar past niet op het type; de iterator gaat verder bij de volgende rij
+                    result.addError(rowNumber, e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // ongeldige JSON; de rest van de stream is niet meer betrouwbaar te lezen
+                    result.addError(rowNumber, "Malformed JSON: " + e.getOriginalMessage());
+                    break;
+                }
+
+                String error = validator.apply(row);
+                if (error != null) {
+                    result.addError(rowNumber, error);
+                    continue;
+                }
+                chunk.add(row);
+                rowNumbers.add(rowNumber);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, rowNumbers, writer, result);
+                }
+            }
+        }
+        writeChunk(chunk, rowNumbers, writer, result);
+
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Schrijft een blok rijen in één transactie weg. Als dat faalt wordt iedere rij los geschreven.
+     * Het blok wordt na afloop geleegd.
+     * @param chunk De rijen van het blok.
+     * @param rowNumbers De rijnummers van de rijen, voor de foutmeldingen.
+     * @param writer Schrijft één rij weg.
+     * @param result Het resultaat waarin geïmporteerde en foute rijen bijgehouden worden.
+     */
+    private <T> void writeChunk(List<T> chunk, List<Long> rowNumbers, Consumer<T> writer, BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                chunk.forEach(writer);
+                flushAndClear();
+            });
+            result.addImported(chunk.size());
+        } catch (RuntimeException chunkFailure) {
+            for (int i = 0; i < chunk.size(); i++) {
+                T row = chunk.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        writer.accept(row);
+                        flushAndClear();
+                    });
+                    result.addImported(1);
+                } catch (RuntimeException rowFailure) {
+                    result.addError(rowNumbers.get(i), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        rowNumbers.clear();
+    }
+
+    /**
+     * Stuurt de gebundelde inserts naar de database en haalt de geschreven objecten uit de persistence context,
+     * zodat het geheugengebruik niet groeit met de grootte van de import.
+     */
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package kemp.roel.guitaristgear.bulk;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een fout bij het importeren van één rij uit een bulk import.
+ */
+
+public class BulkRowError {
+    private final long row;
+    private final String message;
+
+    /**
+     * Constructor voor een BulkRowError object.
+     * @param row Het rijnummer in de import, beginnend bij 1.
+     * @param message De reden waarom de rij niet geïmporteerd is.
+     */
+    public BulkRowError(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    /**
+     * Getter voor het rijnummer.
+     * @return Het rijnummer in de import, beginnend bij 1.
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * Getter voor de foutmelding.
+     * @return De reden waarom de rij niet geïmporteerd is.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,133 @@
+package kemp.roel.guitaristgear.cache;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * De sleutel van een antwoord in de ResponseCache: de resource (bijv. "gear"), de filters uit de url en het formaat
+ * van de body. Filterwaarden worden genormaliseerd zoals de services dat doen (streepjes worden spaties, kleine
+ * letters), zodat "Fender" en "fender" hetzelfde antwoord delen.
+ */
+
+public class CacheKey {
+    public static final String GEAR = "gear";
+    public static final String GUITARIST = "guitarist";
+    public static final String MANUFACTURER = "manufacturer";
+
+    public static final String JSON = "json";
+
+    private final String resource;
+    private final String format;
+    private final Map<String, String> filters;
+
+    /**
+     * Constructor voor een CacheKey object.
+     * @param resource De resource waar het antwoord bij hoort.
+     * @param format Het formaat van de body.
+     * @param filters De genormaliseerde filters. Filters zonder waarde staan er niet in.
+     */
+    private CacheKey(String resource, String format, Map<String, String> filters) {
+        this.resource = resource;
+        this.format = format;
+        this.filters = filters;
+    }
+
+    /**
+     * Maakt een CacheKey zonder filters voor een JSON antwoord.
+     * @param resource De resource waar het antwoord bij hoort.
+     * @return De nieuwe CacheKey.
+     */
+    public static CacheKey of(String resource) {
+        return of(resource, JSON);
+    }
+
+    /**
+     * Maakt een CacheKey zonder filters voor een antwoord in een bepaald formaat.
+     * @param resource De resource waar het antwoord bij hoort.
+     * @param format De naam van het formaat, bijv. "json" of "cbor" (zie WireFormat).
+     * @return De nieuwe CacheKey.
+     */
+    public static CacheKey of(String resource, String format) {
+        return new CacheKey(resource, format, Collections.emptyMap());
+    }
+
+    /**
+     * Geeft een kopie van deze sleutel terug met een extra filter.
+     * @param name De naam van de filter.
+     * @param value De waarde van de filter uit de url. Als deze null is, wordt de filter niet toegevoegd.
+     * @return De nieuwe CacheKey.
+     */
+    public CacheKey with(String name, String value) {
+        if (value == null) {
+            return this;
+        }
+        Map<String, String> newFilters = new TreeMap<>(filters);
+        newFilters.put(name, normalize(value));
+        return new CacheKey(resource, format, Collections.unmodifiableMap(newFilters));
+    }
+
+    /**
+     * Normaliseert een filterwaarde naar de vorm van de genormaliseerde kolommen: streepjes worden spaties en alles
+     * wordt kleine letters. De services, de kolomsgewijze leesmachine en de reactieve API gebruiken deze methode
+     * ook, zodat een cachesleutel altijd bij dezelfde rijen hoort als de query.
+     * @param value De waarde. Mag null zijn.
+     * @return De genormaliseerde waarde, of null.
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.replace("-", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Controleert of een object met de meegegeven waarde in het antwoord bij deze sleutel kan staan.
+     * Als de sleutel niet op deze filter filtert, kan dat altijd.
+     * @param name De naam van de filter.
+     * @param value De waarde van het object. Mag null zijn.
+     * @return true als de filter ontbreekt of overeenkomt met de genormaliseerde waarde.
+     */
+    public boolean filterAccepts(String name, String value) {
+        String filter = filters.get(name);
+        return filter == null || filter.equals(normalize(value));
+    }
+
+    /**
+     * Getter voor de resource.
+     * @return De resource waar het antwoord bij hoort.
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    /**
+     * Getter voor het formaat van de body.
+     * @return Het formaat van de body.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey other = (CacheKey) o;
+        return resource.equals(other.resource) && format.equals(other.format) && filters.equals(other.filters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(resource, format, filters);
+    }
+
+    @Override
+    public String toString() {
+        return resource + "." + format + filters;
+    }
+}
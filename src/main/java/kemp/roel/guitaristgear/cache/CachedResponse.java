@@ -0,0 +1,121 @@
+package kemp.roel.guitaristgear.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een geserialiseerd antwoord uit de ResponseCache, zowel ongecomprimeerd als vooraf met gzip gecomprimeerd.
+ */
+
+public class CachedResponse {
+    // geschatte ruimte die de sleutel en dit object zelf innemen, bovenop de twee bodies
+    private static final int OVERHEAD_BYTES = 256;
+
+    private final MediaType contentType;
+    private final byte[] body;
+    private final byte[] gzippedBody;
+
+    /**
+     * Constructor voor een CachedResponse object. Comprimeert de body direct met gzip.
+     * @param contentType Het content type van de body.
+     * @param body De geserialiseerde body.
+     */
+    public CachedResponse(MediaType contentType, byte[] body) {
+        this.contentType = contentType;
+        this.body = body;
+        this.gzippedBody = gzip(body);
+    }
+
+    /**
+     * Geeft de geschatte hoeveelheid geheugen terug die dit antwoord in de cache inneemt.
+     * @return Het aantal bytes.
+     */
+    public long sizeInBytes() {
+        return body.length + gzippedBody.length + OVERHEAD_BYTES;
+    }
+
+    /**
+     * Maakt een response van dit antwoord. Als de client gzip accepteert (met een q-waarde groter dan 0) wordt de
+     * gecomprimeerde body verstuurd.
+     * @param acceptEncoding De waarde van de "Accept-Encoding" header. Mag null zijn.
+     * @return De response met de juiste body en headers.
+     */
+    public ResponseEntity<byte[]> toResponseEntity(String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && gzipQuality(acceptEncoding) > 0) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzippedBody);
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Bepaalt de q-waarde van gzip in een "Accept-Encoding" header (RFC 7231, 5.3.4). Een coding zonder q-waarde
+     * heeft q=1; staat gzip (of x-gzip) er niet in, dan geldt de waarde van "*", en anders 0. Zo betekenen
+     * "gzip;q=0" en "identity, *;q=0" allebei dat de client geen gzip wil.
+     * @param acceptEncoding De waarde van de header.
+     * @return De q-waarde van gzip, tussen 0 en 1.
+     */
+    static double gzipQuality(String acceptEncoding) {
+        double wildcard = 0;
+        boolean wildcardSeen = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return quality;
+            } else if (coding.equals("*") && !wildcardSeen) {
+                wildcard = quality;
+                wildcardSeen = true;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Leest de q-waarde uit de parameters van één coding. Een onleesbare waarde telt als 0, zodat de client dan de
+     * ongecomprimeerde body krijgt.
+     * @param parts De coding gevolgd door zijn parameters, zoals gesplitst op ";".
+     * @return De q-waarde, of 1 als die ontbreekt.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                    && parameter.substring(1).trim().startsWith("=")) {
+                try {
+                    double quality = Double.parseDouble(parameter.substring(parameter.indexOf('=') + 1).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Comprimeert een body met gzip.
+     * @param body De te comprimeren body.
+     * @return De gecomprimeerde body.
+     */
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
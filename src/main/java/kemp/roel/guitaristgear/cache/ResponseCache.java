@@ -0,0 +1,153 @@
+package kemp.roel.guitaristgear.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
+import kemp.roel.guitaristgear.wireformat.WireFormats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een cache met geserialiseerde antwoorden van de lijst endpoints. Bij een hit wordt de opgeslagen byte[] direct
+ * verstuurd, zonder Hibernate of Jackson. Ieder formaat (JSON, CBOR, Smile) heeft een eigen entry. De cache is
+ * begrensd op "gg.cache.max-bytes"; als die grens bereikt is worden de langst niet gebruikte antwoorden verwijderd.
+ * Wijzigingen via de services maken de antwoorden die ze raken ongeldig (zie ResponseCacheInvalidator).
+ */
+
+@Component
+public class ResponseCache {
+    private final WireFormats wireFormats;
+    private final long maxBytes;
+
+    // op volgorde van gebruik, zodat de eerste entry de langst niet gebruikte is
+    private final LinkedHashMap<CacheKey, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeInBytes;
+    // wordt bij iedere invalidatie opgehoogd, zodat een antwoord dat tijdens een wijziging gebouwd is niet bewaard wordt
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Constructor voor ResponseCache.
+     * @param wireFormats Nodig om de antwoorden bij een miss in het formaat van de sleutel te serialiseren.
+     * @param maxBytes De maximale hoeveelheid geheugen voor de cache, in te stellen met "gg.cache.max-bytes".
+     */
+    @Autowired
+    public ResponseCache(WireFormats wireFormats, @Value("${gg.cache.max-bytes:67108864}") long maxBytes) {
+        this.wireFormats = wireFormats;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Geeft het antwoord bij een sleutel terug. Bij een miss wordt de body opgehaald, geserialiseerd en bewaard.
+     * @param key De sleutel van het antwoord.
+     * @param loader Haalt de body op bij een miss, bijvoorbeeld een lijst uit een service.
+     * @return Het (geserialiseerde) antwoord.
+     */
+    public CachedResponse get(CacheKey key, Supplier<?> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedResponse cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        WireFormat format = WireFormat.forName(key.getFormat());
+        CachedResponse loaded = new CachedResponse(format.getMediaType(), serialize(format, loader.get()));
+
+        synchronized (this) {
+            if (loadGeneration == generation && loaded.sizeInBytes() <= maxBytes) {
+                CachedResponse previous = entries.put(key, loaded);
+                if (previous != null) {
+                    sizeInBytes -= previous.sizeInBytes();
+                }
+                sizeInBytes += loaded.sizeInBytes();
+                evictUntilWithinLimit();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Maakt alle antwoorden van een resource ongeldig waarvan de sleutel aan een voorwaarde voldoet.
+     * @param resource De resource, bijvoorbeeld CacheKey.GEAR.
+     * @param affected Geeft true terug voor sleutels waarvan het antwoord door de wijziging veranderd kan zijn.
+     */
+    public synchronized void invalidate(String resource, Predicate<CacheKey> affected) {
+        generation++;
+        Iterator<Map.Entry<CacheKey, CachedResponse>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheKey, CachedResponse> entry = iterator.next();
+            if (entry.getKey().getResource().equals(resource) && affected.test(entry.getKey())) {
+                sizeInBytes -= entry.getValue().sizeInBytes();
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Maakt alle antwoorden van een resource ongeldig.
+     * @param resource De resource, bijvoorbeeld CacheKey.GUITARIST.
+     */
+    public void invalidateAll(String resource) {
+        invalidate(resource, key -> true);
+    }
+
+    /**
+     * Geeft de tellers van de cache terug.
+     * @return De hits, misses, evictions, invalidaties, het aantal antwoorden en het gebruikte geheugen.
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        stats.put("entries", (long) entries.size());
+        stats.put("sizeInBytes", sizeInBytes);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    /**
+     * Verwijdert de langst niet gebruikte antwoorden totdat de cache weer binnen "maxBytes" valt.
+     */
+    private void evictUntilWithinLimit() {
+        Iterator<CachedResponse> iterator = entries.values().iterator();
+        while (sizeInBytes > maxBytes && iterator.hasNext()) {
+            sizeInBytes -= iterator.next().sizeInBytes();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Serialiseert een body naar JSON, CBOR of Smile.
+     * @param format Het formaat.
+     * @param body De te serialiseren body.
+     * @return De geserialiseerde body.
+     */
+    private byte[] serialize(WireFormat format, Object body) {
+        try {
+            return wireFormats.mapper(format).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
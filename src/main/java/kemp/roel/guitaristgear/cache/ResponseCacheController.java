@@ -0,0 +1,50 @@
+package kemp.roel.guitaristgear.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+@RestController
+@RequestMapping("/gg/cache")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ResponseCacheController {
+
+    private final ResponseCache responseCache;
+    private final SecondLevelCacheRegions secondLevelCacheRegions;
+
+    /**
+     * Constructor voor ResponseCacheController.
+     * @param responseCache De cache waarvan de tellers opgevraagd worden.
+     * @param secondLevelCacheRegions De regio's van de Hibernate second-level cache.
+     */
+    @Autowired
+    public ResponseCacheController(ResponseCache responseCache, SecondLevelCacheRegions secondLevelCacheRegions) {
+        this.responseCache = responseCache;
+        this.secondLevelCacheRegions = secondLevelCacheRegions;
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/cache/stats".
+     * Geeft de tellers van de response cache terug.
+     * @return De hits, misses, evictions, invalidaties, het aantal antwoorden en het gebruikte geheugen.
+     */
+    @GetMapping("/stats")
+    public Map<String, Long> getCacheStats() {
+        return responseCache.getStats();
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/cache/regions".
+     * Geeft per regio van de Hibernate second-level cache de tellers en de hit ratio terug.
+     * @return De tellers per regio.
+     */
+    @GetMapping("/regions")
+    public Map<String, Map<String, Object>> getSecondLevelCacheRegions() {
+        return secondLevelCacheRegions.getStats();
+    }
+}
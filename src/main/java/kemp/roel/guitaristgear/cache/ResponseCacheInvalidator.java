@@ -0,0 +1,110 @@
+package kemp.roel.guitaristgear.cache;
+
+import kemp.roel.guitaristgear.datasource.ReplicaRefreshedEvent;
+import kemp.roel.guitaristgear.gear.GearChangedEvent;
+import kemp.roel.guitaristgear.gear.GearSnapshot;
+import kemp.roel.guitaristgear.guitarist.GearListChangedEvent;
+import kemp.roel.guitaristgear.guitarist.GuitaristChangedEvent;
+import kemp.roel.guitaristgear.guitarist.GuitaristSnapshot;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerChangedEvent;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Maakt antwoorden in de ResponseCache ongeldig na een wijziging via een service. Dit gebeurt pas na de commit,
+ * zodat een gelijktijdige lezer geen oude gegevens opnieuw in de cache kan zetten. Alleen de sleutels waarvan de
+ * filters op de oude of nieuwe toestand passen worden verwijderd.
+ */
+
+@Component
+public class ResponseCacheInvalidator {
+    private final ResponseCache responseCache;
+
+    /**
+     * Constructor voor ResponseCacheInvalidator.
+     * @param responseCache De cache waarin antwoorden ongeldig gemaakt worden.
+     */
+    @Autowired
+    public ResponseCacheInvalidator(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Een Gear object staat in de gear lijsten die op zijn merk en type passen, en in de lijsten van gitaristen.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGearChanged(GearChangedEvent event) {
+        responseCache.invalidate(CacheKey.GEAR,
+                key -> gearMatches(key, event.getBefore()) || gearMatches(key, event.getAfter()));
+        responseCache.invalidateAll(CacheKey.GUITARIST);
+    }
+
+    /**
+     * Een Guitarist object staat in de lijsten die op zijn genre en geboortejaar passen.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuitaristChanged(GuitaristChangedEvent event) {
+        responseCache.invalidate(CacheKey.GUITARIST,
+                key -> guitaristMatches(key, event.getBefore()) || guitaristMatches(key, event.getAfter()));
+    }
+
+    /**
+     * Een gewijzigde "gear list" verandert alleen de lijsten van gitaristen.
+     * @param event Het event met de gewijzigde "gear list".
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGearListChanged(GearListChangedEvent event) {
+        responseCache.invalidateAll(CacheKey.GUITARIST);
+    }
+
+    /**
+     * Een Manufacturer object staat in de lijsten die op zijn mainProductType passen. Als merk van gear staat het
+     * ook in gear lijsten en lijsten van gitaristen, maar alleen een bestaand merk kan gear hebben: een nieuw merk
+     * heeft nog geen gear en een merk met gear kan niet verwijderd worden.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onManufacturerChanged(ManufacturerChangedEvent event) {
+        ManufacturerSnapshot before = event.getBefore();
+        ManufacturerSnapshot after = event.getAfter();
+        responseCache.invalidate(CacheKey.MANUFACTURER,
+                key -> manufacturerMatches(key, before) || manufacturerMatches(key, after));
+        if (before != null && after != null) {
+            responseCache.invalidate(CacheKey.GEAR, key -> key.filterAccepts("brandName", before.getName())
+                    || key.filterAccepts("brandName", after.getName()));
+            responseCache.invalidateAll(CacheKey.GUITARIST);
+        }
+    }
+
+    /**
+     * Met een replica kan een antwoord na een wijziging nog uit de oude replica gelezen en opnieuw gecachet zijn.
+     * Na het verversen van de replica wordt daarom alles weggegooid.
+     * @param event Het event na het verversen van de replica.
+     */
+    @EventListener
+    public void onReplicaRefreshed(ReplicaRefreshedEvent event) {
+        responseCache.invalidateAll(CacheKey.GEAR);
+        responseCache.invalidateAll(CacheKey.GUITARIST);
+        responseCache.invalidateAll(CacheKey.MANUFACTURER);
+    }
+
+    private static boolean gearMatches(CacheKey key, GearSnapshot gear) {
+        return gear != null && key.filterAccepts("brandName", gear.getBrandName())
+                && key.filterAccepts("type", gear.getType());
+    }
+
+    private static boolean guitaristMatches(CacheKey key, GuitaristSnapshot guitarist) {
+        return guitarist != null && key.filterAccepts("genre", guitarist.getGenre())
+                && key.filterAccepts("birthYear", String.valueOf(guitarist.getBirthYear()));
+    }
+
+    private static boolean manufacturerMatches(CacheKey key, ManufacturerSnapshot manufacturer) {
+        return manufacturer != null && key.filterAccepts("mainProductType", manufacturer.getMainProductType());
+    }
+}
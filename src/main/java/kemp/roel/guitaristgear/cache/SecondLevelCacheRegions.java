@@ -0,0 +1,70 @@
+package kemp.roel.guitaristgear.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Geeft per regio van de Hibernate second-level cache de hits, misses en puts terug, uit de Hibernate statistieken
+ * ("hibernate.generate_statistics"). Dezelfde tellers staan per regio ook in /actuator/prometheus.
+ * Leestransacties op de replica vullen de cache niet (zie ReadWriteRoutingDataSource), dus een verversing van de
+ * replica hoeft de cache ook niet te legen.
+ */
+
+@Component
+public class SecondLevelCacheRegions {
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Constructor voor SecondLevelCacheRegions.
+     * @param entityManagerFactory De EntityManagerFactory waarvan de cache en de statistieken gebruikt worden.
+     */
+    @Autowired
+    public SecondLevelCacheRegions(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Geeft de tellers van alle entity en collection regio's en van de query cache terug.
+     * @return Per regio de hits, misses, puts, de hit ratio en (als Ehcache die kent) het aantal objecten.
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Map<String, Object>> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.put(region, toMap(regionStatistics));
+            }
+        }
+        CacheRegionStatistics queryStatistics =
+                statistics.getQueryRegionStatistics(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        if (queryStatistics != null) {
+            regions.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, toMap(queryStatistics));
+        }
+        return regions;
+    }
+
+    private static Map<String, Object> toMap(CacheRegionStatistics statistics) {
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", statistics.getPutCount());
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        long elements = statistics.getElementCountInMemory();
+        if (elements != CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN) {
+            stats.put("elementsInMemory", elements);
+        }
+        return stats;
+    }
+}
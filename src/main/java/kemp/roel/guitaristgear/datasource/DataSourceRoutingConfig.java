@@ -0,0 +1,127 @@
+package kemp.roel.guitaristgear.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Vervangt de enkele datasource door een primaire database en een replica, met daarvoor een
+ * ReadWriteRoutingDataSource. Staat aan met "gg.datasource.replica.enabled=true". De replica gebruikt dezelfde
+ * driver, gebruikersnaam en wachtwoord als "spring.datasource.*", met de url uit "gg.datasource.replica.url".
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "gg.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * De primaire database, waar alle schrijvende transacties naartoe gaan.
+     * @param properties De "spring.datasource.*" instellingen.
+     * @return Een Hikari pool met de naam "gg-primary".
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("gg-primary");
+        return dataSource;
+    }
+
+    /**
+     * De replica, waar leestransacties naartoe gaan.
+     * @param properties De "spring.datasource.*" instellingen, voor de driver en de inloggegevens.
+     * @param url De url van de replica.
+     * @return Een Hikari pool met de naam "gg-replica".
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${gg.datasource.replica.url}") String url) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                .url(url).build();
+        dataSource.setPoolName("gg-replica");
+        return dataSource;
+    }
+
+    /**
+     * Kiest de ReplicaRefreshStrategy met "gg.datasource.replica.refresh": "h2-script" (standaard) kopieert de
+     * primaire H2 database, "external" laat het bijwerken aan de database zelf over.
+     * @param refresh De naam van de strategie.
+     * @return De strategie.
+     */
+    @Bean
+    public ReplicaRefreshStrategy replicaRefreshStrategy(
+            @Value("${gg.datasource.replica.refresh:h2-script}") String refresh) {
+        switch (refresh) {
+            case "h2-script":
+                return new H2ScriptReplicaRefreshStrategy();
+            case "external":
+                return new ExternalReplicaRefreshStrategy();
+            default:
+                throw new IllegalStateException("Unknown gg.datasource.replica.refresh \"" + refresh + "\"");
+        }
+    }
+
+    /**
+     * De ReplicaRefresher die de replica bijwerkt en bewaakt.
+     * @param strategy De gekozen strategie.
+     * @param primaryDataSource De primaire database.
+     * @param replicaDataSource De replica.
+     * @param eventPublisher Nodig om ReplicaRefreshedEvents te publiceren.
+     * @return De ReplicaRefresher.
+     */
+    @Bean
+    public ReplicaRefresher replicaRefresher(ReplicaRefreshStrategy strategy,
+                                             @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                             ApplicationEventPublisher eventPublisher) {
+        return new ReplicaRefresher(strategy, primaryDataSource, replicaDataSource, eventPublisher);
+    }
+
+    /**
+     * De datasource die JPA en de rest van de applicatie gebruiken. De LazyConnectionDataSourceProxy stelt het
+     * kiezen van de database uit tot de eerste query, als bekend is of de transactie read-only is.
+     * @param primaryDataSource De primaire database.
+     * @param replicaDataSource De replica.
+     * @param replicaRefresher Bepaalt of de replica gebruikt mag worden.
+     * @return De routerende datasource.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaRefresher replicaRefresher) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.put(ReadWriteRoutingDataSource.REPLICA, replicaDataSource);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaRefresher);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Registreert de ReadYourWritesFilter voor alle requests, zo vroeg mogelijk in de keten.
+     * @return De registratie van de filter.
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,39 @@
+package kemp.roel.guitaristgear.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+@RestController
+@RequestMapping("/gg/datasource")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@ConditionalOnProperty(name = "gg.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingController {
+
+    private final ReplicaRefresher replicaRefresher;
+
+    /**
+     * Constructor voor DataSourceRoutingController.
+     * @param replicaRefresher De ReplicaRefresher waarvan de tellers opgevraagd worden.
+     */
+    @Autowired
+    public DataSourceRoutingController(ReplicaRefresher replicaRefresher) {
+        this.replicaRefresher = replicaRefresher;
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/datasource/stats".
+     * Geeft de tellers van de routering en van het verversen van de replica terug.
+     * @return De tellers.
+     */
+    @GetMapping("/stats")
+    public Map<String, Long> getDataSourceStats() {
+        return replicaRefresher.getStats();
+    }
+}
@@ -0,0 +1,16 @@
+package kemp.roel.guitaristgear.datasource;
+
+import javax.sql.DataSource;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Voor een replica die door de database zelf bijgehouden wordt (bijvoorbeeld streaming replicatie). De applicatie
+ * hoeft dan niets te kopiëren.
+ */
+
+class ExternalReplicaRefreshStrategy implements ReplicaRefreshStrategy {
+
+    @Override
+    public void refresh(DataSource primary, DataSource replica) {
+    }
+}
@@ -0,0 +1,48 @@
+package kemp.roel.guitaristgear.datasource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Kopieert de hele primaire H2 database naar de replica met "SCRIPT" en "RUNSCRIPT". Bedoeld om de routering
+ * lokaal met twee H2 databases te testen; de replica loopt hooguit één verversinterval achter.
+ */
+
+class H2ScriptReplicaRefreshStrategy implements ReplicaRefreshStrategy {
+
+    @Override
+    public void refresh(DataSource primary, DataSource replica) throws SQLException {
+        Path script = createScriptFile();
+        try {
+            String location = script.toAbsolutePath().toString().replace("'", "''");
+            try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SCRIPT TO '" + location + "' COMPRESSION DEFLATE");
+            }
+            try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                statement.execute("RUNSCRIPT FROM '" + location + "' COMPRESSION DEFLATE");
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(script);
+            } catch (IOException ignored) {
+                // Een achtergebleven tijdelijk bestand is geen reden om de verversing te laten mislukken.
+            }
+        }
+    }
+
+    private static Path createScriptFile() {
+        try {
+            return Files.createTempFile("gg-replica", ".sql.gz");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package kemp.roel.guitaristgear.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Kiest per verbinding tussen de primaire database en de replica. Alleen een leestransactie
+ * (@Transactional(readOnly = true)) gaat naar de replica, en alleen als het request nog niet geschreven heeft en de
+ * replica op dat moment niet ververst wordt. Al het andere, ook werk buiten een transactie, gaat naar de primaire
+ * database. Werkt alleen achter een LazyConnectionDataSourceProxy: de JpaTransactionManager vraagt de verbinding
+ * op voordat hij de transactie als read-only markeert.
+ * Een transactie op de replica zet de Hibernate sessie op CacheMode.GET: ze mag uit de second-level cache lezen,
+ * maar zet er niets in. Zo komt een object dat de replica nog niet bijgewerkt heeft niet in de gedeelde cache.
+ */
+
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final ReplicaRefresher replicaRefresher;
+
+    /**
+     * Constructor voor ReadWriteRoutingDataSource.
+     * @param replicaRefresher Geeft aan of de replica gebruikt mag worden.
+     */
+    ReadWriteRoutingDataSource(ReplicaRefresher replicaRefresher) {
+        this.replicaRefresher = replicaRefresher;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadYourWrites.markWritten();
+            return PRIMARY;
+        }
+        if (ReadYourWrites.hasWritten() || !replicaRefresher.tryEnter()) {
+            return PRIMARY;
+        }
+        Session session = currentSession();
+        CacheMode previousCacheMode = session == null ? null : session.getCacheMode();
+        if (session != null) {
+            session.setCacheMode(CacheMode.GET);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                replicaRefresher.exit();
+                // met open-in-view leeft de sessie door na de transactie; een volgende transactie op de primaire
+                // database in hetzelfde request moet de cache weer vullen
+                if (session != null && session.isOpen()) {
+                    session.setCacheMode(previousCacheMode);
+                }
+            }
+        });
+        return REPLICA;
+    }
+
+    /**
+     * Zoekt de Hibernate sessie die door de JpaTransactionManager aan de huidige transactie gekoppeld is.
+     * @return De sessie, of null als de transactie niet via JPA loopt.
+     */
+    private static Session currentSession() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                return ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package kemp.roel.guitaristgear.datasource;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Onthoudt per thread of er in het huidige request al geschreven is. Na een schrijvende transactie gaan ook de
+ * leestransacties van dat request naar de primaire database, zodat het request zijn eigen wijzigingen ziet terwijl
+ * de replica nog achterloopt.
+ */
+
+public final class ReadYourWrites {
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<>();
+
+    private ReadYourWrites() {}
+
+    /**
+     * Markeert dat de huidige thread een schrijvende transactie gestart heeft.
+     */
+    public static void markWritten() {
+        WRITTEN.set(Boolean.TRUE);
+    }
+
+    /**
+     * Geeft aan of de huidige thread sinds de laatste clear() geschreven heeft.
+     * @return true als leestransacties naar de primaire database moeten. Anders false.
+     */
+    public static boolean hasWritten() {
+        return WRITTEN.get() != null;
+    }
+
+    /**
+     * Vergeet de markering, aan het einde van een request.
+     */
+    public static void clear() {
+        WRITTEN.remove();
+    }
+}
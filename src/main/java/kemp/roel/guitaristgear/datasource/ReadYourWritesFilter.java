@@ -0,0 +1,29 @@
+package kemp.roel.guitaristgear.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Begrenst ReadYourWrites tot één request. Zonder deze filter zou een thread uit de pool van Tomcat na één
+ * schrijvend request voorgoed van de primaire database blijven lezen.
+ */
+
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.clear();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package kemp.roel.guitaristgear.datasource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Brengt de replica bij met de primaire database. Wordt periodiek door de ReplicaRefresher aangeroepen, terwijl er
+ * geen leestransacties op de replica lopen. Te kiezen met "gg.datasource.replica.refresh".
+ */
+
+public interface ReplicaRefreshStrategy {
+
+    /**
+     * Brengt de replica bij.
+     * @param primary De primaire database.
+     * @param replica De replica.
+     * @throws SQLException Als het bijwerken mislukt. De replica wordt dan niet meer gebruikt tot een volgende
+     *                      poging slaagt.
+     */
+    void refresh(DataSource primary, DataSource replica) throws SQLException;
+}
@@ -0,0 +1,27 @@
+package kemp.roel.guitaristgear.datasource;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Wordt gepubliceerd nadat de replica bijgewerkt is. Wat tussen twee verversingen van de replica gelezen is, kan
+ * ouder zijn dan de primaire database.
+ */
+
+public class ReplicaRefreshedEvent {
+    private final long refreshedAt;
+
+    /**
+     * Constructor voor een ReplicaRefreshedEvent.
+     * @param refreshedAt Het moment (epoch milliseconden) waarop de verversing klaar was.
+     */
+    public ReplicaRefreshedEvent(long refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+
+    /**
+     * Getter voor het moment van verversen.
+     * @return Het moment in epoch milliseconden.
+     */
+    public long getRefreshedAt() {
+        return refreshedAt;
+    }
+}
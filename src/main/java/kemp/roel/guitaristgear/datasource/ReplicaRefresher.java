@@ -0,0 +1,121 @@
+package kemp.roel.guitaristgear.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Ververst de replica periodiek met de gekozen ReplicaRefreshStrategy en bepaalt of leestransacties de replica
+ * mogen gebruiken. Een leestransactie houdt het leesslot vast tot ze klaar is; een verversing wacht op het
+ * schrijfslot, zodat er nooit gelezen wordt uit een replica die half bijgewerkt is. Het slot is eerlijk, dus
+ * nieuwe leestransacties gaan naar de primaire database zolang een verversing wacht.
+ */
+
+public class ReplicaRefresher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRefresher.class);
+
+    private final ReplicaRefreshStrategy strategy;
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private volatile boolean ready;
+
+    private final AtomicLong replicaTransactions = new AtomicLong();
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRefreshedAt;
+    private volatile long lastRefreshMillis;
+
+    /**
+     * Constructor voor ReplicaRefresher.
+     * @param strategy De manier waarop de replica bijgewerkt wordt.
+     * @param primary De primaire database.
+     * @param replica De replica.
+     * @param eventPublisher Nodig om na iedere verversing een ReplicaRefreshedEvent te publiceren.
+     */
+    public ReplicaRefresher(ReplicaRefreshStrategy strategy, DataSource primary, DataSource replica,
+                            ApplicationEventPublisher eventPublisher) {
+        this.strategy = strategy;
+        this.primary = primary;
+        this.replica = replica;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Probeert de replica voor een leestransactie te reserveren. Lukt niet voor de eerste geslaagde verversing,
+     * na een mislukte verversing en zolang een verversing loopt of wacht.
+     * @return true als de transactie de replica mag gebruiken. De aanroeper moet dan na afloop exit() aanroepen.
+     */
+    public boolean tryEnter() {
+        boolean entered = false;
+        if (ready) {
+            try {
+                entered = lock.readLock().tryLock(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        (entered ? replicaTransactions : primaryFallbacks).incrementAndGet();
+        return entered;
+    }
+
+    /**
+     * Geeft de reservering uit tryEnter() vrij. Moet op dezelfde thread aangeroepen worden.
+     */
+    public void exit() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Ververst de replica, iedere "gg.datasource.replica.refresh-interval" milliseconden na de vorige verversing.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${gg.datasource.replica.refresh-interval:5000}")
+    public void refresh() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            strategy.refresh(primary, replica);
+            ready = true;
+            refreshes.incrementAndGet();
+        } catch (SQLException | RuntimeException e) {
+            ready = false;
+            failures.incrementAndGet();
+            LOGGER.warn("Replica refresh failed, reading from the primary until the next refresh succeeds", e);
+            return;
+        } finally {
+            lock.writeLock().unlock();
+            lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        lastRefreshedAt = System.currentTimeMillis();
+        eventPublisher.publishEvent(new ReplicaRefreshedEvent(lastRefreshedAt));
+    }
+
+    /**
+     * Geeft de tellers van de routering en de verversingen terug.
+     * @return Het aantal leestransacties op de replica en op de primaire database, het aantal geslaagde en
+     *         mislukte verversingen, het moment van de laatste verversing en hoe lang die duurde.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("replicaTransactions", replicaTransactions.get());
+        stats.put("primaryFallbacks", primaryFallbacks.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRefreshedAt", lastRefreshedAt);
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        stats.put("ready", ready ? 1L : 0L);
+        return stats;
+    }
+}
@@ -0,0 +1,96 @@
+package kemp.roel.guitaristgear.etag;
+
+import kemp.roel.guitaristgear.wireformat.WireFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Supplier;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Hulpmethodes voor sterke ETags op basis van de @Version kolommen. Een ETag bestaat uit het id en de versies
+ * van alles wat in de JSON van het object staat, bijvoorbeeld ook de versie van het merk van een Gear object.
+ * Een GET geeft dezelfde versie in JSON, CBOR of Smile terug; dat zijn verschillende bytes, dus krijgt iedere vorm
+ * een eigen ETag met het formaat erachter ("12-3+cbor"). Bij If-Match telt alleen de versie, niet het formaat.
+ */
+
+public final class ETags {
+    private static final char FORMAT_SEPARATOR = '+';
+
+    private ETags() {}
+
+    /**
+     * Maakt een sterke ETag van een id en een aantal versies.
+     * @param id Het id van het object.
+     * @param versions De versies van het object en de objecten die in de JSON ervan staan.
+     * @return De ETag, inclusief aanhalingstekens.
+     */
+    public static String of(Long id, Object... versions) {
+        StringBuilder tag = new StringBuilder("\"").append(id);
+        for (Object version : versions) {
+            tag.append('-').append(version);
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Maakt de ETag van één vorm van een object: de ETag van de versie met de naam van het formaat erachter.
+     * @param eTag De ETag van de versie, gemaakt met of(...).
+     * @param format Het formaat waarin de body verstuurd wordt.
+     * @return De ETag van die vorm, inclusief aanhalingstekens.
+     */
+    public static String forFormat(String eTag, WireFormat format) {
+        return eTag.substring(0, eTag.length() - 1) + FORMAT_SEPARATOR + format.getName() + '"';
+    }
+
+    /**
+     * Beantwoordt een GET op één object met een ETag per formaat en "Vary: Accept", zodat een cache de JSON vorm
+     * niet aan een client geeft die om CBOR vroeg. Komt "If-None-Match" overeen, dan wordt de body niet geladen.
+     * @param request Het request, nodig voor de "If-None-Match" header.
+     * @param accept De "Accept" header. Mag null zijn.
+     * @param eTag De ETag van de huidige versie, gemaakt met of(...).
+     * @param body Laadt het object, alleen als het niet ongewijzigd is.
+     * @return 200 met het object, of 304 zonder body.
+     */
+    public static <T> ResponseEntity<T> conditionalGet(WebRequest request, String accept, String eTag,
+                                                       Supplier<T> body) {
+        String formatETag = forFormat(eTag, WireFormat.negotiate(accept));
+        if (request.checkNotModified(formatETag)) {
+            // checkNotModified heeft de ETag header al gezet
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(formatETag).body(body.get());
+    }
+
+    /**
+     * Controleert een "If-Match" header tegen de huidige ETag. Zwakke ETags (W/) komen nooit overeen. Een ETag
+     * van een GET mag het formaat nog bevatten; alleen het deel met het id en de versies wordt vergeleken.
+     * @param ifMatch De waarde van de "If-Match" header. Als deze null is, is er geen voorwaarde.
+     * @param currentETag De huidige ETag van het object.
+     * @throws ResponseStatusException Met status 412 als de header niet overeenkomt met de huidige ETag.
+     */
+    public static void checkIfMatch(String ifMatch, String currentETag) {
+        if (ifMatch == null) {
+            return;
+        }
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || withoutFormat(tag).equals(currentETag)) {
+                return;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                "If-Match " + ifMatch + " does not match current ETag " + currentETag);
+    }
+
+    private static String withoutFormat(String tag) {
+        int separator = tag.lastIndexOf(FORMAT_SEPARATOR);
+        if (separator < 0 || !tag.endsWith("\"")) {
+            return tag;
+        }
+        return tag.substring(0, separator) + '"';
+    }
+}
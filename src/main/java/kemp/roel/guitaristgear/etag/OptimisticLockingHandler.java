@@ -0,0 +1,33 @@
+package kemp.roel.guitaristgear.etag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Vertaalt een mislukte versiecontrole bij het opslaan naar een 412. Dit gebeurt als een ander request het object
+ * gewijzigd heeft tussen het controleren van de "If-Match" header en de commit.
+ */
+
+@RestControllerAdvice
+public class OptimisticLockingHandler {
+
+    /**
+     * Wordt aangeroepen als Hibernate bij het opslaan een nieuwere versie in de database vindt. De foutmelding
+     * wordt op dezelfde manier verstuurd als bij een ResponseStatusException.
+     * @param e De exception van Hibernate.
+     * @param response De response waarop de status gezet wordt.
+     * @throws IOException Als de foutmelding niet verstuurd kan worden.
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public void handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e,
+                                               HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.PRECONDITION_FAILED.value(),
+                e.getPersistentClassName() + " with id " + e.getIdentifier() + " has been changed by another request");
+    }
+}
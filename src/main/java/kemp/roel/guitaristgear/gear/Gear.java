@@ -1,6 +1,10 @@
 package kemp.roel.guitaristgear.gear;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 
@@ -9,19 +13,37 @@ import javax.persistence.*;
  */
 
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Gear {
 
+    // Id's worden in blokken van 50 uitgedeeld (pooled-lo), zodat niet iedere insert een sequence aanroep kost.
+    // De sequence begint bij 1000 omdat bestaande rijen hun id al uit "hibernate_sequence" gekregen hebben; de
+    // migratie V2__RestartIdSequences zet hem verder als een oude database daar al boven zit.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gear_seq")
+    @SequenceGenerator(name = "gear_seq", sequenceName = "gear_seq", initialValue = 1000, allocationSize = 50)
     private Long id;
 
     private String name;
     private String type;
     private int weightInGrams;
 
+    // Door H2 berekende kolom met het type in kleine letters, zodat op type gefilterd kan worden via een index.
+    @Column(name = "type_normalized", insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(255) AS LOWER(type)")
+    private String typeNormalized;
+
     @ManyToOne
     private Manufacturer brand;
 
+    // Wordt door Hibernate bij iedere wijziging opgehoogd en is de basis van de ETag. Bestaande rijen beginnen op 0.
+    @Version
+    @JsonIgnore
+    @Column(columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
+
     /**
      * Default constructor voor een Gear object.
      */
@@ -96,4 +118,20 @@ public class Gear {
     public void setBrand(Manufacturer brand) {
         this.brand = brand;
     }
+
+    /**
+     * De getter voor de versie van dit Gear object.
+     * @return De versie, die bij iedere wijziging door Hibernate opgehoogd wordt.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * De setter voor de versie van dit Gear object.
+     * @param version De versie waarmee het object bij het opslaan vergeleken wordt.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
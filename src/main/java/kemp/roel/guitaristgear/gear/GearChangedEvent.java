@@ -0,0 +1,46 @@
+package kemp.roel.guitaristgear.gear;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Wordt door GearService gepubliceerd als een Gear object toegevoegd, gewijzigd of verwijderd wordt.
+ * Het event wordt binnen de transactie van de wijziging gepubliceerd.
+ */
+
+public class GearChangedEvent {
+    private final GearSnapshot before;
+    private final GearSnapshot after;
+
+    /**
+     * Constructor voor een GearChangedEvent object.
+     * @param before De toestand voor de wijziging. Is null als het Gear object nieuw is.
+     * @param after De toestand na de wijziging. Is null als het Gear object verwijderd is.
+     */
+    public GearChangedEvent(GearSnapshot before, GearSnapshot after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Getter voor de toestand voor de wijziging.
+     * @return De toestand voor de wijziging, of null als het Gear object nieuw is.
+     */
+    public GearSnapshot getBefore() {
+        return before;
+    }
+
+    /**
+     * Getter voor de toestand na de wijziging.
+     * @return De toestand na de wijziging, of null als het Gear object verwijderd is.
+     */
+    public GearSnapshot getAfter() {
+        return after;
+    }
+
+    /**
+     * Getter voor het id van het gewijzigde Gear object.
+     * @return Het id van het gewijzigde Gear object.
+     */
+    public Long getGearId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -0,0 +1,176 @@
+package kemp.roel.guitaristgear.gear;
+
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerChangedEvent;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een optionele leesmachine voor de gear catalogus, aan te zetten met "gg.columnar.enabled". De catalogus staat
+ * als GearColumns in het geheugen; lijsten en filters worden beantwoord door de arrays te doorlopen, zonder
+ * Hibernate of Gear objecten. Wijzigingen worden per transactie verzameld en na de commit in één keer verwerkt
+ * tot nieuwe kolommen.
+ */
+
+@Component
+public class GearColumnStore {
+    private final GearRepository gearRepository;
+    private final ManufacturerRepository manufacturerRepository;
+    private final boolean enabled;
+
+    private volatile GearColumns columns = GearColumns.EMPTY;
+
+    /**
+     * Constructor voor GearColumnStore.
+     * @param gearRepository Nodig om de kolommen bij het opstarten te vullen.
+     * @param manufacturerRepository Nodig om de merken bij het opstarten te laden.
+     * @param enabled Of de leesmachine gebruikt wordt, in te stellen met "gg.columnar.enabled".
+     */
+    @Autowired
+    public GearColumnStore(GearRepository gearRepository, ManufacturerRepository manufacturerRepository,
+                           @Value("${gg.columnar.enabled:false}") boolean enabled) {
+        this.gearRepository = gearRepository;
+        this.manufacturerRepository = manufacturerRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Geeft aan of de leesmachine aan staat. Zo niet, dan gebruikt GearController de JPA route.
+     * @return true als "gg.columnar.enabled" aan staat.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Filtert de catalogus op merknaam en type, met dezelfde normalisatie als GearService.getAllGear.
+     * @param brandName De merknaam uit de url. Mag null zijn.
+     * @param type Het type uit de url. Mag null zijn.
+     * @return De passende Gear objecten, die als JSON array geschreven kunnen worden.
+     */
+    public GearColumnView select(String brandName, String type) {
+        GearColumns current = columns;
+        return new GearColumnView(current, current.select(CacheKey.normalize(brandName), CacheKey.normalize(type)));
+    }
+
+    /**
+     * Geeft het aantal rijen en het geschatte geheugengebruik van de kolommen terug.
+     * @return Of de leesmachine aan staat, het aantal rijen, het geschatte aantal bytes en bytes per rij.
+     */
+    public Map<String, Object> getStats() {
+        GearColumns current = columns;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rows", current.size());
+        stats.put("estimatedBytes", current.estimatedBytes());
+        stats.put("bytesPerRow", current.size() == 0 ? 0 : current.estimatedBytes() / current.size());
+        return stats;
+    }
+
+    /**
+     * Vult de kolommen bij het opstarten, als de leesmachine aan staat. Wijzigingen die tijdens het opbouwen
+     * gecommit worden, wachten tot de kolommen klaar zijn en worden daarna opnieuw toegepast.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        if (!enabled) {
+            return;
+        }
+        List<ManufacturerSnapshot> brands = new ArrayList<>();
+        manufacturerRepository.findAll().forEach(m -> brands.add(ManufacturerSnapshot.of(m)));
+        columns = GearColumns.build(gearRepository.findAllColumns(), brands);
+    }
+
+    /**
+     * Onthoudt een gewijzigd Gear object tot de transactie gecommit is.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    public void onGearChanged(GearChangedEvent event) {
+        if (enabled) {
+            record(changes -> changes.gear.put(event.getGearId(), event.getAfter()));
+        }
+    }
+
+    /**
+     * Onthoudt een gewijzigd of nieuw merk tot de transactie gecommit is. Een verwijderd merk heeft geen gear meer
+     * en blijft in het woordenboek staan.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    public void onManufacturerChanged(ManufacturerChangedEvent event) {
+        if (enabled && event.getAfter() != null) {
+            record(changes -> changes.brands.add(event.getAfter()));
+        }
+    }
+
+    /**
+     * Voegt een wijziging toe aan de wijzigingen van de huidige transactie. De eerste wijziging registreert een
+     * TransactionSynchronization die alles direct na de commit in één keer verwerkt, vóór de andere
+     * synchronisaties; na een rollback wordt niets verwerkt.
+     * Zonder transactie wordt de wijziging direct verwerkt.
+     * @param change De wijziging.
+     */
+    private void record(Consumer<PendingChanges> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingChanges changes = new PendingChanges();
+            change.accept(changes);
+            apply(changes);
+            return;
+        }
+        PendingChanges changes = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            PendingChanges newChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, newChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // De nieuwe kolommen moeten er staan voordat de ResponseCacheInvalidator (een
+                // @TransactionalEventListener, ook na de commit) de gear lijsten weggooit. Anders kan een lezer
+                // daartussen de oude kolommen opnieuw in de cache zetten, onder de al opgehoogde generatie.
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(newChanges);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(GearColumnStore.this);
+                }
+            });
+            changes = newChanges;
+        }
+        change.accept(changes);
+    }
+
+    private synchronized void apply(PendingChanges changes) {
+        columns = columns.apply(changes.gear, changes.brands);
+    }
+
+    /**
+     * De wijzigingen van één transactie. Per Gear id telt alleen de laatste toestand.
+     */
+    private static class PendingChanges {
+        private final Map<Long, GearSnapshot> gear = new HashMap<>();
+        private final List<ManufacturerSnapshot> brands = new ArrayList<>();
+    }
+}
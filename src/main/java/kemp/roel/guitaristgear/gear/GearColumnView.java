@@ -0,0 +1,77 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Het resultaat van een filter op de GearColumnStore: de kolommen en de passende rijnummers. Wordt door Jackson
+ * als een JSON array van Gear objecten geschreven, direct vanuit de kolommen.
+ */
+
+public class GearColumnView implements JsonSerializable {
+    private final GearColumns columns;
+    private final int[] rows;
+
+    /**
+     * Constructor voor een GearColumnView object.
+     * @param columns De kolommen waarop gefilterd is.
+     * @param rows De rijnummers die bij de filters passen.
+     */
+    GearColumnView(GearColumns columns, int[] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Maakt een view van de rijen van GearRepository.findColumnsFiltered, in de volgorde van de query. Zo kan een
+     * query op de database als JSON array van Gear objecten geschreven worden zonder entities te laden.
+     * @param rows Per Gear object id, naam, type, gewicht en de velden van het merk.
+     * @return De view over alle rijen.
+     */
+    static GearColumnView of(List<Object[]> rows) {
+        Map<Long, ManufacturerSnapshot> brands = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[4] != null) {
+                brands.computeIfAbsent((Long) row[4], id -> new ManufacturerSnapshot(id, (String) row[5],
+                        (String) row[6], (String) row[7], (Integer) row[8]));
+            }
+        }
+        int[] all = new int[rows.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return new GearColumnView(GearColumns.build(rows, List.copyOf(brands.values())), all);
+    }
+
+    /**
+     * Geeft het aantal Gear objecten in het resultaat terug.
+     * @return Het aantal passende rijen.
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartArray();
+        for (int row : rows) {
+            columns.writeRow(row, generator);
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(generator, serializers);
+    }
+}
@@ -0,0 +1,281 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een onveranderlijke, kolomsgewijze kopie van de gear catalogus. Iedere rij is een index in de arrays, gesorteerd
+ * op id. Type en merk worden als code opgeslagen, een index in hun woordenboek; -1 betekent geen type of merk.
+ * Wijzigingen maken een nieuwe kopie (copy-on-write), zodat lezers nooit een half bijgewerkte catalogus zien.
+ */
+
+final class GearColumns {
+    static final GearColumns EMPTY = new GearColumns(new long[0], new String[0], new int[0], new int[0], new int[0],
+            new String[0], new ManufacturerSnapshot[0]);
+
+    private final long[] ids;
+    private final String[] names;
+    private final int[] weights;
+    private final int[] typeCodes;
+    private final int[] brandCodes;
+    private final String[] types;
+    private final ManufacturerSnapshot[] brands;
+
+    private GearColumns(long[] ids, String[] names, int[] weights, int[] typeCodes, int[] brandCodes,
+                        String[] types, ManufacturerSnapshot[] brands) {
+        this.ids = ids;
+        this.names = names;
+        this.weights = weights;
+        this.typeCodes = typeCodes;
+        this.brandCodes = brandCodes;
+        this.types = types;
+        this.brands = brands;
+    }
+
+    /**
+     * Bouwt de kolommen op uit de rijen van GearRepository.findAllColumns.
+     * @param gearRows Per Gear object id, naam, type, gewicht en merk id, gesorteerd op id. Alleen een view die
+     *                 nooit gewijzigd of gefilterd wordt mag een andere volgorde hebben (zie GearColumnView.of).
+     * @param brands Alle merken.
+     * @return De nieuwe kolommen.
+     */
+    static GearColumns build(List<Object[]> gearRows, List<ManufacturerSnapshot> brands) {
+        Dictionary dictionary = new Dictionary(new String[0], brands.toArray(new ManufacturerSnapshot[0]));
+        int n = gearRows.size();
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        int[] weights = new int[n];
+        int[] typeCodes = new int[n];
+        int[] brandCodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            Object[] row = gearRows.get(i);
+            ids[i] = (Long) row[0];
+            names[i] = (String) row[1];
+            typeCodes[i] = dictionary.typeCode((String) row[2]);
+            weights[i] = (Integer) row[3];
+            brandCodes[i] = dictionary.brandCode((Long) row[4]);
+        }
+        return new GearColumns(ids, names, weights, typeCodes, brandCodes, dictionary.types(), dictionary.brands());
+    }
+
+    /**
+     * Maakt een nieuwe kopie met de wijzigingen van één transactie erin verwerkt.
+     * @param gearChanges De nieuwe toestand per gewijzigd Gear id; null voor een verwijderd Gear object.
+     * @param brandChanges De nieuwe toestand van gewijzigde of nieuwe merken.
+     * @return De nieuwe kolommen.
+     */
+    GearColumns apply(Map<Long, GearSnapshot> gearChanges, List<ManufacturerSnapshot> brandChanges) {
+        Dictionary dictionary = new Dictionary(types, brands);
+        for (ManufacturerSnapshot brand : brandChanges) {
+            dictionary.putBrand(brand);
+        }
+        if (gearChanges.isEmpty()) {
+            return new GearColumns(ids, names, weights, typeCodes, brandCodes, dictionary.types(), dictionary.brands());
+        }
+
+        // nieuwe id's komen bijna altijd achteraan, maar worden voor de zekerheid op volgorde tussengevoegd
+        TreeMap<Long, GearSnapshot> inserts = new TreeMap<>();
+        for (Map.Entry<Long, GearSnapshot> change : gearChanges.entrySet()) {
+            if (change.getValue() != null && Arrays.binarySearch(ids, change.getKey()) < 0) {
+                inserts.put(change.getKey(), change.getValue());
+            }
+        }
+        int capacity = ids.length + inserts.size();
+        long[] newIds = new long[capacity];
+        String[] newNames = new String[capacity];
+        int[] newWeights = new int[capacity];
+        int[] newTypeCodes = new int[capacity];
+        int[] newBrandCodes = new int[capacity];
+
+        int row = 0;
+        int old = 0;
+        for (GearSnapshot insert : inserts.values()) {
+            while (old < ids.length && ids[old] < insert.getId()) {
+                row = copyOrReplace(old++, row, gearChanges, dictionary,
+                        newIds, newNames, newWeights, newTypeCodes, newBrandCodes);
+            }
+            row = write(insert, row, dictionary, newIds, newNames, newWeights, newTypeCodes, newBrandCodes);
+        }
+        while (old < ids.length) {
+            row = copyOrReplace(old++, row, gearChanges, dictionary,
+                    newIds, newNames, newWeights, newTypeCodes, newBrandCodes);
+        }
+        return new GearColumns(Arrays.copyOf(newIds, row), Arrays.copyOf(newNames, row), Arrays.copyOf(newWeights, row),
+                Arrays.copyOf(newTypeCodes, row), Arrays.copyOf(newBrandCodes, row),
+                dictionary.types(), dictionary.brands());
+    }
+
+    /**
+     * Zoekt de rijen die bij de filters passen, met dezelfde normalisatie als GearService.getAllGear.
+     * @param brandName De genormaliseerde merknaam. Mag null zijn.
+     * @param type Het genormaliseerde type. Mag null zijn.
+     * @return De rijnummers die bij de filters passen.
+     */
+    int[] select(String brandName, String type) {
+        boolean[] typeMatches = new boolean[types.length];
+        for (int code = 0; code < types.length; code++) {
+            typeMatches[code] = type == null || type.equals(lower(types[code]));
+        }
+        boolean[] brandMatches = new boolean[brands.length];
+        for (int code = 0; code < brands.length; code++) {
+            brandMatches[code] = brandName == null || brandName.equals(lower(brands[code].getName()));
+        }
+
+        int[] rows = new int[ids.length];
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int typeCode = typeCodes[i];
+            int brandCode = brandCodes[i];
+            boolean typeMatch = typeCode < 0 ? type == null : typeMatches[typeCode];
+            boolean brandMatch = brandCode < 0 ? brandName == null : brandMatches[brandCode];
+            if (typeMatch && brandMatch) {
+                rows[count++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Schrijft een rij als JSON, in hetzelfde formaat als een Gear object met zijn merk.
+     * @param row Het rijnummer.
+     * @param generator De generator waarnaar geschreven wordt.
+     * @throws IOException Als er niet geschreven kan worden.
+     */
+    void writeRow(int row, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", ids[row]);
+        generator.writeStringField("name", names[row]);
+        generator.writeStringField("type", typeCodes[row] < 0 ? null : types[typeCodes[row]]);
+        generator.writeNumberField("weightInGrams", weights[row]);
+        if (brandCodes[row] < 0) {
+            generator.writeNullField("brand");
+        } else {
+            ManufacturerSnapshot brand = brands[brandCodes[row]];
+            generator.writeObjectFieldStart("brand");
+            generator.writeNumberField("id", brand.getId());
+            generator.writeStringField("name", brand.getName());
+            generator.writeStringField("mainProductType", brand.getMainProductType());
+            generator.writeStringField("placeFounded", brand.getPlaceFounded());
+            generator.writeNumberField("yearFounded", brand.getYearFounded());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Geeft het aantal rijen terug.
+     * @return Het aantal Gear objecten in de kolommen.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Schat het geheugengebruik van de kolommen: de arrays zelf en de Strings met namen (compacte Latin-1 Strings
+     * van 40 bytes plus één byte per teken). Het woordenboek van merken en types wordt gedeeld en is verwaarloosbaar.
+     * @return Het geschatte aantal bytes.
+     */
+    long estimatedBytes() {
+        long bytes = 5L * 16 + ids.length * (8L + 4 + 4 + 4 + 4);
+        for (String name : names) {
+            bytes += name == null ? 0 : 40 + name.length();
+        }
+        return bytes;
+    }
+
+    private int copyOrReplace(int old, int row, Map<Long, GearSnapshot> gearChanges, Dictionary dictionary,
+                              long[] newIds, String[] newNames, int[] newWeights, int[] newTypeCodes, int[] newBrandCodes) {
+        if (gearChanges.containsKey(ids[old])) {
+            GearSnapshot changed = gearChanges.get(ids[old]);
+            return changed == null ? row
+                    : write(changed, row, dictionary, newIds, newNames, newWeights, newTypeCodes, newBrandCodes);
+        }
+        newIds[row] = ids[old];
+        newNames[row] = names[old];
+        newWeights[row] = weights[old];
+        newTypeCodes[row] = typeCodes[old];
+        newBrandCodes[row] = brandCodes[old];
+        return row + 1;
+    }
+
+    private static int write(GearSnapshot gear, int row, Dictionary dictionary, long[] newIds, String[] newNames,
+                             int[] newWeights, int[] newTypeCodes, int[] newBrandCodes) {
+        newIds[row] = gear.getId();
+        newNames[row] = gear.getName();
+        newWeights[row] = gear.getWeightInGrams();
+        newTypeCodes[row] = dictionary.typeCode(gear.getType());
+        newBrandCodes[row] = dictionary.brandCode(gear.getBrandId());
+        return row + 1;
+    }
+
+    private static String lower(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * De woordenboeken van types en merken tijdens het opbouwen van nieuwe kolommen. Bestaande codes blijven gelijk,
+     * nieuwe waarden komen achteraan.
+     */
+    private static class Dictionary {
+        private final List<String> types;
+        private final Map<String, Integer> typeCodes = new HashMap<>();
+        private final List<ManufacturerSnapshot> brands;
+        private final Map<Long, Integer> brandCodes = new HashMap<>();
+
+        private Dictionary(String[] types, ManufacturerSnapshot[] brands) {
+            this.types = new ArrayList<>(Arrays.asList(types));
+            for (int code = 0; code < types.length; code++) {
+                typeCodes.put(types[code], code);
+            }
+            this.brands = new ArrayList<>(Arrays.asList(brands));
+            for (int code = 0; code < brands.length; code++) {
+                brandCodes.put(brands[code].getId(), code);
+            }
+        }
+
+        private int typeCode(String type) {
+            if (type == null) {
+                return -1;
+            }
+            return typeCodes.computeIfAbsent(type, t -> {
+                types.add(t);
+                return types.size() - 1;
+            });
+        }
+
+        private int brandCode(Long brandId) {
+            if (brandId == null) {
+                return -1;
+            }
+            return brandCodes.getOrDefault(brandId, -1);
+        }
+
+        private void putBrand(ManufacturerSnapshot brand) {
+            Integer code = brandCodes.get(brand.getId());
+            if (code == null) {
+                brandCodes.put(brand.getId(), brands.size());
+                brands.add(brand);
+            } else {
+                brands.set(code, brand);
+            }
+        }
+
+        private String[] types() {
+            return types.toArray(new String[0]);
+        }
+
+        private ManufacturerSnapshot[] brands() {
+            return brands.toArray(new ManufacturerSnapshot[0]);
+        }
+    }
+}
@@ -1,28 +1,58 @@
 package kemp.roel.guitaristgear.gear;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import kemp.roel.guitaristgear.bulk.BulkImportResult;
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.cache.ResponseCache;
+import kemp.roel.guitaristgear.etag.ETags;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Auteur: Roel Kemp (500781)
  */
 
 @RestController
+@Lazy(false)
 @RequestMapping("/gg/gear")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class GearController {
 
     private final GearService gearService;
+    private final GearExportService gearExportService;
+    private final ResponseCache responseCache;
+    private final GearColumnStore gearColumnStore;
 
     /**
      * Constructor voor GearController.
      * @param gearService Het GearService object waar de controller zijn informatie uit haalt.
+     * @param gearExportService Het GearExportService object dat de volledige catalogus exporteert.
+     * @param responseCache De cache met geserialiseerde lijsten.
+     * @param gearColumnStore De kolomsgewijze leesmachine, die lijsten zonder Hibernate beantwoordt als hij aan staat.
      */
     @Autowired
-    public GearController(GearService gearService) {
+    public GearController(GearService gearService, GearExportService gearExportService, ResponseCache responseCache,
+                          GearColumnStore gearColumnStore) {
         this.gearService = gearService;
+        this.gearExportService = gearExportService;
+        this.responseCache = responseCache;
+        this.gearColumnStore = gearColumnStore;
     }
 
     // GET mappings
@@ -34,22 +64,125 @@ public class GearController {
      *                  object gefilterd kunnen worden. Mag null zijn.
      * @param type De String waarmee Gear objecten op een bepaald type
      *             gefilterd kunnen worden. Mag null zijn.
-     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     * @param minWeight Het minimale gewicht in grammen, inclusief. Mag null zijn.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief. Mag null zijn.
+     * @param sort "id", "weight" of "weight,desc". Mag null zijn.
+     * @param accept De "Accept" header. Bepaalt of de lijst als JSON, CBOR of Smile verstuurd wordt. Mag null zijn.
+     * @param acceptEncoding De "Accept-Encoding" header. Als de client gzip accepteert, wordt de vooraf
+     *                       gecomprimeerde body uit de cache verstuurd. Mag null zijn.
+     * @return Een lijst van Gear objecten als JSON, CBOR of Smile. Kan leeg zijn.
      */
     @GetMapping
-    public List<Gear> getAllGear(@RequestParam(required = false) String brandName, @RequestParam(required = false) String type) {
-        return gearService.getAllGear(brandName, type);
+    public ResponseEntity<byte[]> getAllGear(@RequestParam(required = false) String brandName,
+                                             @RequestParam(required = false) String type,
+                                             @RequestParam(required = false) Integer minWeight,
+                                             @RequestParam(required = false) Integer maxWeight,
+                                             @RequestParam(required = false) String sort,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        WireFormat format = WireFormat.negotiate(accept);
+        CacheKey key = CacheKey.of(CacheKey.GEAR, format.getName()).with("brandName", brandName).with("type", type)
+                .with("minWeight", minWeight == null ? null : minWeight.toString())
+                .with("maxWeight", maxWeight == null ? null : maxWeight.toString())
+                .with("sort", sort);
+        if (minWeight != null || maxWeight != null || sort != null) {
+            return responseCache.get(key,
+                    () -> gearService.getGearByWeight(brandName, type, minWeight, maxWeight, sort))
+                    .toResponseEntity(acceptEncoding);
+        }
+        return responseCache.get(key, () -> gearColumnStore.isEnabled()
+                ? gearColumnStore.select(brandName, type)
+                : gearService.getAllGear(brandName, type)).toResponseEntity(acceptEncoding);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/gear/weight-histogram".
+     * Geeft het aantal Gear objecten per type en gewichtsklasse terug, geteld in de database.
+     * @param type Filtert op type. Mag null zijn voor alle typen.
+     * @param minWeight Het minimale gewicht in grammen, inclusief. Mag null zijn.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief. Mag null zijn.
+     * @param bucketSize De breedte van een gewichtsklasse in grammen. Standaard 500.
+     * @return De gevulde gewichtsklassen, gesorteerd op type en gewicht.
+     */
+    @GetMapping("/weight-histogram")
+    public List<WeightBucket> getWeightHistogram(@RequestParam(required = false) String type,
+                                                 @RequestParam(required = false) Integer minWeight,
+                                                 @RequestParam(required = false) Integer maxWeight,
+                                                 @RequestParam(defaultValue = "500") int bucketSize) {
+        return gearService.getWeightHistogram(type, minWeight, maxWeight, bucketSize);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/gear/columnar/stats".
+     * Geeft het aantal rijen en het geschatte geheugengebruik van de kolomsgewijze leesmachine terug.
+     * @return Of de leesmachine aan staat, het aantal rijen, het geschatte aantal bytes en bytes per rij.
+     */
+    @GetMapping("/columnar/stats")
+    public Map<String, Object> getColumnarStats() {
+        return gearColumnStore.getStats();
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/gear/page".
+     * Geeft een pagina Gear objecten terug, met een token waarmee de volgende pagina opgevraagd kan worden.
+     * @param sort De sorteersleutel: "id" (standaard) of "name". Bij "name" worden objecten
+     *             zonder naam niet teruggegeven; die zijn alleen met "id" op te vragen.
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het "nextPageToken" uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Gear objecten.
+     */
+    @GetMapping("/page")
+    public CursorPage<Gear> getGearPage(@RequestParam(defaultValue = "id") String sort,
+                                        @RequestParam(required = false) Integer pageSize,
+                                        @RequestParam(required = false) String pageToken) {
+        return gearService.getGearPage(sort, pageSize, pageToken);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/gear/export".
+     * Streamt de volledige catalogus, inclusief merk, als NDJSON, CBOR sequence, Smile stream of CSV. De eerste
+     * rijen worden verstuurd zodra ze uit de database komen.
+     * @param format Het formaat van de export: "ndjson" (standaard), "cbor", "smile" of "csv".
+     * @return De response waarvan de body tijdens het schrijven gevuld wordt.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGear(@RequestParam(defaultValue = "ndjson") String format) {
+        switch (format) {
+            case "ndjson":
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                        .body(gearExportService::exportNdjson);
+            case "cbor":
+            case "smile":
+                WireFormat wireFormat = WireFormat.forName(format);
+                return ResponseEntity.ok()
+                        .contentType(wireFormat.getSequenceMediaType())
+                        .body(out -> gearExportService.exportSequence(out, wireFormat));
+            case "csv":
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"gear.csv\"")
+                        .body(gearExportService::exportCsv);
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format \"" + format + "\"");
+        }
     }
 
     /**
      * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/gear/{id}".
      * Geeft een Gear object terug.
+     * Als de "If-None-Match" header overeenkomt met de huidige ETag, wordt 304 teruggegeven zonder het object
+     * te laden.
      * @param id Het id van het opgevraagde Gear object
+     * @param request Het request, nodig voor de "If-None-Match" header.
+     * @param accept De "Accept" header, die bepaalt in welk formaat het object en dus welke ETag verstuurd wordt.
      * @return Het Gear object met het opgevraagde id.
      */
     @GetMapping("/{id}")
-    public Gear getGearById(@PathVariable Long id) {
-        return gearService.getGearById(id);
+    public ResponseEntity<Gear> getGearById(@PathVariable Long id, WebRequest request,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return ETags.conditionalGet(request, accept, gearService.getGearETag(id),
+                () -> gearService.getGearById(id));
     }
 
     /**
@@ -76,6 +209,33 @@ public class GearController {
         gearService.addGear(gear);
     }
 
+    /**
+     * De methode die aangeroepen wordt als er een POST request wordt gestuurd naar "/gg/gear/bulk".
+     * Importeert een JSON array, een NDJSON stream, een CBOR sequence of een Smile stream met Gear objecten in
+     * blokken. Foute rijen stoppen de import niet.
+     * @param body De request body met de Gear objecten.
+     * @param contentType De "Content-Type" header, waaruit het formaat van de body volgt.
+     * @return Het aantal geïmporteerde en foute rijen, de doorvoer en per foute rij de reden.
+     * @throws IOException Als de request body niet gelezen kan worden.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson",
+            MediaType.APPLICATION_CBOR_VALUE, WireFormat.CBOR_SEQ_VALUE, WireFormat.SMILE_VALUE})
+    public BulkImportResult importGear(InputStream body,
+                                       @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) throws IOException {
+        return gearService.importGear(body, WireFormat.fromContentType(contentType));
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een POST request wordt gestuurd naar "/gg/gear/guitarist/{id}/bulk".
+     * Zet een lijst Gear objecten in één keer op de "gear list" van een Guitarist object.
+     * @param id Het id van het Guitarist object.
+     * @param gearIds De id's van de toe te voegen Gear objecten, bijv. [1, 2, 3].
+     */
+    @PostMapping("/guitarist/{id}/bulk")
+    public void attachGearToGuitarist(@PathVariable Long id, @RequestBody List<Long> gearIds) {
+        gearService.attachGearToGuitarist(id, gearIds);
+    }
+
     // PUT mappings
 
     /**
@@ -83,10 +243,15 @@ public class GearController {
      * Overschijft het Gear object in de database met het meegegeven id, met een ander Gear object.
      * @param id Het id van het te overschrijven Gear object in de database.
      * @param gear Het nieuwe Gear object.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets overschreven. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
      */
     @PutMapping("/{id}")
-    public void updateGear(@PathVariable Long id, @RequestBody Gear gear) {
-        gearService.updateGear(id, gear);
+    public ResponseEntity<Void> updateGear(@PathVariable Long id, @RequestBody Gear gear,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        gearService.updateGear(id, gear, ifMatch);
+        return ResponseEntity.ok().eTag(gearService.getGearETag(id)).build();
     }
 
     /**
@@ -113,6 +278,46 @@ public class GearController {
         gearService.addGearToManufacturer(id, gear);
     }
 
+    /**
+     * De methode die aangeroepen wordt als er een PUT request wordt gestuurd naar "/gg/gear/guitarist/{id}/bulk".
+     * Vervangt de hele "gear list" van een Guitarist object.
+     * @param id Het id van het Guitarist object.
+     * @param gearIds De id's van alle Gear objecten die op de "gear list" moeten staan, bijv. [1, 2, 3].
+     */
+    @PutMapping("/guitarist/{id}/bulk")
+    public void replaceGearList(@PathVariable Long id, @RequestBody List<Long> gearIds) {
+        gearService.replaceGearList(id, gearIds);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een PUT request wordt gestuurd naar "/gg/gear/manufacturer/{id}/bulk".
+     * Associeert een lijst Gear objecten in één keer met een Manufacturer object.
+     * @param id Het id van het Manufacturer object.
+     * @param gearIds De id's van de Gear objecten, bijv. [1, 2, 3].
+     */
+    @PutMapping("/manufacturer/{id}/bulk")
+    public void assignGearToManufacturer(@PathVariable Long id, @RequestBody List<Long> gearIds) {
+        gearService.assignGearToManufacturer(id, gearIds);
+    }
+
+    // PATCH mappings
+
+    /**
+     * De methode die aangeroepen wordt als er een PATCH request wordt gestuurd naar "/gg/gear/{id}".
+     * Wijzigt alleen de velden van het Gear object die in de JSON Merge Patch (RFC 7396) staan.
+     * @param id Het id van het te wijzigen Gear object.
+     * @param patch De velden die veranderen. Een veld met null wordt leeg gemaakt.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets gewijzigd. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchGear(@PathVariable Long id, @RequestBody JsonNode patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        gearService.patchGear(id, patch, ifMatch);
+        return ResponseEntity.ok().eTag(gearService.getGearETag(id)).build();
+    }
+
     // DELETE mappings
 
     /**
@@ -136,4 +341,15 @@ public class GearController {
     public void removeGearFromGuitarist(@PathVariable Long id, @RequestBody Gear gear) {
         gearService.removeGearFromGearList(id, gear);
     }
+
+    /**
+     * De methode die aangeroepen wordt als er een DELETE request wordt gestuurd naar "/gg/gear/guitarist/{id}/bulk".
+     * Haalt een lijst Gear objecten in één keer van de "gear list" van een Guitarist object.
+     * @param id Het id van het Guitarist object.
+     * @param gearIds De id's van de Gear objecten die van de "gear list" gehaald moeten worden, bijv. [1, 2, 3].
+     */
+    @DeleteMapping("/guitarist/{id}/bulk")
+    public void detachGearFromGuitarist(@PathVariable Long id, @RequestBody List<Long> gearIds) {
+        gearService.detachGearFromGuitarist(id, gearIds);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
+import kemp.roel.guitaristgear.wireformat.WireFormats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Exporteert de volledige gear catalogus als NDJSON, CBOR sequence, Smile stream of CSV. De rijen worden uit een
+ * database cursor gelezen en direct naar de response geschreven, zodat de catalogus nooit in zijn geheel in het
+ * geheugen staat.
+ */
+
+@Service
+public class GearExportService {
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final GearRepository gearRepository;
+    private final WireFormats wireFormats;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructor voor GearExportService.
+     * @param gearRepository Nodig om alle Gear objecten als stream op te halen.
+     * @param wireFormats Nodig om Gear objecten naar JSON, CBOR of Smile om te zetten, op dezelfde manier als de
+     *                    REST endpoints.
+     */
+    @Autowired
+    public GearExportService(GearRepository gearRepository, WireFormats wireFormats) {
+        this.gearRepository = gearRepository;
+        this.wireFormats = wireFormats;
+    }
+
+    /**
+     * Schrijft alle Gear objecten als NDJSON (één JSON object per regel) naar de meegegeven stream.
+     * @param out De stream waar naartoe geschreven wordt, meestal de body van de response.
+     * @throws IOException Als er niet naar de stream geschreven kan worden.
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream out) throws IOException {
+        exportSequence(out, WireFormat.JSON);
+    }
+
+    /**
+     * Schrijft alle Gear objecten als losse waarden achter elkaar naar de meegegeven stream: NDJSON voor JSON,
+     * een CBOR sequence (RFC 8742) voor CBOR en een Smile stream met één header voor Smile. Alle drie kunnen
+     * zonder aanpassingen weer via POST /gg/gear/bulk geïmporteerd worden.
+     * @param out De stream waar naartoe geschreven wordt, meestal de body van de response.
+     * @param format Het formaat van de waarden.
+     * @throws IOException Als er niet naar de stream geschreven kan worden.
+     */
+    @Transactional(readOnly = true)
+    public void exportSequence(OutputStream out, WireFormat format) throws IOException {
+        ObjectMapper mapper = wireFormats.mapper(format);
+        ObjectWriter writer = mapper.writerFor(Gear.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = mapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+        // binaire formaten hebben geen scheidingsteken nodig en ondersteunen writeRaw niet
+        boolean newlines = format == WireFormat.JSON;
+
+        try (Stream<Gear> allGear = gearRepository.streamAllWithBrand()) {
+            Iterator<Gear> iterator = allGear.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                Gear gear = iterator.next();
+                writer.writeValue(generator, gear);
+                if (newlines) {
+                    generator.writeRaw('\n');
+                }
+                entityManager.detach(gear);
+
+                if (++rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.flush();
+    }
+
+    /**
+     * Schrijft alle Gear objecten als CSV, met een kopregel, naar de meegegeven stream.
+     * @param out De stream waar naartoe geschreven wordt, meestal de body van de response.
+     * @throws IOException Als er niet naar de stream geschreven kan worden.
+     */
+    @Transactional(readOnly = true)
+    public void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("id,name,type,weightInGrams,brandId,brandName\n");
+        writer.flush();
+
+        try (Stream<Gear> allGear = gearRepository.streamAllWithBrand()) {
+            Iterator<Gear> iterator = allGear.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                Gear gear = iterator.next();
+                Manufacturer brand = gear.getBrand();
+                writer.write(String.valueOf(gear.getId()));
+                writer.write(',');
+                writer.write(csvField(gear.getName()));
+                writer.write(',');
+                writer.write(csvField(gear.getType()));
+                writer.write(',');
+                writer.write(String.valueOf(gear.getWeightInGrams()));
+                writer.write(',');
+                writer.write(brand == null ? "" : String.valueOf(brand.getId()));
+                writer.write(',');
+                writer.write(brand == null ? "" : csvField(brand.getName()));
+                writer.write('\n');
+                entityManager.detach(gear);
+
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Zet een tekstveld om naar een CSV veld. Velden met een komma, aanhalingsteken of regeleinde worden tussen
+     * aanhalingstekens gezet (RFC 4180).
+     * @param value De waarde van het veld. Mag null zijn.
+     * @return Het CSV veld.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
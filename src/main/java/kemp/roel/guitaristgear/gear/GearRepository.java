@@ -1,16 +1,30 @@
 package kemp.roel.guitaristgear.gear;
 
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Auteur: Roel Kemp (500781)
  */
 
 @Repository
-public interface GearRepository extends JpaRepository<Gear, Long> {
+public interface GearRepository extends JpaRepository<Gear, Long>, GearRepositoryCustom {
 
     /**
      * Haalt een Gear object uit de database op basis van id.
@@ -20,15 +34,134 @@ public interface GearRepository extends JpaRepository<Gear, Long> {
     Gear getGearById(Long id);
 
     /**
-     * Haalt een lijst met alle Gear objecten uit de database.
+     * Haalt een lijst met alle Gear objecten uit de database. Het merk wordt in dezelfde query opgehaald.
      * @return Een lijst met alle Gear objecten. Kan leeg zijn.
      */
+    @Query("select g from Gear g left join fetch g.brand")
     List<Gear> findAll();
 
     /**
      *  Haalt een lijst met Gear objecten uit de database waarvan de String "type" overeenkomt met een meegegeven String.
+     * Het resultaat staat in de query cache.
      * @param type De String waar op gefilterd moet worden.
      * @return Een lijst van Gear objecten. Kan leeg zijn.
      */
+    @EntityGraph(attributePaths = "brand")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Gear> findGearByType(String type);
-}
\ No newline at end of file
+
+    /**
+     * Haalt een lijst met Gear objecten uit de database waarvan de merknaam en het type overeenkomen.
+     * Beide waarden moeten al genormaliseerd zijn (kleine letters), zodat de indexen gebruikt worden.
+     * @param brandName De genormaliseerde merknaam waar op gefilterd moet worden.
+     * @param type Het genormaliseerde type waar op gefilterd moet worden.
+     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     */
+    @Query("select g from Gear g join fetch g.brand b " +
+            "where b.nameNormalized = :brandName and g.typeNormalized = :type")
+    List<Gear> findGearByBrandNameAndType(@Param("brandName") String brandName, @Param("type") String type);
+
+    /**
+     * Haalt een lijst met Gear objecten uit de database waarvan de merknaam overeenkomt.
+     * @param brandName De genormaliseerde merknaam (kleine letters) waar op gefilterd moet worden.
+     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     */
+    @Query("select g from Gear g join fetch g.brand b where b.nameNormalized = :brandName")
+    List<Gear> findGearByBrandName(@Param("brandName") String brandName);
+
+    /**
+     * Haalt een lijst met Gear objecten uit de database waarvan het type overeenkomt.
+     * Dit is de query achter GET /gg/gear?type=..., dus ook deze staat in de query cache. Bij een hit worden de
+     * Gear objecten en merken op id uit de second-level cache gehaald.
+     * @param type Het genormaliseerde type (kleine letters) waar op gefilterd moet worden.
+     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select g from Gear g left join fetch g.brand where g.typeNormalized = :type")
+    List<Gear> findGearByNormalizedType(@Param("type") String type);
+
+    /**
+     * Haalt een pagina Gear objecten op, gesorteerd op id, die na het meegegeven id komen (keyset paginering).
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     */
+    @Query("select g from Gear g left join fetch g.brand where g.id > :afterId order by g.id")
+    List<Gear> findPageOrderById(@Param("afterId") Long afterId, Pageable limit);
+
+    /**
+     * Haalt een pagina Gear objecten op, gesorteerd op naam en daarna id, die na de meegegeven naam en id komen.
+     * Gear objecten zonder naam worden bij deze sortering overgeslagen. Het predicaat begint met "naam >= ...",
+     * zodat de database in de index op (name, id) direct naar de eerste rij kan springen; met alleen een OR
+     * tussen de twee voorwaarden leest H2 de hele index.
+     * @param afterName De naam van de laatste rij van de vorige pagina. Een lege String voor de eerste pagina.
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Gear objecten. Kan leeg zijn.
+     */
+    @Query("select g from Gear g left join fetch g.brand " +
+            "where g.name >= :afterName and (g.name > :afterName or g.id > :afterId) order by g.name, g.id")
+    List<Gear> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId,
+                                   Pageable limit);
+
+    /**
+     * Haalt alle Gear objecten met hun merk op als stream, die via een database cursor in blokken gelezen wordt.
+     * Moet binnen een transactie gebruikt en daarna gesloten worden.
+     * @return Een stream van alle Gear objecten.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select g from Gear g left join fetch g.brand")
+    Stream<Gear> streamAllWithBrand();
+
+    /**
+     * Haalt de versie van een Gear object en van zijn merk op, zonder het object zelf te laden.
+     * @param id Het id van het Gear object.
+     * @return Eén rij met de versie van het Gear object en die van het merk (0 zonder merk), of een lege lijst.
+     */
+    @Query("select g.version, coalesce(b.version, 0) from Gear g left join g.brand b where g.id = :id")
+    List<Object[]> findVersionsById(@Param("id") Long id);
+
+    /**
+     * Haalt alleen het id, de naam en het type van alle Gear objecten op, voor de zoekindex.
+     * @return Per Gear object een rij met id, naam en type.
+     */
+    @Query("select g.id, g.name, g.type from Gear g")
+    List<Object[]> findAllSearchFields();
+
+    /**
+     * Haalt de kolommen van alle Gear objecten op als losse waarden, gesorteerd op id, voor de GearColumnStore.
+     * @return Per Gear object een rij met id, naam, type, gewicht en het id van het merk (null zonder merk).
+     */
+    @Query("select g.id, g.name, g.type, g.weightInGrams, b.id from Gear g left join g.brand b order by g.id")
+    List<Object[]> findAllColumns();
+
+    /**
+     * Zoekt met één query uit welke van de meegegeven id's bij een Gear object horen.
+     * @param ids De te controleren id's. Mag niet leeg zijn.
+     * @return De id's die bestaan. Kan leeg zijn.
+     */
+    @Query("select g.id from Gear g where g.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Haalt Gear objecten met hun merk op basis van een lijst id's op, in één query.
+     * @param ids De id's van de op te halen Gear objecten. Mag niet leeg zijn.
+     * @return De gevonden Gear objecten. Kan leeg zijn.
+     */
+    @Query("select g from Gear g left join fetch g.brand where g.id in :ids")
+    List<Gear> findAllWithBrandByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Koppelt Gear objecten met één update aan een merk. Met "versioned" hoogt Hibernate ook de versie van iedere
+     * rij op, zodat de ETags veranderen.
+     * @param brand Het nieuwe merk.
+     * @param ids De id's van de Gear objecten. Mag niet leeg zijn.
+     * @return Het aantal gewijzigde rijen.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update versioned Gear g set g.brand = :brand where g.id in :ids")
+    int updateBrand(@Param("brand") Manufacturer brand, @Param("ids") Collection<Long> ids);
+}
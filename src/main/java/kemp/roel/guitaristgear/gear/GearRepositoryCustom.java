@@ -0,0 +1,36 @@
+package kemp.roel.guitaristgear.gear;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Queries op Gear waarvan de filters en sortering per request verschillen. Alleen de gebruikte filters komen in de
+ * query, zodat de database de passende index kan kiezen. Geïmplementeerd in GearRepositoryImpl.
+ */
+
+public interface GearRepositoryCustom {
+
+    /**
+     * Haalt Gear objecten met hun merk op als losse kolommen, zonder entities te laden. Alle filters mogen null zijn.
+     * @param brandName De genormaliseerde merknaam.
+     * @param type Het genormaliseerde type.
+     * @param minWeight Het minimale gewicht in grammen, inclusief.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief.
+     * @param byWeight true om op gewicht te sorteren, false om op id te sorteren.
+     * @param descending true om aflopend op gewicht te sorteren. Het id sorteert altijd oplopend.
+     * @return Per Gear object id, naam, type, gewicht en het id, de naam, het mainProductType, de placeFounded en
+     *         het yearFounded van het merk (null zonder merk).
+     */
+    List<Object[]> findColumnsFiltered(String brandName, String type, Integer minWeight, Integer maxWeight,
+                                       boolean byWeight, boolean descending);
+
+    /**
+     * Telt Gear objecten per genormaliseerd type en gewichtsklasse, in de database.
+     * @param type Het genormaliseerde type. Mag null zijn voor alle typen.
+     * @param minWeight Het minimale gewicht in grammen, inclusief. Mag null zijn.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief. Mag null zijn.
+     * @param bucketSize De breedte van een gewichtsklasse in grammen. Moet groter dan 0 zijn.
+     * @return De gevulde gewichtsklassen, gesorteerd op type en gewicht. Lege klassen worden weggelaten.
+     */
+    List<WeightBucket> findWeightHistogram(String type, Integer minWeight, Integer maxWeight, int bucketSize);
+}
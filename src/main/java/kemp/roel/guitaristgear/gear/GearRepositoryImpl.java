@@ -0,0 +1,94 @@
+package kemp.roel.guitaristgear.gear;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Bouwt de queries van GearRepositoryCustom op uit alleen de filters die meegegeven zijn. Een "(:x is null or ...)"
+ * constructie zou met één vaste query kunnen, maar dan gebruikt H2 de index op (type_normalized, weightInGrams)
+ * niet meer.
+ */
+
+class GearRepositoryImpl implements GearRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findColumnsFiltered(String brandName, String type, Integer minWeight, Integer maxWeight,
+                                              boolean byWeight, boolean descending) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (brandName != null) {
+            conditions.add("b.nameNormalized = :brandName");
+            parameters.put("brandName", brandName);
+        }
+        addWeightConditions("g.typeNormalized", "g.weightInGrams", type, minWeight, maxWeight, conditions, parameters);
+
+        StringBuilder jpql = new StringBuilder("select g.id, g.name, g.type, g.weightInGrams, b.id, b.name, " +
+                "b.mainProductType, b.placeFounded, b.yearFounded from Gear g left join g.brand b");
+        appendWhere(jpql, conditions);
+        jpql.append(byWeight ? (descending ? " order by g.weightInGrams desc, g.id" : " order by g.weightInGrams, g.id")
+                : " order by g.id");
+
+        Query query = entityManager.createQuery(jpql.toString());
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WeightBucket> findWeightHistogram(String type, Integer minWeight, Integer maxWeight, int bucketSize) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        addWeightConditions("type_normalized", "weight_in_grams", type, minWeight, maxWeight, conditions, parameters);
+
+        // De afgeronde ondergrens wordt in een subquery berekend, zodat erop gegroepeerd kan worden. Met floor en
+        // een deling als double valt een negatief gewicht in de klasse eronder (-1 in [-500, 0)); mod rondt naar
+        // nul af en zou het in [0, 500) tellen.
+        StringBuilder sql = new StringBuilder("select type_normalized, floor(weight_in_grams / cast(" + bucketSize +
+                " as double)) * " + bucketSize + " as bucket_start from gear");
+        appendWhere(sql, conditions);
+        sql.insert(0, "select type_normalized, bucket_start, count(*) from (")
+                .append(") group by type_normalized, bucket_start order by type_normalized, bucket_start");
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        parameters.forEach(query::setParameter);
+        List<WeightBucket> buckets = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            int from = ((Number) row[1]).intValue();
+            buckets.add(new WeightBucket((String) row[0], from, from + bucketSize, ((Number) row[2]).longValue()));
+        }
+        return buckets;
+    }
+
+    private static void addWeightConditions(String typeColumn, String weightColumn, String type, Integer minWeight,
+                                            Integer maxWeight, List<String> conditions,
+                                            Map<String, Object> parameters) {
+        if (type != null) {
+            conditions.add(typeColumn + " = :type");
+            parameters.put("type", type);
+        }
+        if (minWeight != null) {
+            conditions.add(weightColumn + " >= :minWeight");
+            parameters.put("minWeight", minWeight);
+        }
+        if (maxWeight != null) {
+            conditions.add(weightColumn + " <= :maxWeight");
+            parameters.put("maxWeight", maxWeight);
+        }
+    }
+
+    private static void appendWhere(StringBuilder query, List<String> conditions) {
+        if (!conditions.isEmpty()) {
+            query.append(" where ").append(String.join(" and ", conditions));
+        }
+    }
+}
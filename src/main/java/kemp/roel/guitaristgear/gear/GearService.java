@@ -1,16 +1,37 @@
 package kemp.roel.guitaristgear.gear;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kemp.roel.guitaristgear.bulk.BulkImportResult;
+import kemp.roel.guitaristgear.bulk.BulkImporter;
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.etag.ETags;
+import kemp.roel.guitaristgear.guitarist.GearListChangedEvent;
 import kemp.roel.guitaristgear.guitarist.Guitarist;
 import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
 import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.paging.PageToken;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Auteur: Roel Kemp (500781)
@@ -18,21 +39,35 @@ import java.util.Optional;
 
 @Service
 public class GearService {
+    private static final int MAX_BULK_IDS = 1000;
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "type", "weightInGrams", "brand");
+
     private final GuitaristRepository guitaristRepository;
     private final GearRepository gearRepository;
     private final ManufacturerRepository manufacturerRepository;
+    private final BulkImporter bulkImporter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor voor GearService. Deze service moet verschillende repositories kunnen benaderen.
      * @param guitaristRepository Nodig om een Gear object met een Guitarist object te kunnen associëren.
      * @param gearRepository Nodig om een of meer Gear objecten op te halen, toe te voegen, te bewerken of te verwijderen.
      * @param manufacturerRepository Nodig om een Gear object met een Manufacturer object te kunnen associëren.
+     * @param bulkImporter Nodig om grote hoeveelheden Gear objecten in één keer te importeren.
+     * @param eventPublisher Nodig om bij iedere wijziging van een Gear object een GearChangedEvent te publiceren.
+     * @param objectMapper Nodig om een merge patch op een Gear object toe te passen.
      */
     @Autowired
-    public GearService(GuitaristRepository guitaristRepository, GearRepository gearRepository, ManufacturerRepository manufacturerRepository) {
+    public GearService(GuitaristRepository guitaristRepository, GearRepository gearRepository,
+                       ManufacturerRepository manufacturerRepository, BulkImporter bulkImporter,
+                       ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
         this.guitaristRepository = guitaristRepository;
         this.gearRepository = gearRepository;
         this.manufacturerRepository = manufacturerRepository;
+        this.bulkImporter = bulkImporter;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -41,43 +76,108 @@ public class GearService {
      * @param type Filtert de lijst van alle Gear objecten op type. "type" mag null zijn.
      * @return Een lijst met Gear objecten. Kan leeg zijn.
      */
+    @Transactional(readOnly = true)
     public List<Gear> getAllGear(String brandName, String type) {
-        List<Gear> allGear = gearRepository.findAll();
         if (brandName != null && type != null) {
-            brandName = brandName.replaceAll("-"," ");
-            type = type.replaceAll("-", " ");
-
-            List<Gear> filteredByBrandNameAndType = new ArrayList<>();
-            for (Gear g : allGear) {
-                if (g.getBrand().getName().equalsIgnoreCase(brandName) && g.getType().equalsIgnoreCase(type)) {
-                    filteredByBrandNameAndType.add(g);
-                }
-            }
-            return filteredByBrandNameAndType;
+            return gearRepository.findGearByBrandNameAndType(CacheKey.normalize(brandName), CacheKey.normalize(type));
         }
         else if (brandName != null) {
-            brandName = brandName.replaceAll("-"," ");
-
-            List<Gear> filteredByBrandName = new ArrayList<>();
-            for (Gear g : allGear) {
-                if (g.getBrand().getName().equalsIgnoreCase(brandName)) {
-                    filteredByBrandName.add(g);
-                }
-            }
-            return filteredByBrandName;
+            return gearRepository.findGearByBrandName(CacheKey.normalize(brandName));
         }
         else if (type != null) {
-            type = type.replaceAll("-", " ");
+            return gearRepository.findGearByNormalizedType(CacheKey.normalize(type));
+        }
+        return gearRepository.findAll();
+    }
 
-            List<Gear> filteredByType = new ArrayList<>();
-            for (Gear g : allGear) {
-                if (g.getType().equalsIgnoreCase(type)) {
-                    filteredByType.add(g);
-                }
-            }
-            return filteredByType;
+    /**
+     * Geeft Gear objecten terug die op merknaam, type en gewicht gefilterd en eventueel op gewicht gesorteerd zijn.
+     * Filteren en sorteren gebeurt in de database en er worden geen entities geladen.
+     * @param brandName De merknaam uit de url. Mag null zijn.
+     * @param type Het type uit de url. Mag null zijn.
+     * @param minWeight Het minimale gewicht in grammen, inclusief. Mag null zijn.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief. Mag null zijn.
+     * @param sort "id", "weight" of "weight,desc". Mag null zijn; dan wordt op id gesorteerd.
+     * @return De Gear objecten, die als JSON array geschreven kunnen worden.
+     * @throws ResponseStatusException Met status 400 bij een onbekende sortering of als minWeight groter is dan
+     *                                 maxWeight.
+     */
+    @Transactional(readOnly = true)
+    public GearColumnView getGearByWeight(String brandName, String type, Integer minWeight, Integer maxWeight,
+                                          String sort) {
+        checkWeightRange(minWeight, maxWeight);
+        boolean byWeight;
+        boolean descending = false;
+        switch (sort == null ? "id" : sort) {
+            case "id":
+                byWeight = false;
+                break;
+            case "weight":
+                byWeight = true;
+                break;
+            case "weight,desc":
+                byWeight = true;
+                descending = true;
+                break;
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort gear on \"" + sort + "\"");
+        }
+        return GearColumnView.of(gearRepository.findColumnsFiltered(CacheKey.normalize(brandName),
+                CacheKey.normalize(type), minWeight, maxWeight, byWeight, descending));
+    }
+
+    /**
+     * Telt Gear objecten per type en gewichtsklasse. Het tellen gebeurt in de database.
+     * @param type Het type uit de url. Mag null zijn voor alle typen.
+     * @param minWeight Het minimale gewicht in grammen, inclusief. Mag null zijn.
+     * @param maxWeight Het maximale gewicht in grammen, inclusief. Mag null zijn.
+     * @param bucketSize De breedte van een gewichtsklasse in grammen.
+     * @return De gevulde gewichtsklassen per type, gesorteerd op type en gewicht.
+     * @throws ResponseStatusException Met status 400 als bucketSize niet groter dan 0 is of minWeight groter is dan
+     *                                 maxWeight.
+     */
+    @Transactional(readOnly = true)
+    public List<WeightBucket> getWeightHistogram(String type, Integer minWeight, Integer maxWeight, int bucketSize) {
+        if (bucketSize <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bucketSize must be greater than 0");
+        }
+        checkWeightRange(minWeight, maxWeight);
+        return gearRepository.findWeightHistogram(CacheKey.normalize(type), minWeight, maxWeight,
+                bucketSize);
+    }
+
+    private static void checkWeightRange(Integer minWeight, Integer maxWeight) {
+        if (minWeight != null && maxWeight != null && minWeight > maxWeight) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minWeight cannot be greater than maxWeight");
+        }
+    }
+
+    /**
+     * Geeft een pagina Gear objecten terug. De pagina's worden met keyset paginering opgehaald, zodat een diepe pagina
+     * net zo snel is als de eerste.
+     * @param sort De sorteersleutel: "id" of "name".
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het token uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Gear objecten en eventueel een token voor de volgende pagina.
+     * @throws ResponseStatusException Gooit HTTP code 400 bij een onbekende sortering of een ongeldig token.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Gear> getGearPage(String sort, Integer pageSize, String pageToken) {
+        int size = CursorPage.pageSize(pageSize);
+        PageToken token = PageToken.decode(pageToken, sort);
+        Long afterId = token == null ? Long.MIN_VALUE : token.getLastId();
+
+        switch (sort) {
+            case "id":
+                return CursorPage.of(gearRepository.findPageOrderById(afterId, CursorPage.limit(size)),
+                        size, sort, Gear::getId, Gear::getId);
+            case "name":
+                String afterName = token == null ? "" : token.getLastValue();
+                return CursorPage.of(gearRepository.findPageOrderByName(afterName, afterId, CursorPage.limit(size)),
+                        size, sort, Gear::getId, Gear::getName);
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort gear on \"" + sort + "\"");
         }
-        return allGear;
     }
 
     /**
@@ -85,10 +185,11 @@ public class GearService {
      * @param guitaristId Het id van het Guitarist object waarvan alle Gear objecten worden opgevraagd.
      * @return Een lijst met Gear objecten. Kan leeg zijn.
      */
+    @Transactional(readOnly = true)
     public List<Gear> getAllGearFromGuitarist(Long guitaristId) {
-        if (guitaristRepository.findById(guitaristId).isPresent()) {
-            Guitarist guitarist = guitaristRepository.findById(guitaristId).get();
-            return guitarist.getGearList();
+        Optional<Guitarist> guitarist = guitaristRepository.findWithGearListById(guitaristId);
+        if (guitarist.isPresent()) {
+            return guitarist.get().getGearList();
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + guitaristId + " not found");
         }
@@ -100,51 +201,167 @@ public class GearService {
      * @return Het opgevraagde Gear object.
      * @throws ResponseStatusException Gooit HTTP code 404 als het Gear object niet in de database aanwezig is.
      */
+    @Transactional(readOnly = true)
     public Gear getGearById(Long id){
         Optional<Gear> g = gearRepository.findById(id);
         return g.orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + id + " not found"));
     }
 
+    /**
+     * Geeft de ETag van een Gear object terug, op basis van zijn versie en die van zijn merk. Het object zelf wordt
+     * hiervoor niet geladen.
+     * @param id Het id van het Gear object.
+     * @return De sterke ETag van het Gear object.
+     * @throws ResponseStatusException Als er geen Gear object met het opgevraagde id in de database aanwezig is.
+     */
+    @Transactional(readOnly = true)
+    public String getGearETag(Long id) {
+        List<Object[]> versions = gearRepository.findVersionsById(id);
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + id + " not found");
+        }
+        return ETags.of(id, versions.get(0));
+    }
+
     /**
      * Voegt een Gear object toe aan de database.
      * @param gear Het Gear object dat toegevoegd moet worden aan de database.
      */
+    @Transactional
     public void addGear(Gear gear) {
-        gearRepository.save(gear);
+        GearSnapshot before = gear.getId() == null ? null
+                : gearRepository.findById(gear.getId()).map(GearSnapshot::of).orElse(null);
+        Gear saved = gearRepository.save(gear);
+        eventPublisher.publishEvent(new GearChangedEvent(before, GearSnapshot.of(saved)));
+    }
+
+    /**
+     * Importeert een array of reeks Gear objecten in JSON, CBOR of Smile. Meegestuurde id's worden genegeerd; het merk
+     * wordt alleen op id gekoppeld. Foute rijen worden overgeslagen en in het resultaat gemeld.
+     * @param in De stream met Gear objecten.
+     * @param format Het formaat van de stream.
+     * @return Het resultaat van de import.
+     * @throws IOException Als de stream niet gelezen kan worden.
+     */
+    public BulkImportResult importGear(InputStream in, WireFormat format) throws IOException {
+        Set<Long> manufacturerIds = new HashSet<>(manufacturerRepository.findAllIds());
+        Function<Gear, String> validator = gear -> validateImportedGear(gear, manufacturerIds);
+        return bulkImporter.importAll(in, format, Gear.class, validator, gear -> {
+            gear.setId(null);
+            if (gear.getBrand() != null) {
+                gear.setBrand(manufacturerRepository.getById(gear.getBrand().getId()));
+            }
+            Gear saved = gearRepository.save(gear);
+            eventPublisher.publishEvent(new GearChangedEvent(null, GearSnapshot.of(saved)));
+        });
+    }
+
+    /**
+     * Controleert een Gear object uit een bulk import.
+     * @param gear Het te controleren Gear object.
+     * @param manufacturerIds De id's van alle bestaande Manufacturer objecten.
+     * @return Een foutmelding, of null als het Gear object geïmporteerd kan worden.
+     */
+    private static String validateImportedGear(Gear gear, Set<Long> manufacturerIds) {
+        if (gear.getName() == null || gear.getName().isBlank()) {
+            return "Gear must have a name";
+        }
+        if (gear.getType() == null || gear.getType().matches(".*\\d.*")) {
+            return "Gear must have a type without digits";
+        }
+        if (gear.getBrand() != null && !manufacturerIds.contains(gear.getBrand().getId())) {
+            return "Manufacturer with id " + gear.getBrand().getId() + " not found";
+        }
+        return null;
     }
 
     /**
      * Overschrijft een Gear object op basis van id met een ander Gear object.
      * @param id Het id van het te overschijven gear object.
      * @param gear Het nieuwe Gear object waarmee het oude Gear object overschreven moet worden.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 412 als de "If-Match" header niet overeenkomt met de huidige ETag.
      */
-    public void updateGear(Long id, Gear gear) {
-        if(gearRepository.findById(id).isPresent()) {
+    @Transactional
+    public void updateGear(Long id, Gear gear, String ifMatch) {
+        Optional<Gear> existing = gearRepository.findById(id);
+        if(existing.isPresent()) {
              if (gear.getType().matches(".*\\d.*")) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "");
              }
+            ETags.checkIfMatch(ifMatch, getGearETag(id));
+            GearSnapshot before = GearSnapshot.of(existing.get());
             gear.setId(id);
-            gearRepository.save(gear);
+            // de geladen versie, zodat de update faalt als een ander request het object intussen gewijzigd heeft
+            gear.setVersion(existing.get().getVersion());
+            Gear saved = gearRepository.save(gear);
+            eventPublisher.publishEvent(new GearChangedEvent(before, GearSnapshot.of(saved)));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + id + " not found");
         }
     }
 
+    /**
+     * Wijzigt alleen de velden van een Gear object die in een JSON Merge Patch staan. Het object wordt één keer
+     * geladen en binnen de transactie gewijzigd, zodat Hibernate alleen de gewijzigde kolommen schrijft.
+     * @param id Het id van het te wijzigen Gear object.
+     * @param patch De patch, bijv. {"weightInGrams": 3600}. Het merk wordt gewijzigd met {"brand": {"id": 1}}
+     *              en verwijderd met {"brand": null}.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 404 als het Gear object of het nieuwe merk niet bestaat, met status
+     *                                 412 als de "If-Match" header niet klopt en met status 400 bij een ongeldige patch.
+     */
+    @Transactional
+    public void patchGear(Long id, JsonNode patch, String ifMatch) {
+        ObjectNode fields = MergePatch.fields(patch, PATCHABLE_FIELDS);
+        Gear gear = gearRepository.findById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + id + " not found"));
+        if (ifMatch != null) {
+            ETags.checkIfMatch(ifMatch, getGearETag(id));
+        }
+        GearSnapshot before = GearSnapshot.of(gear);
+
+        JsonNode brand = fields.remove("brand");
+        if (brand != null) {
+            gear.setBrand(brand.isNull() ? null : findBrand(brand.path("id")));
+        }
+        MergePatch.apply(objectMapper, gear, fields);
+        if (gear.getType() == null || gear.getType().matches(".*\\d.*")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Gear must have a type without digits");
+        }
+        eventPublisher.publishEvent(new GearChangedEvent(before, GearSnapshot.of(gear)));
+    }
+
+    /**
+     * Zoekt het merk uit een patch op.
+     * @param id Het id uit {"brand": {"id": ...}}.
+     * @return Het Manufacturer object.
+     * @throws ResponseStatusException Met status 400 zonder geldig id en 404 als het merk niet bestaat.
+     */
+    private Manufacturer findBrand(JsonNode id) {
+        if (!id.canConvertToLong()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A brand must be patched as {\"id\": ...} or null");
+        }
+        return manufacturerRepository.findById(id.asLong()).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id.asLong() + " not found"));
+    }
+
     /**
      * Voegt een Gear object toe aan de "gear list" van een Guitarist object.
      * @param guitaristId Het id van het Guitarist object met de "gear list" waaraan het Gear object toegevoegd moet worden.
      * @param gear Het gear object dat aan de "gear list" toegevoegd moet worden.
      */
+    @Transactional
     public void addGearToGuitarist(Long guitaristId, Gear gear) {
-        if (guitaristRepository.findById(guitaristId).isPresent()) {
-            gear = gearRepository.getGearById(gear.getId());
-            Guitarist guitarist = guitaristRepository.findById(guitaristId).get();
-
-            guitarist.addGearToGearList(gear);
+        Optional<Guitarist> guitarist = guitaristRepository.findById(guitaristId);
+        if (guitarist.isPresent()) {
+            gear = getGearById(gear.getId());
+            guitarist.get().addGearToGearList(gear);
+            eventPublisher.publishEvent(new GearListChangedEvent(guitaristId, List.of(gear.getId()), List.of()));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + guitaristId + " not found");
         }
-        addGear(gear);
     }
 
     /**
@@ -152,27 +369,33 @@ public class GearService {
      * @param manufacturerId Het Manufacturer object waar mee geassocieerd moet worden.
      * @param gear Het Gear object dat met het Manufacturer object geassocieerd moet worden.
      */
+    @Transactional
     public void addGearToManufacturer(Long manufacturerId, Gear gear) {
-        if (manufacturerRepository.findById(manufacturerId).isPresent()) {
-            gear = gearRepository.getGearById(gear.getId());
-            gear.setBrand(manufacturerRepository.findById(manufacturerId).get());
+        Optional<Manufacturer> manufacturer = manufacturerRepository.findById(manufacturerId);
+        if (manufacturer.isPresent()) {
+            gear = getGearById(gear.getId());
+            GearSnapshot before = GearSnapshot.of(gear);
+            gear.setBrand(manufacturer.get());
+            eventPublisher.publishEvent(new GearChangedEvent(before, GearSnapshot.of(gear)));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + manufacturerId + " not found");
         }
-        addGear(gear);
     }
 
     /**
      * Verwijrdert een Gear object uit de database, als deze niet geassocieerd is met een Guitarist object.
      * @param id Het id van het Gear object dat uit de database verwijderd moet worden.
      */
+    @Transactional
     public void deleteGear(Long id) {
-        if(gearRepository.findById(id).isEmpty()) {
+        Optional<Gear> gear = gearRepository.findById(id);
+        if(gear.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + id + " not found");
         } else if (isOwned(id)) {
             throw new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED, "Cannot delete gear that is still owned by a guitarist");
         } else {
-            gearRepository.deleteById(id);
+            gearRepository.delete(gear.get());
+            eventPublisher.publishEvent(new GearChangedEvent(GearSnapshot.of(gear.get()), null));
         }
     }
 
@@ -181,15 +404,9 @@ public class GearService {
      * @param id Het id van het te controleren Gear object.
      * @return Geeft "true" terug als het Gear object nog geassocieerd is met een Guitarist object.
      */
+    @Transactional(readOnly = true)
     public boolean isOwned(Long id) {
-        for (Guitarist g : guitaristRepository.findAll()) {
-            for (Gear ge : g.getGearList()) {
-                if (ge.getId().equals(id)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return guitaristRepository.isGearOwned(id);
     }
 
     /**
@@ -197,6 +414,7 @@ public class GearService {
      * @param guitaristId Het id van het Guitarist object waarvan het Gear object van de gear list gehaald moet worden.
      * @param gear Het Gear object dat van de gear list van het Guitarist object gehaald moet worden.
      */
+    @Transactional
     public void removeGearFromGearList(Long guitaristId, Gear gear) {
         if (guitaristRepository.findById(guitaristId).isPresent()) {
             Guitarist guitarist = guitaristRepository.findById(guitaristId).get();
@@ -204,9 +422,170 @@ public class GearService {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist does not own gear with id " + gear.getId());
             } else {
                 guitaristRepository.save(guitarist);
+                eventPublisher.publishEvent(new GearListChangedEvent(guitaristId, List.of(), List.of(gear.getId())));
             }
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + guitaristId + " not found");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Zet een lijst Gear objecten in één keer op de "gear list" van een Guitarist object. Gear die al op de lijst
+     * staat wordt overgeslagen. Kost een vast aantal queries, hoe lang de lijst ook is.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param gearIds De id's van de toe te voegen Gear objecten.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object of een van de Gear objecten niet
+     *                                 bestaat, met status 400 bij een ongeldige lijst id's.
+     */
+    @Transactional
+    public void attachGearToGuitarist(Long guitaristId, List<Long> gearIds) {
+        Set<Long> ids = toIdSet(gearIds);
+        lockGuitarist(guitaristId);
+        requireExistingGear(ids);
+        ids.removeAll(guitaristRepository.findGearListIds(guitaristId));
+        if (!ids.isEmpty()) {
+            guitaristRepository.insertGearListEntries(guitaristId, ids);
+            guitaristRepository.incrementVersion(guitaristId);
+            eventPublisher.publishEvent(new GearListChangedEvent(guitaristId, new ArrayList<>(ids), List.of()));
+        }
+    }
+
+    /**
+     * Haalt een lijst Gear objecten in één keer van de "gear list" van een Guitarist object.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param gearIds De id's van de te verwijderen Gear objecten.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object niet bestaat of een van de Gear
+     *                                 objecten niet op de lijst staat, met status 400 bij een ongeldige lijst id's.
+     */
+    @Transactional
+    public void detachGearFromGuitarist(Long guitaristId, List<Long> gearIds) {
+        Set<Long> ids = toIdSet(gearIds);
+        lockGuitarist(guitaristId);
+        Set<Long> notOwned = new LinkedHashSet<>(ids);
+        notOwned.removeAll(guitaristRepository.findGearListIds(guitaristId));
+        if (!notOwned.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist does not own gear with id " + notOwned);
+        }
+        if (!ids.isEmpty()) {
+            guitaristRepository.deleteGearListEntries(guitaristId, ids);
+            guitaristRepository.incrementVersion(guitaristId);
+            eventPublisher.publishEvent(new GearListChangedEvent(guitaristId, List.of(), new ArrayList<>(ids)));
+        }
+    }
+
+    /**
+     * Vervangt de hele "gear list" van een Guitarist object. Alleen het verschil met de huidige lijst wordt
+     * geschreven: één delete voor de Gear objecten die eraf gaan en één insert voor de nieuwe.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param gearIds De id's van alle Gear objecten die op de lijst moeten staan. Mag leeg zijn.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object of een van de Gear objecten niet
+     *                                 bestaat, met status 400 bij een ongeldige lijst id's.
+     */
+    @Transactional
+    public void replaceGearList(Long guitaristId, List<Long> gearIds) {
+        Set<Long> added = toIdSet(gearIds);
+        lockGuitarist(guitaristId);
+        requireExistingGear(added);
+        List<Long> current = guitaristRepository.findGearListIds(guitaristId);
+        Set<Long> removed = new LinkedHashSet<>(current);
+        removed.removeAll(added);
+        added.removeAll(current);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        if (!removed.isEmpty()) {
+            guitaristRepository.deleteGearListEntries(guitaristId, removed);
+        }
+        if (!added.isEmpty()) {
+            guitaristRepository.insertGearListEntries(guitaristId, added);
+        }
+        guitaristRepository.incrementVersion(guitaristId);
+        eventPublisher.publishEvent(new GearListChangedEvent(guitaristId, new ArrayList<>(added),
+                new ArrayList<>(removed)));
+    }
+
+    /**
+     * Koppelt een lijst Gear objecten in één keer aan een Manufacturer object. Gear die al bij dit merk hoort
+     * wordt overgeslagen; de rest wordt met één update gewijzigd.
+     * @param manufacturerId Het id van het Manufacturer object.
+     * @param gearIds De id's van de Gear objecten.
+     * @throws ResponseStatusException Met status 404 als het Manufacturer object of een van de Gear objecten niet
+     *                                 bestaat, met status 400 bij een ongeldige lijst id's.
+     */
+    @Transactional
+    public void assignGearToManufacturer(Long manufacturerId, List<Long> gearIds) {
+        Set<Long> ids = toIdSet(gearIds);
+        Manufacturer manufacturer = manufacturerRepository.findById(manufacturerId).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + manufacturerId + " not found"));
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Gear> gearList = gearRepository.findAllWithBrandByIdIn(ids);
+        if (gearList.size() < ids.size()) {
+            gearList.forEach(gear -> ids.remove(gear.getId()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + ids + " not found");
+        }
+
+        List<GearSnapshot> changed = new ArrayList<>();
+        for (Gear gear : gearList) {
+            if (gear.getBrand() == null || !manufacturerId.equals(gear.getBrand().getId())) {
+                changed.add(GearSnapshot.of(gear));
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Set<Long> changedIds = new LinkedHashSet<>();
+        changed.forEach(before -> changedIds.add(before.getId()));
+        gearRepository.updateBrand(manufacturer, changedIds);
+        for (GearSnapshot before : changed) {
+            eventPublisher.publishEvent(new GearChangedEvent(before, new GearSnapshot(before.getId(),
+                    before.getName(), before.getType(), before.getWeightInGrams(), manufacturerId,
+                    manufacturer.getName())));
+        }
+    }
+
+    /**
+     * Controleert een lijst id's uit een bulk request en haalt dubbele id's eruit.
+     * @param gearIds De id's uit het request.
+     * @return De unieke id's, in de volgorde van het request.
+     * @throws ResponseStatusException Met status 400 als de lijst te lang is of een null bevat.
+     */
+    private static Set<Long> toIdSet(List<Long> gearIds) {
+        if (gearIds.size() > MAX_BULK_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot process more than " + MAX_BULK_IDS + " gear ids in one request");
+        }
+        if (gearIds.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Gear ids cannot be null");
+        }
+        return new LinkedHashSet<>(gearIds);
+    }
+
+    /**
+     * Zet een schrijfslot op een Guitarist object voor een bulk wijziging van zijn "gear list".
+     * @param guitaristId Het id van het Guitarist object.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object niet bestaat.
+     */
+    private void lockGuitarist(Long guitaristId) {
+        if (guitaristRepository.lockById(guitaristId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + guitaristId + " not found");
+        }
+    }
+
+    /**
+     * Controleert met één query of alle meegegeven Gear objecten bestaan.
+     * @param ids De id's van de Gear objecten.
+     * @throws ResponseStatusException Met status 404 en de ontbrekende id's als er een of meer niet bestaan.
+     */
+    private void requireExistingGear(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new LinkedHashSet<>(ids);
+        missing.removeAll(gearRepository.findExistingIds(ids));
+        if (!missing.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Gear with id " + missing + " not found");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package kemp.roel.guitaristgear.gear;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een onveranderlijke kopie van de velden van een Gear object op één moment. Wordt gebruikt om bij een wijziging
+ * de oude en de nieuwe toestand door te geven, ook nadat het Gear object zelf al aangepast is.
+ */
+
+public class GearSnapshot {
+    private final Long id;
+    private final String name;
+    private final String type;
+    private final int weightInGrams;
+    private final Long brandId;
+    private final String brandName;
+
+    /**
+     * Constructor voor een GearSnapshot object.
+     * @param id Het id van het Gear object.
+     * @param name De naam van het Gear object.
+     * @param type Het type van het Gear object.
+     * @param weightInGrams Het gewicht in grammen.
+     * @param brandId Het id van het merk van het Gear object. Mag null zijn.
+     * @param brandName De naam van het merk van het Gear object. Mag null zijn.
+     */
+    public GearSnapshot(Long id, String name, String type, int weightInGrams, Long brandId, String brandName) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.weightInGrams = weightInGrams;
+        this.brandId = brandId;
+        this.brandName = brandName;
+    }
+
+    /**
+     * Maakt een kopie van de huidige toestand van een Gear object.
+     * @param gear Het Gear object.
+     * @return De kopie van de toestand.
+     */
+    public static GearSnapshot of(Gear gear) {
+        if (gear.getBrand() == null) {
+            return new GearSnapshot(gear.getId(), gear.getName(), gear.getType(), gear.getWeightInGrams(), null, null);
+        }
+        return new GearSnapshot(gear.getId(), gear.getName(), gear.getType(), gear.getWeightInGrams(),
+                gear.getBrand().getId(), gear.getBrand().getName());
+    }
+
+    /**
+     * Getter voor het id.
+     * @return Het id van het Gear object.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Getter voor de naam.
+     * @return De naam van het Gear object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor het type.
+     * @return Het type van het Gear object.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Getter voor het type in kleine letters, zoals het in de kolom "type_normalized" staat.
+     * @return Het genormaliseerde type, of null als het Gear object geen type heeft.
+     */
+    public String getNormalizedType() {
+        return type == null ? null : type.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Getter voor het gewicht in grammen.
+     * @return Het gewicht in grammen.
+     */
+    public int getWeightInGrams() {
+        return weightInGrams;
+    }
+
+    /**
+     * Getter voor het id van het merk.
+     * @return Het id van het merk, of null als het Gear object geen merk heeft.
+     */
+    public Long getBrandId() {
+        return brandId;
+    }
+
+    /**
+     * Getter voor de naam van het merk.
+     * @return De naam van het merk, of null als het Gear object geen merk heeft.
+     */
+    public String getBrandName() {
+        return brandName;
+    }
+
+    /**
+     * Controleert of merk, type en gewicht gelijk zijn aan die van een andere kopie.
+     * @param other De andere kopie. Mag null zijn.
+     * @return true als merk, type en gewicht gelijk zijn. Anders false.
+     */
+    public boolean hasSameBrandTypeAndWeight(GearSnapshot other) {
+        return other != null && Objects.equals(brandId, other.brandId)
+                && Objects.equals(getNormalizedType(), other.getNormalizedType())
+                && weightInGrams == other.weightInGrams;
+    }
+}
@@ -0,0 +1,60 @@
+package kemp.roel.guitaristgear.gear;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén staaf van een gewichtshistogram: het aantal Gear objecten van één type met een gewicht in
+ * [fromGrams, toGrams).
+ */
+
+public class WeightBucket {
+    private final String type;
+    private final int fromGrams;
+    private final int toGrams;
+    private final long count;
+
+    /**
+     * Constructor voor een WeightBucket object.
+     * @param type Het genormaliseerde type (kleine letters). Null voor Gear objecten zonder type.
+     * @param fromGrams De ondergrens van de staaf, inclusief.
+     * @param toGrams De bovengrens van de staaf, exclusief.
+     * @param count Het aantal Gear objecten in de staaf.
+     */
+    public WeightBucket(String type, int fromGrams, int toGrams, long count) {
+        this.type = type;
+        this.fromGrams = fromGrams;
+        this.toGrams = toGrams;
+        this.count = count;
+    }
+
+    /**
+     * Getter voor het type.
+     * @return Het genormaliseerde type, of null.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Getter voor de ondergrens.
+     * @return De ondergrens in grammen, inclusief.
+     */
+    public int getFromGrams() {
+        return fromGrams;
+    }
+
+    /**
+     * Getter voor de bovengrens.
+     * @return De bovengrens in grammen, exclusief.
+     */
+    public int getToGrams() {
+        return toGrams;
+    }
+
+    /**
+     * Getter voor het aantal.
+     * @return Het aantal Gear objecten in de staaf.
+     */
+    public long getCount() {
+        return count;
+    }
+}
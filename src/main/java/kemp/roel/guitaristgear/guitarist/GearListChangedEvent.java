@@ -0,0 +1,51 @@
+package kemp.roel.guitaristgear.guitarist;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Wordt gepubliceerd als er Gear objecten aan de "gear list" van een Guitarist object toegevoegd of van de lijst
+ * gehaald worden. Het event wordt binnen de transactie van de wijziging gepubliceerd.
+ */
+
+public class GearListChangedEvent {
+    private final Long guitaristId;
+    private final List<Long> addedGearIds;
+    private final List<Long> removedGearIds;
+
+    /**
+     * Constructor voor een GearListChangedEvent object.
+     * @param guitaristId Het id van het Guitarist object waarvan de "gear list" gewijzigd is.
+     * @param addedGearIds De id's van de toegevoegde Gear objecten. Kan leeg zijn.
+     * @param removedGearIds De id's van de verwijderde Gear objecten. Kan leeg zijn.
+     */
+    public GearListChangedEvent(Long guitaristId, List<Long> addedGearIds, List<Long> removedGearIds) {
+        this.guitaristId = guitaristId;
+        this.addedGearIds = addedGearIds;
+        this.removedGearIds = removedGearIds;
+    }
+
+    /**
+     * Getter voor het id van het Guitarist object.
+     * @return Het id van het Guitarist object waarvan de "gear list" gewijzigd is.
+     */
+    public Long getGuitaristId() {
+        return guitaristId;
+    }
+
+    /**
+     * Getter voor de toegevoegde Gear objecten.
+     * @return De id's van de toegevoegde Gear objecten. Kan leeg zijn.
+     */
+    public List<Long> getAddedGearIds() {
+        return addedGearIds;
+    }
+
+    /**
+     * Getter voor de verwijderde Gear objecten.
+     * @return De id's van de verwijderde Gear objecten. Kan leeg zijn.
+     */
+    public List<Long> getRemovedGearIds() {
+        return removedGearIds;
+    }
+}
@@ -1,8 +1,14 @@
 package kemp.roel.guitaristgear.guitarist;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import kemp.roel.guitaristgear.gear.Gear;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,6 +16,9 @@ import java.util.List;
  */
 
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Guitarist {
 
     @Id
@@ -21,8 +30,23 @@ public class Guitarist {
     private int birthYear;
     private String genre;
 
+    // De index op "gear_list_id" maakt het mogelijk om zonder de gitaristen te laden te zien of gear in bezit is.
+    // Die index en de andere indexes staan, net als de rest van het schema, in de migraties in db/migration.
+    // Lijsten die niet met een fetch join opgehaald worden (bijv. bij paginering) worden per 50 gitaristen geladen.
+    // De collection cache bewaart per gitarist alleen de Gear id's; de Gear objecten zelf komen uit hun eigen regio.
     @ManyToMany
-    private List<Gear> gearList;
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @JoinTable(name = "guitarist_gear_list",
+            joinColumns = @JoinColumn(name = "guitarist_id"),
+            inverseJoinColumns = @JoinColumn(name = "gear_list_id"))
+    private List<Gear> gearList = new ArrayList<>();
+
+    // Wordt ook opgehoogd als de "gear list" verandert, zodat de ETag dan ook verandert.
+    @Version
+    @JsonIgnore
+    @Column(columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
 
     /**
      * Default constructor voor een Guitarist object.
@@ -136,4 +160,20 @@ public class Guitarist {
         }
         return false;
     }
+
+    /**
+     * De getter voor de versie van dit Guitarist object.
+     * @return De versie, die bij iedere wijziging door Hibernate opgehoogd wordt.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * De setter voor de versie van dit Guitarist object.
+     * @param version De versie waarmee het object bij het opslaan vergeleken wordt.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package kemp.roel.guitaristgear.guitarist;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Wordt door GuitaristService gepubliceerd als een Guitarist object toegevoegd, gewijzigd of verwijderd wordt.
+ * Het event wordt binnen de transactie van de wijziging gepubliceerd.
+ */
+
+public class GuitaristChangedEvent {
+    private final GuitaristSnapshot before;
+    private final GuitaristSnapshot after;
+
+    /**
+     * Constructor voor een GuitaristChangedEvent object.
+     * @param before De toestand voor de wijziging. Is null als het Guitarist object nieuw is.
+     * @param after De toestand na de wijziging. Is null als het Guitarist object verwijderd is.
+     */
+    public GuitaristChangedEvent(GuitaristSnapshot before, GuitaristSnapshot after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Getter voor de toestand voor de wijziging.
+     * @return De toestand voor de wijziging, of null als het Guitarist object nieuw is.
+     */
+    public GuitaristSnapshot getBefore() {
+        return before;
+    }
+
+    /**
+     * Getter voor de toestand na de wijziging.
+     * @return De toestand na de wijziging, of null als het Guitarist object verwijderd is.
+     */
+    public GuitaristSnapshot getAfter() {
+        return after;
+    }
+
+    /**
+     * Getter voor het id van het gewijzigde Guitarist object.
+     * @return Het id van het gewijzigde Guitarist object.
+     */
+    public Long getGuitaristId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -1,7 +1,18 @@
 package kemp.roel.guitaristgear.guitarist;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.cache.ResponseCache;
+import kemp.roel.guitaristgear.etag.ETags;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -15,14 +26,17 @@ import java.util.List;
 public class GuitaristController {
 
     private final GuitaristService guitaristService;
+    private final ResponseCache responseCache;
 
     /**
      * Constructor voor GuitaristController.
      * @param guitaristService Het GuitaristService object waar de controller zijn informatie uit haalt.
+     * @param responseCache De cache met geserialiseerde lijsten.
      */
     @Autowired
-    public GuitaristController(GuitaristService guitaristService) {
+    public GuitaristController(GuitaristService guitaristService, ResponseCache responseCache) {
         this.guitaristService = guitaristService;
+        this.responseCache = responseCache;
     }
 
     // GET mappings
@@ -32,23 +46,78 @@ public class GuitaristController {
      * Geeft een lijst van alle Guitarist objecten terug. Mogelijk gefilterd op genre en/of geboortejaar.
      * @param genre De String waarmee Guitarist objecten op genre gefilterd kunnen worden. Mag null zijn.
      * @param birthYear De String waarmee Guitarist objecten op geboortejaar gefilterd kunnen worden. Mag null zijn.
-     * @return Een lijst van Guitarist objecten.
+     * @param accept De "Accept" header. Bepaalt of de lijst als JSON, CBOR of Smile verstuurd wordt. Mag null zijn.
+     * @param acceptEncoding De "Accept-Encoding" header. Als de client gzip accepteert, wordt de vooraf
+     *                       gecomprimeerde body uit de cache verstuurd. Mag null zijn.
+     * @return Een lijst van Guitarist objecten als JSON, CBOR of Smile.
      */
     @GetMapping
-    public List<Guitarist> getAllGuitarists(@RequestParam(required = false) String genre,
-                                            @RequestParam(required = false) String birthYear) {
-        return guitaristService.getAllGuitarists(genre, birthYear);
+    public ResponseEntity<byte[]> getAllGuitarists(@RequestParam(required = false) String genre,
+                                                   @RequestParam(required = false) String birthYear,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        WireFormat format = WireFormat.negotiate(accept);
+        CacheKey key = CacheKey.of(CacheKey.GUITARIST, format.getName())
+                .with("genre", genre).with("birthYear", birthYear);
+        return responseCache.get(key, () -> guitaristService.getAllGuitarists(genre, birthYear))
+                .toResponseEntity(acceptEncoding);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/guitarist/page".
+     * Geeft een pagina Guitarist objecten terug, met een token waarmee de volgende pagina opgevraagd kan worden.
+     * @param sort De sorteersleutel: "id" (standaard), "name" of "birthYear". Bij "name" worden objecten
+     *             zonder naam niet teruggegeven; die zijn alleen met "id" op te vragen.
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het "nextPageToken" uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Guitarist objecten.
+     */
+    @GetMapping("/page")
+    public CursorPage<Guitarist> getGuitaristPage(@RequestParam(defaultValue = "id") String sort,
+                                                  @RequestParam(required = false) Integer pageSize,
+                                                  @RequestParam(required = false) String pageToken) {
+        return guitaristService.getGuitaristPage(sort, pageSize, pageToken);
     }
 
     /**
      * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/guitarist/{id}".
      * Geeft het Guitarist object met het opgevraagde id terug.
+     * Als de "If-None-Match" header overeenkomt met de huidige ETag, wordt 304 teruggegeven zonder het object
+     * te laden.
      * @param id Het id van de opgevraagde gitarist
+     * @param request Het request, nodig voor de "If-None-Match" header.
+     * @param accept De "Accept" header, die bepaalt in welk formaat het object en dus welke ETag verstuurd wordt.
      * @return Het opgevraagde Guitarist object.
      */
     @GetMapping("/{id}")
-    public Guitarist getGuitaristById(@PathVariable Long id) {
-        return guitaristService.getGuitaristById(id);
+    public ResponseEntity<Guitarist> getGuitaristById(@PathVariable Long id, WebRequest request,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return ETags.conditionalGet(request, accept, guitaristService.getGuitaristETag(id),
+                () -> guitaristService.getGuitaristById(id));
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/guitarist/{id}/rig".
+     * Geeft het totale gewicht en het aantal items van de rig van een gitarist terug, ook per type en per merk.
+     * @param id Het id van het Guitarist object.
+     * @return De totalen van de rig.
+     */
+    @GetMapping("/{id}/rig")
+    public RigSummary getRigSummary(@PathVariable Long id) {
+        return guitaristService.getRigSummary(id);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/guitarist/rig/top".
+     * Geeft de grootste rigs van alle gitaristen terug.
+     * @param by "weight" (standaard) om op totaal gewicht te sorteren, "items" om op aantal items te sorteren.
+     * @param limit Het aantal gitaristen, standaard 10 en maximaal 100.
+     * @return De ranglijst, grootste rig eerst.
+     */
+    @GetMapping("/rig/top")
+    public List<RigRanking> getRigRanking(@RequestParam(defaultValue = "weight") String by,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return guitaristService.getRigRanking(by, limit);
     }
 
     // POST mappings
@@ -68,12 +137,36 @@ public class GuitaristController {
     /**
      * De methode die aangeroepen wordt als er een PUT request wordt gestuurd naar "/gg/guitarist/{id}".
      * Overschrijft in de database het Guitarist object met het meegegeven id, met het meegegeven Guitarist object.
+     * De "gear list" blijft daarbij staan; die wordt via "/gg/gear/guitarist/{id}" aangepast.
      * @param id Het id van het te overschrijven Guitarist object.
      * @param guitarist Het nieuwe Guitarist object.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets overschreven. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
      */
     @PutMapping("/{id}")
-    public void updateGuitarist(@PathVariable Long id, @RequestBody Guitarist guitarist) {
-        guitaristService.updateGuitarist(id, guitarist);
+    public ResponseEntity<Void> updateGuitarist(@PathVariable Long id, @RequestBody Guitarist guitarist,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        guitaristService.updateGuitarist(id, guitarist, ifMatch);
+        return ResponseEntity.ok().eTag(guitaristService.getGuitaristETag(id)).build();
+    }
+
+    // PATCH mappings
+
+    /**
+     * De methode die aangeroepen wordt als er een PATCH request wordt gestuurd naar "/gg/guitarist/{id}".
+     * Wijzigt alleen de velden van het Guitarist object die in de JSON Merge Patch (RFC 7396) staan.
+     * @param id Het id van het te wijzigen Guitarist object.
+     * @param patch De velden die veranderen. Een veld met null wordt leeg gemaakt.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets gewijzigd. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchGuitarist(@PathVariable Long id, @RequestBody JsonNode patch,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        guitaristService.patchGuitarist(id, patch, ifMatch);
+        return ResponseEntity.ok().eTag(guitaristService.getGuitaristETag(id)).build();
     }
 
     // DELETE mappings.
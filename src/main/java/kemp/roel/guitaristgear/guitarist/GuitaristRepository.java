@@ -1,17 +1,26 @@
 package kemp.roel.guitaristgear.guitarist;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+
 /**
  * Auteur: Roel Kemp (500781)
  */
 
 @Repository
-public interface GuitaristRepository extends JpaRepository<Guitarist, Long> {
+public interface GuitaristRepository extends JpaRepository<Guitarist, Long>, GuitaristRepositoryCustom {
     /**
      * Haalt Guitarist object op uit de database op basis van naam.
      * @param name De naam die hoort bij het op te halen Guitarist object.
@@ -21,14 +30,144 @@ public interface GuitaristRepository extends JpaRepository<Guitarist, Long> {
 
     /**
      * Geeft een lijst van alle Guitarist objecten in de database terug. Kan leeg zijn.
+     * De "gear list" en het merk van iedere gear worden in dezelfde query opgehaald.
      * @return Een lijst van alle Guitarist objecten in de database.
      */
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct g from Guitarist g left join fetch g.gearList gl left join fetch gl.brand")
     List<Guitarist> findAll();
 
     /**
      * Geeft een lijst van Guitarist objecten die hetzelfde geboortejaar opslaan terug.
+     * De "gear list" en het merk van iedere gear worden in dezelfde query opgehaald. Het resultaat staat in de
+     * query cache; bij een hit worden alleen de id's gelezen en komen de objecten en lijsten uit de second-level
+     * cache, zonder de fetch join.
      * @param birthYear Het geboortejaar waar op gefilterd moet worden.
      * @return Een lijst van alle Guitarist objecten met het meegegeven geboortejaar. Kan leeg zijn.
      */
-    List<Guitarist> findGuitaristsByBirthYear(int birthYear);
-}
\ No newline at end of file
+    @QueryHints({@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"),
+            @QueryHint(name = HINT_CACHEABLE, value = "true")})
+    @Query("select distinct g from Guitarist g left join fetch g.gearList gl left join fetch gl.brand " +
+            "where g.birthYear = :birthYear")
+    List<Guitarist> findGuitaristsByBirthYear(@Param("birthYear") int birthYear);
+
+    /**
+     * Controleert of een Gear object op de "gear list" van minstens één Guitarist object staat. Kijkt alleen in de
+     * index op de koppeltabel, dus de kosten hangen niet af van het aantal gitaristen.
+     * @param gearId Het id van het te controleren Gear object.
+     * @return true als het Gear object in bezit is van een gitarist. Anders false.
+     */
+    @Query(value = "select exists(select 1 from guitarist_gear_list where gear_list_id = :gearId)", nativeQuery = true)
+    boolean isGearOwned(@Param("gearId") Long gearId);
+
+    /**
+     * Haalt een pagina Guitarist objecten op, gesorteerd op id, die na het meegegeven id komen (keyset paginering).
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Guitarist objecten. Kan leeg zijn.
+     */
+    @Query("select g from Guitarist g where g.id > :afterId order by g.id")
+    List<Guitarist> findPageOrderById(@Param("afterId") Long afterId, Pageable limit);
+
+    /**
+     * Haalt een pagina Guitarist objecten op, gesorteerd op naam en daarna id, die na de meegegeven naam en id komen.
+     * Guitarist objecten zonder naam worden bij deze sortering overgeslagen. Net als bij Gear staat "name >= ..." los
+     * voor de OR, anders kan H2 de index op (name, id) niet als bereik gebruiken.
+     * @param afterName De naam van de laatste rij van de vorige pagina. Een lege String voor de eerste pagina.
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Guitarist objecten. Kan leeg zijn.
+     */
+    @Query("select g from Guitarist g " +
+            "where g.name >= :afterName and (g.name > :afterName or g.id > :afterId) order by g.name, g.id")
+    List<Guitarist> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId,
+                                        Pageable limit);
+
+    /**
+     * Haalt een pagina Guitarist objecten op, gesorteerd op geboortejaar en daarna id.
+     * @param afterBirthYear Het geboortejaar van de laatste rij van de vorige pagina.
+     *                       Integer.MIN_VALUE voor de eerste pagina.
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Guitarist objecten. Kan leeg zijn.
+     */
+    @Query("select g from Guitarist g where g.birthYear >= :afterBirthYear " +
+            "and (g.birthYear > :afterBirthYear or g.id > :afterId) order by g.birthYear, g.id")
+    List<Guitarist> findPageOrderByBirthYear(@Param("afterBirthYear") int afterBirthYear, @Param("afterId") Long afterId,
+                                             Pageable limit);
+
+    /**
+     * Haalt de versie van een Guitarist object op, samen met de opgetelde versies van de gear in de "gear list" en
+     * van hun merken. Versies worden alleen opgehoogd, dus iedere wijziging aan een van deze objecten verandert
+     * een van de drie getallen.
+     * @param id Het id van het Guitarist object.
+     * @return Eén rij met de drie versies, of een lege lijst.
+     */
+    @Query("select g.version, coalesce(sum(gl.version), 0), coalesce(sum(b.version), 0) from Guitarist g " +
+            "left join g.gearList gl left join gl.brand b where g.id = :id group by g.id, g.version")
+    List<Object[]> findVersionsById(@Param("id") Long id);
+
+    /**
+     * Haalt alleen het id en de naam van alle Guitarist objecten op, zonder hun "gear list", voor de zoekindex.
+     * @return Per Guitarist object een rij met id en naam.
+     */
+    @Query("select g.id, g.name from Guitarist g")
+    List<Object[]> findAllIdsAndNames();
+
+    /**
+     * Zet een schrijfslot op de rij van een Guitarist object, zodat gelijktijdige bulk wijzigingen aan dezelfde
+     * "gear list" op elkaar wachten. Het slot blijft tot het einde van de transactie staan.
+     * @param id Het id van het Guitarist object.
+     * @return Het id als het Guitarist object bestaat. Anders leeg.
+     */
+    @Query(value = "select id from guitarist where id = :id for update", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    /**
+     * Haalt de id's van de Gear objecten op de "gear list" van een Guitarist object op, zonder de lijst te laden.
+     * @param guitaristId Het id van het Guitarist object.
+     * @return De id's van de Gear objecten. Kan leeg zijn.
+     */
+    @Query(value = "select gear_list_id from guitarist_gear_list where guitarist_id = :guitaristId", nativeQuery = true)
+    List<Long> findGearListIds(@Param("guitaristId") Long guitaristId);
+
+    /**
+     * Hoogt de versie van een Guitarist object op. Nodig na insertGearListEntries en deleteGearListEntries, die
+     * buiten Hibernate om gaan en de versie dus niet zelf ophogen.
+     * @param id Het id van het Guitarist object.
+     * @return Het aantal gewijzigde rijen.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Guitarist g set g.version = g.version + 1 where g.id = :id")
+    int incrementVersion(@Param("id") Long id);
+
+    /**
+     * Telt de "gear list" van een Guitarist object per genormaliseerd type en merk, zonder het Guitarist object of
+     * zijn gear te laden.
+     * @param id Het id van het Guitarist object.
+     * @return Per type en merk het type, het id en de naam van het merk, het aantal items en het gewicht. Eén rij
+     *         met aantal 0 als de "gear list" leeg is, en een lege lijst als het Guitarist object niet bestaat.
+     */
+    @Query("select gl.typeNormalized, b.id, b.name, count(gl), coalesce(sum(gl.weightInGrams), 0) " +
+            "from Guitarist g left join g.gearList gl left join gl.brand b where g.id = :id " +
+            "group by gl.typeNormalized, b.id, b.name")
+    List<Object[]> findRigTotalsById(@Param("id") Long id);
+
+    /**
+     * Haalt de zwaarste rigs op, met per Guitarist object het id, de naam, het aantal items en het totale gewicht.
+     * @param limit Het maximale aantal rijen.
+     * @return De rijen, zwaarste eerst. Bij een gelijk gewicht het laagste id eerst.
+     */
+    @Query("select g.id, g.name, count(gl), coalesce(sum(gl.weightInGrams), 0) from Guitarist g " +
+            "left join g.gearList gl group by g.id, g.name order by coalesce(sum(gl.weightInGrams), 0) desc, g.id")
+    List<Object[]> findRigsOrderByWeight(Pageable limit);
+
+    /**
+     * Haalt de grootste rigs op, met per Guitarist object het id, de naam, het aantal items en het totale gewicht.
+     * @param limit Het maximale aantal rijen.
+     * @return De rijen, meeste items eerst. Bij een gelijk aantal het laagste id eerst.
+     */
+    @Query("select g.id, g.name, count(gl), coalesce(sum(gl.weightInGrams), 0) from Guitarist g " +
+            "left join g.gearList gl group by g.id, g.name order by count(gl) desc, g.id")
+    List<Object[]> findRigsOrderByItemCount(Pageable limit);
+}
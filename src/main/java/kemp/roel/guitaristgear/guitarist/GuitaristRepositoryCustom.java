@@ -0,0 +1,40 @@
+package kemp.roel.guitaristgear.guitarist;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Toegang tot de "gear list" van een Guitarist object waarbij de second-level cache van Hibernate in de gaten
+ * gehouden moet worden. Geïmplementeerd in GuitaristRepositoryImpl.
+ */
+
+public interface GuitaristRepositoryCustom {
+
+    /**
+     * Haalt een Guitarist object op uit de database op basis van id, samen met de "gear list" en het merk van
+     * iedere gear. Het object, de lijst, de gear en de merken komen zo mogelijk uit de second-level cache;
+     * zonder hits kost het twee queries.
+     * @param id Het id van het op te halen Guitarist object.
+     * @return Het opgevraagde Guitarist object. Kan leeg zijn.
+     */
+    Optional<Guitarist> findWithGearListById(Long id);
+
+    /**
+     * Zet Gear objecten op de "gear list" van een Guitarist object met één insert op de koppeltabel. De id's moeten
+     * bestaan en mogen nog niet op de lijst staan. De versie van het Guitarist object wordt niet opgehoogd.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param gearIds De id's van de toe te voegen Gear objecten. Mag niet leeg zijn.
+     * @return Het aantal toegevoegde rijen.
+     */
+    int insertGearListEntries(Long guitaristId, Collection<Long> gearIds);
+
+    /**
+     * Haalt Gear objecten van de "gear list" van een Guitarist object met één delete op de koppeltabel.
+     * De versie van het Guitarist object wordt niet opgehoogd.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param gearIds De id's van de te verwijderen Gear objecten. Mag niet leeg zijn.
+     * @return Het aantal verwijderde rijen.
+     */
+    int deleteGearListEntries(Long guitaristId, Collection<Long> gearIds);
+}
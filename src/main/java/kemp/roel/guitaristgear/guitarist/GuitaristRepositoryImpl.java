@@ -0,0 +1,62 @@
+package kemp.roel.guitaristgear.guitarist;
+
+import org.hibernate.Hibernate;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * De bulk wijzigingen op de koppeltabel zijn native queries. Zonder opgegeven tabel leegt Hibernate na een native
+ * update de hele second-level cache, omdat hij niet weet wat er geraakt is; met "guitarist_gear_list" als query
+ * space vervalt alleen de collection cache van Guitarist.gearList en de query cache van queries op die tabel.
+ */
+
+class GuitaristRepositoryImpl implements GuitaristRepositoryCustom {
+    private static final String GEAR_LIST_TABLE = "guitarist_gear_list";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Guitarist> findWithGearListById(Long id) {
+        Guitarist guitarist = entityManager.find(Guitarist.class, id);
+        if (guitarist == null) {
+            return Optional.empty();
+        }
+        Hibernate.initialize(guitarist.getGearList());
+        return Optional.of(guitarist);
+    }
+
+    @Override
+    public int insertGearListEntries(Long guitaristId, Collection<Long> gearIds) {
+        return executeOnGearList("insert into guitarist_gear_list (guitarist_id, gear_list_id) " +
+                "select :guitaristId, id from gear where id in (:gearIds)", guitaristId, gearIds);
+    }
+
+    @Override
+    public int deleteGearListEntries(Long guitaristId, Collection<Long> gearIds) {
+        return executeOnGearList("delete from guitarist_gear_list " +
+                "where guitarist_id = :guitaristId and gear_list_id in (:gearIds)", guitaristId, gearIds);
+    }
+
+    /**
+     * Voert een wijziging op de koppeltabel uit zoals @Modifying(flushAutomatically = true,
+     * clearAutomatically = true) dat zou doen: eerst openstaande wijzigingen wegschrijven, daarna de
+     * persistence context legen zodat geladen lijsten niet verouderd blijven.
+     */
+    private int executeOnGearList(String sql, Long guitaristId, Collection<Long> gearIds) {
+        entityManager.flush();
+        int count = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(GEAR_LIST_TABLE)
+                .setParameter("guitaristId", guitaristId)
+                .setParameterList("gearIds", gearIds)
+                .executeUpdate();
+        entityManager.clear();
+        return count;
+    }
+}
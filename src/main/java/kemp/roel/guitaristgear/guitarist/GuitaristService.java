@@ -1,13 +1,28 @@
 package kemp.roel.guitaristgear.guitarist;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kemp.roel.guitaristgear.etag.ETags;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.paging.PageToken;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Auteur: Roel Kemp (500781)
@@ -15,17 +30,27 @@ import java.util.Optional;
 
 @Service
 public class GuitaristService {
-    private final GuitaristRepository guitaristRepository;
+    private static final int MAX_RANKING_SIZE = 100;
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "birthPlace", "birthYear", "genre");
 
+    private final GuitaristRepository guitaristRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor voor GuitaristService.
      * @param guitaristRepository Nodig om een of meer Guitarist objecten op te halen,
      *                            toe te voegen, te bewerken of te verwijderen.
+     * @param eventPublisher Nodig om bij iedere wijziging van een Guitarist object een GuitaristChangedEvent
+     *                       te publiceren.
+     * @param objectMapper Nodig om een merge patch op een Guitarist object toe te passen.
      */
     @Autowired
-    public GuitaristService(GuitaristRepository guitaristRepository) {
+    public GuitaristService(GuitaristRepository guitaristRepository, ApplicationEventPublisher eventPublisher,
+                            ObjectMapper objectMapper) {
         this.guitaristRepository = guitaristRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -34,7 +59,14 @@ public class GuitaristService {
      * @param birthYear Het geboortejaar waar op gefilterd moet worden. Mag null zijn.
      * @return Een lijst met Guitarist objecten.
      */
+    @Transactional(readOnly = true)
     public List<Guitarist> getAllGuitarists(String genre, String birthYear) {
+        if (genre == null && birthYear != null) {
+            List<Guitarist> guitarists = guitaristRepository.findGuitaristsByBirthYear(Integer.parseInt(birthYear));
+            // uit de query cache komen de lijsten niet mee; die worden dan uit de collection cache geladen
+            guitarists.forEach(g -> Hibernate.initialize(g.getGearList()));
+            return guitarists;
+        }
         List<Guitarist> allGuitarists = guitaristRepository.findAll();
         if (genre != null && birthYear != null) {
             genre = genre.replaceAll("-", " ");
@@ -57,10 +89,39 @@ public class GuitaristService {
             }
             return filteredByGenre;
         }
-        if (birthYear != null) {
-            return guitaristRepository.findGuitaristsByBirthYear(Integer.parseInt(birthYear));
+        return allGuitarists;
+    }
+
+    /**
+     * Geeft een pagina Guitarist objecten terug. De pagina's worden met keyset paginering opgehaald, zodat een diepe
+     * pagina net zo snel is als de eerste.
+     * @param sort De sorteersleutel: "id", "name" of "birthYear".
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het token uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Guitarist objecten en eventueel een token voor de volgende pagina.
+     * @throws ResponseStatusException Gooit HTTP code 400 bij een onbekende sortering of een ongeldig token.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Guitarist> getGuitaristPage(String sort, Integer pageSize, String pageToken) {
+        int size = CursorPage.pageSize(pageSize);
+        PageToken token = PageToken.decode(pageToken, sort);
+        Long afterId = token == null ? Long.MIN_VALUE : token.getLastId();
+
+        switch (sort) {
+            case "id":
+                return CursorPage.of(guitaristRepository.findPageOrderById(afterId, CursorPage.limit(size)),
+                        size, sort, Guitarist::getId, Guitarist::getId);
+            case "name":
+                String afterName = token == null ? "" : token.getLastValue();
+                return CursorPage.of(guitaristRepository.findPageOrderByName(afterName, afterId, CursorPage.limit(size)),
+                        size, sort, Guitarist::getId, Guitarist::getName);
+            case "birthYear":
+                int afterBirthYear = token == null ? Integer.MIN_VALUE : token.getLastValueAsInt();
+                return CursorPage.of(guitaristRepository.findPageOrderByBirthYear(afterBirthYear, afterId,
+                        CursorPage.limit(size)), size, sort, Guitarist::getId, Guitarist::getBirthYear);
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort guitarists on \"" + sort + "\"");
         }
-        return guitaristRepository.findAll();
     }
 
     /**
@@ -69,52 +130,189 @@ public class GuitaristService {
      * @return Het opgevraagde Guitarist object. Mits aanwezig.
      * @throws ResponseStatusException Wordt gegooit als er geen Guitarist object met het opgevraagde id gevonden is.
      */
+    @Transactional(readOnly = true)
     public Guitarist getGuitaristById(Long id) {
-        Optional<Guitarist> g = guitaristRepository.findById(id);
+        Optional<Guitarist> g = guitaristRepository.findWithGearListById(id);
         return g.orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found"));
     }
 
+    /**
+     * Geeft de ETag van een Guitarist object terug. Deze verandert ook als gear in de "gear list" of het merk
+     * daarvan verandert, omdat die in de JSON van het Guitarist object staan.
+     * @param id Het id van het Guitarist object.
+     * @return De sterke ETag van het Guitarist object.
+     * @throws ResponseStatusException Als er geen Guitarist object met het opgevraagde id in de database aanwezig is.
+     */
+    @Transactional(readOnly = true)
+    public String getGuitaristETag(Long id) {
+        List<Object[]> versions = guitaristRepository.findVersionsById(id);
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found");
+        }
+        return ETags.of(id, versions.get(0));
+    }
+
     /**
      * Geeft een Guitarist object terug op basis van naam.
      * @param name De naam die hoort bij het te vinden Guitarist object.
      * @return Het gevonden Guitarist object. Mits aanwezig.
      * @throws ResponseStatusException Als er geen Guitarist object met de opgevraagde naam in de database aanwezig is.
      */
+    @Transactional(readOnly = true)
     public Guitarist getGuitaristByName(String name) {
         Optional<Guitarist> g = guitaristRepository.findGuitaristByName(name);
         return g.orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND,
                 "Guitarist with name \"" + name + "\" not found"));
     }
 
+    /**
+     * Geeft het totale gewicht en het aantal items van de rig van een gitarist terug, ook per type en per merk.
+     * Wordt met één GROUP BY query berekend, zonder het Guitarist object of zijn gear te laden.
+     * @param id Het id van het Guitarist object.
+     * @return De totalen van de rig.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object niet bestaat.
+     */
+    @Transactional(readOnly = true)
+    public RigSummary getRigSummary(Long id) {
+        List<Object[]> rows = guitaristRepository.findRigTotalsById(id);
+        if (rows.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found");
+        }
+        long itemCount = 0;
+        long totalWeight = 0;
+        Map<String, long[]> byType = new LinkedHashMap<>();
+        Map<Long, long[]> byBrand = new LinkedHashMap<>();
+        Map<Long, String> brandNames = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            long count = ((Number) row[3]).longValue();
+            long weight = ((Number) row[4]).longValue();
+            if (count == 0) {
+                continue;
+            }
+            itemCount += count;
+            totalWeight += weight;
+            add(byType.computeIfAbsent((String) row[0], type -> new long[2]), count, weight);
+            add(byBrand.computeIfAbsent((Long) row[1], brandId -> new long[2]), count, weight);
+            brandNames.put((Long) row[1], (String) row[2]);
+        }
+
+        List<RigSummary.TypeTotal> types = new ArrayList<>();
+        byType.forEach((type, totals) -> types.add(new RigSummary.TypeTotal(type, totals[0], totals[1])));
+        types.sort(Comparator.comparingLong(RigSummary.TypeTotal::getWeightInGrams).reversed());
+        List<RigSummary.BrandTotal> brands = new ArrayList<>();
+        byBrand.forEach((brandId, totals) ->
+                brands.add(new RigSummary.BrandTotal(brandId, brandNames.get(brandId), totals[0], totals[1])));
+        brands.sort(Comparator.comparingLong(RigSummary.BrandTotal::getWeightInGrams).reversed());
+        return new RigSummary(id, itemCount, totalWeight, types, brands);
+    }
+
+    private static void add(long[] totals, long count, long weight) {
+        totals[0] += count;
+        totals[1] += weight;
+    }
+
+    /**
+     * Geeft de grootste rigs van alle gitaristen terug, gesorteerd in de database.
+     * @param by "weight" om op totaal gewicht te sorteren, "items" om op aantal items te sorteren.
+     * @param limit Het aantal gitaristen, van 1 tot en met 100.
+     * @return De ranglijst, grootste rig eerst.
+     * @throws ResponseStatusException Met status 400 bij een onbekende sortering of een ongeldige limit.
+     */
+    @Transactional(readOnly = true)
+    public List<RigRanking> getRigRanking(String by, int limit) {
+        if (limit < 1 || limit > MAX_RANKING_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_RANKING_SIZE);
+        }
+        List<Object[]> rows;
+        switch (by) {
+            case "weight":
+                rows = guitaristRepository.findRigsOrderByWeight(PageRequest.of(0, limit));
+                break;
+            case "items":
+                rows = guitaristRepository.findRigsOrderByItemCount(PageRequest.of(0, limit));
+                break;
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot rank rigs on \"" + by + "\"");
+        }
+        List<RigRanking> ranking = new ArrayList<>();
+        for (Object[] row : rows) {
+            ranking.add(new RigRanking((Long) row[0], (String) row[1], ((Number) row[2]).longValue(),
+                    ((Number) row[3]).longValue()));
+        }
+        return ranking;
+    }
+
     /**
      * Voegt een Guitarist object toe aan de database.
      * @param guitarist Het toe te voegen Guitarist object.
      */
+    @Transactional
     public void addGuitarist(Guitarist guitarist) {
-        guitaristRepository.save(guitarist);
+        GuitaristSnapshot before = guitarist.getId() == null ? null
+                : guitaristRepository.findById(guitarist.getId()).map(GuitaristSnapshot::of).orElse(null);
+        Guitarist saved = guitaristRepository.save(guitarist);
+        eventPublisher.publishEvent(new GuitaristChangedEvent(before, GuitaristSnapshot.of(saved)));
     }
 
     /**
-     * Overschrijft het Guitarist object dat het meegegeven id heeft met een nieuw Guitarist object.
+     * Overschrijft het Guitarist object dat het meegegeven id heeft met een nieuw Guitarist object. Net als bij
+     * patchGuitarist blijft de "gear list" staan: die wordt alleen via de GearController gewijzigd, zodat iedere
+     * wijziging een GearListChangedEvent (en dus een "gear-list-changed" event in de outbox) oplevert.
      * @param id Het id van het Guitarist object dat overschreven moet worden.
-     * @param guitarist Het nieuwe Guitarist object waarmee het oude object overschreven moet worden.
+     * @param guitarist Het nieuwe Guitarist object waarmee het oude object overschreven moet worden. Een
+     *                  meegestuurde "gearList" wordt genegeerd.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 412 als de "If-Match" header niet overeenkomt met de huidige ETag.
      */
-    public void updateGuitarist(Long id, Guitarist guitarist) {
-        if(guitaristRepository.findById(id).isPresent()) {
-            guitarist.setId(id);
-            guitaristRepository.save(guitarist);
+    @Transactional
+    public void updateGuitarist(Long id, Guitarist guitarist, String ifMatch) {
+        Optional<Guitarist> existing = guitaristRepository.findById(id);
+        if(existing.isPresent()) {
+            ETags.checkIfMatch(ifMatch, getGuitaristETag(id));
+            Guitarist current = existing.get();
+            GuitaristSnapshot before = GuitaristSnapshot.of(current);
+            // alle eigen velden worden vervangen, ook door null; de join tabel van de "gear list" blijft ongemoeid
+            ObjectNode fields = objectMapper.valueToTree(guitarist);
+            fields.retain(PATCHABLE_FIELDS);
+            MergePatch.apply(objectMapper, current, fields);
+            eventPublisher.publishEvent(new GuitaristChangedEvent(before, GuitaristSnapshot.of(current)));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found");
         }
     }
 
+    /**
+     * Wijzigt alleen de velden van een Guitarist object die in een JSON Merge Patch staan. De "gear list" kan
+     * hiermee niet gewijzigd worden; daarvoor zijn er de bulk endpoints van de GearController.
+     * @param id Het id van het te wijzigen Guitarist object.
+     * @param patch De patch, bijv. {"genre": "Blues"}.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 404 als het Guitarist object niet bestaat, met status 412 als de
+     *                                 "If-Match" header niet klopt en met status 400 bij een ongeldige patch.
+     */
+    @Transactional
+    public void patchGuitarist(Long id, JsonNode patch, String ifMatch) {
+        Guitarist guitarist = guitaristRepository.findById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found"));
+        if (ifMatch != null) {
+            ETags.checkIfMatch(ifMatch, getGuitaristETag(id));
+        }
+        GuitaristSnapshot before = GuitaristSnapshot.of(guitarist);
+        MergePatch.apply(objectMapper, guitarist, MergePatch.fields(patch, PATCHABLE_FIELDS));
+        eventPublisher.publishEvent(new GuitaristChangedEvent(before, GuitaristSnapshot.of(guitarist)));
+    }
+
     /**
      * Verwijdert een Guitarist object met een bepaald id uit de database.
      * @param id Het id van het te verwijderen Guitarist object.
      */
+    @Transactional
     public void deleteGuitarist(Long id) {
-        if(guitaristRepository.findById(id).isPresent()) {
-            guitaristRepository.deleteById(id);
+        Optional<Guitarist> guitarist = guitaristRepository.findById(id);
+        if(guitarist.isPresent()) {
+            guitaristRepository.delete(guitarist.get());
+            eventPublisher.publishEvent(new GuitaristChangedEvent(GuitaristSnapshot.of(guitarist.get()), null));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Guitarist with id " + id + " not found");
         }
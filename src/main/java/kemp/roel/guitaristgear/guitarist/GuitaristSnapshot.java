@@ -0,0 +1,70 @@
+package kemp.roel.guitaristgear.guitarist;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een onveranderlijke kopie van de velden van een Guitarist object op één moment. De "gear list" hoort er niet bij;
+ * wijzigingen daarvan worden met een GearListChangedEvent doorgegeven.
+ */
+
+public class GuitaristSnapshot {
+    private final Long id;
+    private final String name;
+    private final String genre;
+    private final int birthYear;
+
+    /**
+     * Constructor voor een GuitaristSnapshot object.
+     * @param id Het id van het Guitarist object.
+     * @param name De naam van het Guitarist object.
+     * @param genre Het genre van het Guitarist object.
+     * @param birthYear Het geboortejaar van het Guitarist object.
+     */
+    public GuitaristSnapshot(Long id, String name, String genre, int birthYear) {
+        this.id = id;
+        this.name = name;
+        this.genre = genre;
+        this.birthYear = birthYear;
+    }
+
+    /**
+     * Maakt een kopie van de huidige toestand van een Guitarist object.
+     * @param guitarist Het Guitarist object.
+     * @return De kopie van de toestand.
+     */
+    public static GuitaristSnapshot of(Guitarist guitarist) {
+        return new GuitaristSnapshot(guitarist.getId(), guitarist.getName(), guitarist.getGenre(),
+                guitarist.getBirthYear());
+    }
+
+    /**
+     * Getter voor het id.
+     * @return Het id van het Guitarist object.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Getter voor de naam.
+     * @return De naam van het Guitarist object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor het genre.
+     * @return Het genre van het Guitarist object.
+     */
+    public String getGenre() {
+        return genre;
+    }
+
+    /**
+     * Getter voor het geboortejaar.
+     * @return Het geboortejaar van het Guitarist object.
+     */
+    public int getBirthYear() {
+        return birthYear;
+    }
+}
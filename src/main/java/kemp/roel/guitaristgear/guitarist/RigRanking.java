@@ -0,0 +1,60 @@
+package kemp.roel.guitaristgear.guitarist;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén regel van de ranglijst van rigs: een gitarist met het aantal items en het totale gewicht van zijn
+ * "gear list".
+ */
+
+public class RigRanking {
+    private final Long guitaristId;
+    private final String name;
+    private final long itemCount;
+    private final long totalWeightInGrams;
+
+    /**
+     * Constructor voor een RigRanking object.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param name De naam van de gitarist.
+     * @param itemCount Het aantal items in de rig.
+     * @param totalWeightInGrams Het totale gewicht van de rig.
+     */
+    public RigRanking(Long guitaristId, String name, long itemCount, long totalWeightInGrams) {
+        this.guitaristId = guitaristId;
+        this.name = name;
+        this.itemCount = itemCount;
+        this.totalWeightInGrams = totalWeightInGrams;
+    }
+
+    /**
+     * Getter voor het id van het Guitarist object.
+     * @return Het id van het Guitarist object.
+     */
+    public Long getGuitaristId() {
+        return guitaristId;
+    }
+
+    /**
+     * Getter voor de naam.
+     * @return De naam van de gitarist.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor het aantal items.
+     * @return Het aantal items in de rig.
+     */
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Getter voor het totale gewicht.
+     * @return Het totale gewicht van de rig in grammen.
+     */
+    public long getTotalWeightInGrams() {
+        return totalWeightInGrams;
+    }
+}
@@ -0,0 +1,175 @@
+package kemp.roel.guitaristgear.guitarist;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * De totalen van de "gear list" (de rig) van één gitarist: het totale gewicht, het aantal items en dezelfde
+ * totalen per type en per merk. Gear die meer dan eens op de lijst staat telt ook meer dan eens mee.
+ */
+
+public class RigSummary {
+    private final Long guitaristId;
+    private final long itemCount;
+    private final long totalWeightInGrams;
+    private final List<TypeTotal> byType;
+    private final List<BrandTotal> byBrand;
+
+    /**
+     * Constructor voor een RigSummary object.
+     * @param guitaristId Het id van het Guitarist object.
+     * @param itemCount Het aantal items in de rig.
+     * @param totalWeightInGrams Het totale gewicht van de rig.
+     * @param byType De totalen per genormaliseerd type, zwaarste eerst.
+     * @param byBrand De totalen per merk, zwaarste eerst.
+     */
+    public RigSummary(Long guitaristId, long itemCount, long totalWeightInGrams, List<TypeTotal> byType,
+                      List<BrandTotal> byBrand) {
+        this.guitaristId = guitaristId;
+        this.itemCount = itemCount;
+        this.totalWeightInGrams = totalWeightInGrams;
+        this.byType = byType;
+        this.byBrand = byBrand;
+    }
+
+    /**
+     * Getter voor het id van het Guitarist object.
+     * @return Het id van het Guitarist object.
+     */
+    public Long getGuitaristId() {
+        return guitaristId;
+    }
+
+    /**
+     * Getter voor het aantal items.
+     * @return Het aantal items in de rig.
+     */
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Getter voor het totale gewicht.
+     * @return Het totale gewicht van de rig in grammen.
+     */
+    public long getTotalWeightInGrams() {
+        return totalWeightInGrams;
+    }
+
+    /**
+     * Getter voor de totalen per type.
+     * @return De totalen per genormaliseerd type, zwaarste eerst.
+     */
+    public List<TypeTotal> getByType() {
+        return byType;
+    }
+
+    /**
+     * Getter voor de totalen per merk.
+     * @return De totalen per merk, zwaarste eerst.
+     */
+    public List<BrandTotal> getByBrand() {
+        return byBrand;
+    }
+
+    /**
+     * Het aantal items en het gewicht van één type in de rig.
+     */
+    public static class TypeTotal {
+        private final String type;
+        private final long itemCount;
+        private final long weightInGrams;
+
+        /**
+         * Constructor voor een TypeTotal object.
+         * @param type Het genormaliseerde type. Null voor gear zonder type.
+         * @param itemCount Het aantal items van dit type.
+         * @param weightInGrams Het gewicht van de items van dit type.
+         */
+        public TypeTotal(String type, long itemCount, long weightInGrams) {
+            this.type = type;
+            this.itemCount = itemCount;
+            this.weightInGrams = weightInGrams;
+        }
+
+        /**
+         * Getter voor het type.
+         * @return Het genormaliseerde type, of null.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Getter voor het aantal items.
+         * @return Het aantal items van dit type.
+         */
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Getter voor het gewicht.
+         * @return Het gewicht van de items van dit type in grammen.
+         */
+        public long getWeightInGrams() {
+            return weightInGrams;
+        }
+    }
+
+    /**
+     * Het aantal items en het gewicht van één merk in de rig.
+     */
+    public static class BrandTotal {
+        private final Long brandId;
+        private final String brandName;
+        private final long itemCount;
+        private final long weightInGrams;
+
+        /**
+         * Constructor voor een BrandTotal object.
+         * @param brandId Het id van het merk. Null voor gear zonder merk.
+         * @param brandName De naam van het merk. Null voor gear zonder merk.
+         * @param itemCount Het aantal items van dit merk.
+         * @param weightInGrams Het gewicht van de items van dit merk.
+         */
+        public BrandTotal(Long brandId, String brandName, long itemCount, long weightInGrams) {
+            this.brandId = brandId;
+            this.brandName = brandName;
+            this.itemCount = itemCount;
+            this.weightInGrams = weightInGrams;
+        }
+
+        /**
+         * Getter voor het id van het merk.
+         * @return Het id van het merk, of null.
+         */
+        public Long getBrandId() {
+            return brandId;
+        }
+
+        /**
+         * Getter voor de naam van het merk.
+         * @return De naam van het merk, of null.
+         */
+        public String getBrandName() {
+            return brandName;
+        }
+
+        /**
+         * Getter voor het aantal items.
+         * @return Het aantal items van dit merk.
+         */
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Getter voor het gewicht.
+         * @return Het gewicht van de items van dit merk in grammen.
+         */
+        public long getWeightInGrams() {
+            return weightInGrams;
+        }
+    }
+}
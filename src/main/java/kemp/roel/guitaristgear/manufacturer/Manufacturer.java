@@ -1,18 +1,30 @@
 package kemp.roel.guitaristgear.manufacturer;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+import javax.persistence.*;
 
 /**
  * Auteur: Roel Kemp (500781)
  */
 
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@BatchSize(size = 50)
 public class Manufacturer {
 
+    // Id's worden in blokken van 50 uitgedeeld (pooled-lo), zodat niet iedere insert een sequence aanroep kost.
+    // De sequence begint bij 1000 omdat bestaande rijen hun id al uit "hibernate_sequence" gekregen hebben. Heeft een
+    // oude database al id's boven de 1000, dan laat V2__RestartIdSequences hem na het hoogste id beginnen.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "manufacturer_seq")
+    @SequenceGenerator(name = "manufacturer_seq", sequenceName = "manufacturer_seq", initialValue = 1000, allocationSize = 50)
     private Long id;
 
     private String name;
@@ -20,6 +32,17 @@ public class Manufacturer {
     private String placeFounded;
     private int yearFounded;
 
+    // Door H2 berekende kolom met de naam in kleine letters, zodat op merknaam gefilterd kan worden via een index.
+    @Column(name = "name_normalized", insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(255) AS LOWER(name)")
+    private String nameNormalized;
+
+    // Basis van de ETag; bestaande rijen krijgen versie 0.
+    @Version
+    @JsonIgnore
+    @Column(columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
+
     /**
      * Default constructor voor Manufacturer.
      */
@@ -94,4 +117,20 @@ public class Manufacturer {
     public void setId(Long id) {
         this.id = id;
     }
+
+    /**
+     * De getter voor de versie van dit Manufacturer object.
+     * @return De versie, die bij iedere wijziging door Hibernate opgehoogd wordt.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * De setter voor de versie van dit Manufacturer object.
+     * @param version De versie waarmee het object bij het opslaan vergeleken wordt.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Wordt door ManufacturerService gepubliceerd als een Manufacturer object toegevoegd, gewijzigd of verwijderd wordt.
+ * Het event wordt binnen de transactie van de wijziging gepubliceerd.
+ */
+
+public class ManufacturerChangedEvent {
+    private final ManufacturerSnapshot before;
+    private final ManufacturerSnapshot after;
+
+    /**
+     * Constructor voor een ManufacturerChangedEvent object.
+     * @param before De toestand voor de wijziging. Is null als het Manufacturer object nieuw is.
+     * @param after De toestand na de wijziging. Is null als het Manufacturer object verwijderd is.
+     */
+    public ManufacturerChangedEvent(ManufacturerSnapshot before, ManufacturerSnapshot after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Getter voor de toestand voor de wijziging.
+     * @return De toestand voor de wijziging, of null als het Manufacturer object nieuw is.
+     */
+    public ManufacturerSnapshot getBefore() {
+        return before;
+    }
+
+    /**
+     * Getter voor de toestand na de wijziging.
+     * @return De toestand na de wijziging, of null als het Manufacturer object verwijderd is.
+     */
+    public ManufacturerSnapshot getAfter() {
+        return after;
+    }
+
+    /**
+     * Getter voor het id van het gewijzigde Manufacturer object.
+     * @return Het id van het gewijzigde Manufacturer object.
+     */
+    public Long getManufacturerId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -1,11 +1,25 @@
 package kemp.roel.guitaristgear.manufacturer;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import kemp.roel.guitaristgear.bulk.BulkImportResult;
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.cache.ResponseCache;
+import kemp.roel.guitaristgear.etag.ETags;
 import kemp.roel.guitaristgear.gear.Gear;
 import kemp.roel.guitaristgear.gear.GearService;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 
 /**
  * Auteur: Roel Kemp (500781)
@@ -18,15 +32,23 @@ public class ManufacturerController {
 
     private final ManufacturerService manufacturerService;
     private final GearService gearService;
+    private final ManufacturerStatsService manufacturerStatsService;
+    private final ResponseCache responseCache;
 
     /**
      * Constructor voor ManufacturerController.
      * @param manufacturerService Het ManufacturerService object waar de controller zijn informatie uit haalt.
+     * @param gearService Het GearService object waarmee gear aan een Manufacturer object gekoppeld wordt.
+     * @param manufacturerStatsService Het ManufacturerStatsService object met de statistieken per merk.
+     * @param responseCache De cache met geserialiseerde lijsten.
      */
     @Autowired
-    public ManufacturerController(ManufacturerService manufacturerService, GearService gearService) {
+    public ManufacturerController(ManufacturerService manufacturerService, GearService gearService,
+                                  ManufacturerStatsService manufacturerStatsService, ResponseCache responseCache) {
         this.manufacturerService = manufacturerService;
         this.gearService = gearService;
+        this.manufacturerStatsService = manufacturerStatsService;
+        this.responseCache = responseCache;
     }
 
     // GET mappings
@@ -35,22 +57,64 @@ public class ManufacturerController {
      * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/manufacturer".
      * Geeft een lijst terug van Manufacturer objecten. Eventueel gefilterd op mainProductType.
      * @param mainProductType Een String die gebruikt kan worden om te filteren op mainProductType. Mag null zijn.
-     * @return Een lijst van Manufacturer objecten. Kan leeg zijn.
+     * @param accept De "Accept" header. Bepaalt of de lijst als JSON, CBOR of Smile verstuurd wordt. Mag null zijn.
+     * @param acceptEncoding De "Accept-Encoding" header. Als de client gzip accepteert, wordt de vooraf
+     *                       gecomprimeerde body uit de cache verstuurd. Mag null zijn.
+     * @return Een lijst van Manufacturer objecten als JSON, CBOR of Smile. Kan leeg zijn.
      */
     @GetMapping
-    public List<Manufacturer> getAllManufacturers(String mainProductType) {
-        return manufacturerService.getAllManufacturers(mainProductType);
+    public ResponseEntity<byte[]> getAllManufacturers(String mainProductType,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        WireFormat format = WireFormat.negotiate(accept);
+        CacheKey key = CacheKey.of(CacheKey.MANUFACTURER, format.getName()).with("mainProductType", mainProductType);
+        return responseCache.get(key, () -> manufacturerService.getAllManufacturers(mainProductType))
+                .toResponseEntity(acceptEncoding);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/manufacturer/page".
+     * Geeft een pagina Manufacturer objecten terug, met een token waarmee de volgende pagina opgevraagd kan worden.
+     * @param sort De sorteersleutel: "id" (standaard) of "name". Bij "name" worden objecten
+     *             zonder naam niet teruggegeven; die zijn alleen met "id" op te vragen.
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het "nextPageToken" uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Manufacturer objecten.
+     */
+    @GetMapping("/page")
+    public CursorPage<Manufacturer> getManufacturerPage(@RequestParam(defaultValue = "id") String sort,
+                                                        @RequestParam(required = false) Integer pageSize,
+                                                        @RequestParam(required = false) String pageToken) {
+        return manufacturerService.getManufacturerPage(sort, pageSize, pageToken);
     }
 
     /**
      * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/manufacturer/{id}".
      * Geeft een Manufacturer object terug op basis van id.
+     * Als de "If-None-Match" header overeenkomt met de huidige ETag, wordt 304 teruggegeven zonder het object
+     * te laden.
      * @param id Het id van het opgevraagde Manufacturer object.
+     * @param request Het request, nodig voor de "If-None-Match" header.
+     * @param accept De "Accept" header, die bepaalt in welk formaat het object en dus welke ETag verstuurd wordt.
      * @return Het opgevraagde manufacturer object.
      */
     @GetMapping("/{id}")
-    public Manufacturer getManufacturerById(@PathVariable Long id) {
-        return manufacturerService.getManufacturerById(id);
+    public ResponseEntity<Manufacturer> getManufacturerById(@PathVariable Long id, WebRequest request,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return ETags.conditionalGet(request, accept, manufacturerService.getManufacturerETag(id),
+                () -> manufacturerService.getManufacturerById(id));
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/manufacturer/{id}/stats".
+     * Geeft de bijgehouden statistieken van een Manufacturer object terug: het aantal Gear objecten,
+     * het totale en gemiddelde gewicht en het aantal Gear objecten per type.
+     * @param id Het id van het Manufacturer object.
+     * @return De statistieken van het Manufacturer object.
+     */
+    @GetMapping("/{id}/stats")
+    public ManufacturerStats getManufacturerStats(@PathVariable Long id) {
+        return manufacturerStatsService.getStats(id);
     }
 
     // POST mappings
@@ -64,16 +128,48 @@ public class ManufacturerController {
         manufacturerService.addManufacturer(manufacturer);
     }
 
+    /**
+     * De methode die aangeroepen wordt als er een POST request wordt gestuurd naar "/gg/manufacturer/bulk".
+     * Importeert een JSON array, een NDJSON stream, een CBOR sequence of een Smile stream met Manufacturer
+     * objecten in blokken. Foute rijen stoppen de import niet.
+     * @param body De request body met de Manufacturer objecten.
+     * @param contentType De "Content-Type" header, waaruit het formaat van de body volgt.
+     * @return Het aantal geïmporteerde en foute rijen, de doorvoer en per foute rij de reden.
+     * @throws IOException Als de request body niet gelezen kan worden.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson",
+            MediaType.APPLICATION_CBOR_VALUE, WireFormat.CBOR_SEQ_VALUE, WireFormat.SMILE_VALUE})
+    public BulkImportResult importManufacturers(InputStream body,
+                                                @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType)
+            throws IOException {
+        return manufacturerService.importManufacturers(body, WireFormat.fromContentType(contentType));
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een POST request wordt gestuurd naar "/gg/manufacturer/stats/rebuild".
+     * Berekent de statistieken van alle merken opnieuw uit de Gear tabel en herstelt de statistieken die afwijken.
+     * @return Het aantal herstelde statistieken onder "repaired".
+     */
+    @PostMapping("/stats/rebuild")
+    public Map<String, Integer> rebuildManufacturerStats() {
+        return Map.of("repaired", manufacturerStatsService.rebuildStats());
+    }
+
     // PUT mappings
     /**
      * De methode die aangeroepen wordt als er een PUT request wordt gestuurd naar "/gg/manufacturer/{id}".
      * Overschrijft het Manufacturer object met het meegegeven id, met een nieuw Manufacturer object.
      * @param id Het id van het te overschrijven Manufacturer object.
      * @param manufacturer Het nieuwe Manufacturer object.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets overschreven. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
      */
     @PutMapping("/{id}")
-    public void updateManufacturer(@PathVariable Long id, @RequestBody Manufacturer manufacturer) {
-        manufacturerService.updateManufacturer(id, manufacturer);
+    public ResponseEntity<Void> updateManufacturer(@PathVariable Long id, @RequestBody Manufacturer manufacturer,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        manufacturerService.updateManufacturer(id, manufacturer, ifMatch);
+        return ResponseEntity.ok().eTag(manufacturerService.getManufacturerETag(id)).build();
     }
 
     /**
@@ -88,6 +184,24 @@ public class ManufacturerController {
         gearService.addGearToManufacturer(id, gear);
     }
 
+    // PATCH mappings
+
+    /**
+     * De methode die aangeroepen wordt als er een PATCH request wordt gestuurd naar "/gg/manufacturer/{id}".
+     * Wijzigt alleen de velden van het Manufacturer object die in de JSON Merge Patch (RFC 7396) staan.
+     * @param id Het id van het te wijzigen Manufacturer object.
+     * @param patch De velden die veranderen. Een veld met null wordt leeg gemaakt.
+     * @param ifMatch De ETag die de client als laatste gezien heeft. Als deze niet meer klopt wordt 412 teruggegeven
+     *                en wordt er niets gewijzigd. Mag null zijn.
+     * @return Een lege response met de nieuwe ETag.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchManufacturer(@PathVariable Long id, @RequestBody JsonNode patch,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        manufacturerService.patchManufacturer(id, patch, ifMatch);
+        return ResponseEntity.ok().eTag(manufacturerService.getManufacturerETag(id)).build();
+    }
+
     // DELETE mappings
 
     /**
@@ -1,8 +1,12 @@
 package kemp.roel.guitaristgear.manufacturer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,4 +21,49 @@ public interface ManufacturerRepository extends JpaRepository<Manufacturer, Long
      * @return Het opgevraagde Manufacturer object. Kan null zijn.
      */
     Optional<Manufacturer> findManufacturerByName(String name);
+
+    /**
+     * Haalt de id's van alle Manufacturer objecten op, zonder de objecten zelf te laden.
+     * @return Een lijst met alle id's. Kan leeg zijn.
+     */
+    @Query("select m.id from Manufacturer m")
+    List<Long> findAllIds();
+
+    /**
+     * Haalt een pagina Manufacturer objecten op, gesorteerd op id, die na het meegegeven id komen (keyset paginering).
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Manufacturer objecten. Kan leeg zijn.
+     */
+    @Query("select m from Manufacturer m where m.id > :afterId order by m.id")
+    List<Manufacturer> findPageOrderById(@Param("afterId") Long afterId, Pageable limit);
+
+    /**
+     * Haalt een pagina Manufacturer objecten op, gesorteerd op naam en daarna id, die na de meegegeven naam en id komen.
+     * Manufacturer objecten zonder naam worden bij deze sortering overgeslagen. De losse voorwaarde op de naam geeft de
+     * startpositie in idx_manufacturer_name_id; de OR filtert daarna alleen nog de rijen met dezelfde naam.
+     * @param afterName De naam van de laatste rij van de vorige pagina. Een lege String voor de eerste pagina.
+     * @param afterId Het id van de laatste rij van de vorige pagina. Long.MIN_VALUE voor de eerste pagina.
+     * @param limit Het maximale aantal rijen.
+     * @return Een lijst van Manufacturer objecten. Kan leeg zijn.
+     */
+    @Query("select m from Manufacturer m " +
+            "where m.name >= :afterName and (m.name > :afterName or m.id > :afterId) order by m.name, m.id")
+    List<Manufacturer> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId,
+                                           Pageable limit);
+
+    /**
+     * Haalt de versie van een Manufacturer object op, zonder het object zelf te laden.
+     * @param id Het id van het Manufacturer object.
+     * @return De versie. Mits aanwezig.
+     */
+    @Query("select m.version from Manufacturer m where m.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Haalt alleen het id en de naam van alle Manufacturer objecten op, voor de zoekindex.
+     * @return Per Manufacturer object een rij met id en naam.
+     */
+    @Query("select m.id, m.name from Manufacturer m")
+    List<Object[]> findAllIdsAndNames();
 }
\ No newline at end of file
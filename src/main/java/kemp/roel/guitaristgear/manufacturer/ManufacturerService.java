@@ -1,15 +1,27 @@
 package kemp.roel.guitaristgear.manufacturer;
 
-import kemp.roel.guitaristgear.gear.Gear;
-import kemp.roel.guitaristgear.gear.GearRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.bulk.BulkImportResult;
+import kemp.roel.guitaristgear.bulk.BulkImporter;
+import kemp.roel.guitaristgear.etag.ETags;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.paging.PageToken;
+import kemp.roel.guitaristgear.patch.MergePatch;
+import kemp.roel.guitaristgear.wireformat.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Auteur: Roel Kemp (500781)
@@ -17,20 +29,35 @@ import java.util.Optional;
 
 @Service
 public class ManufacturerService {
+    private static final Set<String> PATCHABLE_FIELDS =
+            Set.of("name", "mainProductType", "placeFounded", "yearFounded");
+
     private final ManufacturerRepository manufacturerRepository;
-    private final GearRepository gearRepository;
+    private final ManufacturerStatsService manufacturerStatsService;
+    private final BulkImporter bulkImporter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
     /**
      * Contructor voor ManufacturerService. Deze service moet verschillende Repositories kunnen benaderen.
      * @param manufacturerRepository Nodig om een of meer Manufacturer objecten op te halen, toe te voegen,
      *                               te bewerken of te verwijderen.
-     * @param gearRepository Wordt gebruikt om te controleren of er zich een Gear object in de database bevind
-     *                       dat is geassocieerd met een bepaald Manufacturer object.
+     * @param manufacturerStatsService Wordt gebruikt om te controleren of er zich een Gear object in de database
+     *                                 bevind dat is geassocieerd met een bepaald Manufacturer object.
+     * @param bulkImporter Nodig om grote hoeveelheden Manufacturer objecten in één keer te importeren.
+     * @param eventPublisher Nodig om bij iedere wijziging van een Manufacturer object een ManufacturerChangedEvent
+     *                       te publiceren.
+     * @param objectMapper Nodig om een merge patch op een Manufacturer object toe te passen.
      */
     @Autowired
-    public ManufacturerService(ManufacturerRepository manufacturerRepository, GearRepository gearRepository) {
+    public ManufacturerService(ManufacturerRepository manufacturerRepository,
+                               ManufacturerStatsService manufacturerStatsService, BulkImporter bulkImporter,
+                               ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
         this.manufacturerRepository = manufacturerRepository;
-        this.gearRepository = gearRepository;
+        this.manufacturerStatsService = manufacturerStatsService;
+        this.bulkImporter = bulkImporter;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -38,6 +65,7 @@ public class ManufacturerService {
      * @param mainProductType De String waarmee gefilterd kan worden op mainProductType
      * @return Een lijst van Manufacturer objecten. Kan leeg zijn.
      */
+    @Transactional(readOnly = true)
     public List<Manufacturer> getAllManufacturers(String mainProductType) {
         List<Manufacturer> allManufacturers = manufacturerRepository.findAll();
         if (mainProductType != null) {
@@ -54,23 +82,66 @@ public class ManufacturerService {
         return allManufacturers;
     }
 
+    /**
+     * Geeft een pagina Manufacturer objecten terug. De pagina's worden met keyset paginering opgehaald, zodat een diepe
+     * pagina net zo snel is als de eerste.
+     * @param sort De sorteersleutel: "id" of "name".
+     * @param pageSize Het gewenste aantal objecten per pagina. Mag null zijn.
+     * @param pageToken Het token uit de vorige pagina. Mag null zijn voor de eerste pagina.
+     * @return Een pagina met Manufacturer objecten en eventueel een token voor de volgende pagina.
+     * @throws ResponseStatusException Gooit HTTP code 400 bij een onbekende sortering of een ongeldig token.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Manufacturer> getManufacturerPage(String sort, Integer pageSize, String pageToken) {
+        int size = CursorPage.pageSize(pageSize);
+        PageToken token = PageToken.decode(pageToken, sort);
+        Long afterId = token == null ? Long.MIN_VALUE : token.getLastId();
+
+        switch (sort) {
+            case "id":
+                return CursorPage.of(manufacturerRepository.findPageOrderById(afterId, CursorPage.limit(size)),
+                        size, sort, Manufacturer::getId, Manufacturer::getId);
+            case "name":
+                String afterName = token == null ? "" : token.getLastValue();
+                return CursorPage.of(manufacturerRepository.findPageOrderByName(afterName, afterId,
+                        CursorPage.limit(size)), size, sort, Manufacturer::getId, Manufacturer::getName);
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort manufacturers on \"" + sort + "\"");
+        }
+    }
+
     /**
      * Geeft een Manufacturer object terug op basis van id.
      * @param id Het id van het opgevraagde manufacturer object.
      * @return Het opgevraagde manufacturer object. Mits aanwezig.
      * @throws ResponseStatusException Wordt gegooit als er geen Manufacturer object mat dat id in de DB aanwezig is.
      */
+    @Transactional(readOnly = true)
     public Manufacturer getManufacturerById(Long id) {
         Optional<Manufacturer> m = manufacturerRepository.findById(id);
         return m.orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id + " not found"));
     }
 
+    /**
+     * Geeft de ETag van een Manufacturer object terug, zonder het object zelf te laden.
+     * @param id Het id van het Manufacturer object.
+     * @return De sterke ETag van het Manufacturer object.
+     * @throws ResponseStatusException Als er geen Manufacturer object met het opgevraagde id in de database aanwezig is.
+     */
+    @Transactional(readOnly = true)
+    public String getManufacturerETag(Long id) {
+        Optional<Long> version = manufacturerRepository.findVersionById(id);
+        return ETags.of(id, version.orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id + " not found")));
+    }
+
     /**
      * Geeft een Manufacturer object terug op basis van naam.
      * @param name De naam die hoort bij het opgevraagde Manufacturer object.
      * @return Het opgevraagde Manufacturer object.
      * @throws ResponseStatusException Wordt gegooit als er geen Manufacturer object mat die naam in de DB aanwezig is.
      */
+    @Transactional(readOnly = true)
     public Manufacturer getManufacturerByName(String name) {
         Optional<Manufacturer> m = manufacturerRepository.findManufacturerByName(name);
         return m.orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -81,51 +152,107 @@ public class ManufacturerService {
      * Voegt Manufacturer object toe aan de database.
      * @param manufacturer Het toe te voegen Manufacturer object.
      */
+    @Transactional
     public void addManufacturer(Manufacturer manufacturer) {
-        manufacturerRepository.save(manufacturer);
+        ManufacturerSnapshot before = manufacturer.getId() == null ? null
+                : manufacturerRepository.findById(manufacturer.getId()).map(ManufacturerSnapshot::of).orElse(null);
+        Manufacturer saved = manufacturerRepository.save(manufacturer);
+        manufacturerStatsService.createStats(saved.getId());
+        eventPublisher.publishEvent(new ManufacturerChangedEvent(before, ManufacturerSnapshot.of(saved)));
+    }
+
+    /**
+     * Importeert een array of reeks Manufacturer objecten in JSON, CBOR of Smile. Meegestuurde id's worden genegeerd.
+     * Foute rijen worden overgeslagen en in het resultaat gemeld.
+     * @param in De stream met Manufacturer objecten.
+     * @param format Het formaat van de stream.
+     * @return Het resultaat van de import.
+     * @throws IOException Als de stream niet gelezen kan worden.
+     */
+    public BulkImportResult importManufacturers(InputStream in, WireFormat format) throws IOException {
+        return bulkImporter.importAll(in, format, Manufacturer.class, manufacturer -> {
+            if (manufacturer.getName() == null || manufacturer.getName().isBlank()) {
+                return "Manufacturer must have a name";
+            }
+            return null;
+        }, manufacturer -> {
+            // de statistieken van een nieuw merk worden aangemaakt zodra er gear aan gekoppeld wordt
+            manufacturer.setId(null);
+            Manufacturer saved = manufacturerRepository.save(manufacturer);
+            eventPublisher.publishEvent(new ManufacturerChangedEvent(null, ManufacturerSnapshot.of(saved)));
+        });
     }
 
     /**
      * Overschrijft het Manufacturer object met het meegegeven id, met een nieuw Manufacturer object.
      * @param id Het id van het te overschrijven Manufacturer object.
      * @param manufacturer Het nieuwe Manufacturer object.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 412 als de "If-Match" header niet overeenkomt met de huidige ETag.
      */
-    public void updateManufacturer(Long id, Manufacturer manufacturer) {
-        if (manufacturerRepository.findById(id).isPresent()) {
+    @Transactional
+    public void updateManufacturer(Long id, Manufacturer manufacturer, String ifMatch) {
+        Optional<Manufacturer> existing = manufacturerRepository.findById(id);
+        if (existing.isPresent()) {
+            ETags.checkIfMatch(ifMatch, getManufacturerETag(id));
+            ManufacturerSnapshot before = ManufacturerSnapshot.of(existing.get());
             manufacturer.setId(id);
-            manufacturerRepository.save(manufacturer);
+            manufacturer.setVersion(existing.get().getVersion());
+            Manufacturer saved = manufacturerRepository.save(manufacturer);
+            eventPublisher.publishEvent(new ManufacturerChangedEvent(before, ManufacturerSnapshot.of(saved)));
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id + " not found");
         }
     }
 
+    /**
+     * Wijzigt alleen de velden van een Manufacturer object die in een JSON Merge Patch staan.
+     * @param id Het id van het te wijzigen Manufacturer object.
+     * @param patch De patch, bijv. {"placeFounded": "Fullerton"}.
+     * @param ifMatch De "If-Match" header van het request. Mag null zijn.
+     * @throws ResponseStatusException Met status 404 als het Manufacturer object niet bestaat, met status 412 als de
+     *                                 "If-Match" header niet klopt en met status 400 bij een ongeldige patch.
+     */
+    @Transactional
+    public void patchManufacturer(Long id, JsonNode patch, String ifMatch) {
+        Manufacturer manufacturer = manufacturerRepository.findById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id + " not found"));
+        if (ifMatch != null) {
+            ETags.checkIfMatch(ifMatch, getManufacturerETag(id));
+        }
+        ManufacturerSnapshot before = ManufacturerSnapshot.of(manufacturer);
+        MergePatch.apply(objectMapper, manufacturer, MergePatch.fields(patch, PATCHABLE_FIELDS));
+        eventPublisher.publishEvent(new ManufacturerChangedEvent(before, ManufacturerSnapshot.of(manufacturer)));
+    }
+
     /**
      * Verwijderd een Manufacturer object op basis van id.
      * @param id Het id van het te verwijderen Manufacturer object.
      */
+    @Transactional
     public void deleteManufacturer(Long id) {
-        if (manufacturerRepository.findById(id).isEmpty()) {
+        Optional<Manufacturer> manufacturer = manufacturerRepository.findById(id);
+        if (manufacturer.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + id + " not found");
         }
         else if (hasGearinDB(id)) {
             throw new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED,
                     "Manufacturer with id " + id + " is still associated with Gear in database.");
         } else {
-            manufacturerRepository.deleteById(id);
+            manufacturerStatsService.deleteStats(id);
+            manufacturerRepository.delete(manufacturer.get());
+            eventPublisher.publishEvent(new ManufacturerChangedEvent(ManufacturerSnapshot.of(manufacturer.get()), null));
         }
     }
 
     /**
      * Een methode die controleert of een Manufacturer object geassocieerd is met een Gear object in de database.
+     * Gebruikt de bijgehouden statistieken, zodat de Gear tabel niet gelezen hoeft te worden.
      * @param manId Het id van het te controleren Manufacturer object.
      * @return true als het Manufacturer object geassocieerd is met een Gear object in de DB. Anders false.
      */
+    @Transactional(readOnly = true)
     public boolean hasGearinDB(Long manId) {
-        for (Gear gear : gearRepository.findAll()) {
-            if (gear.getBrand().getId().equals(manId)) {
-                return true;
-            }
-        }
-        return false;
+        return manufacturerStatsService.getGearCount(manId) > 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een onveranderlijke kopie van de velden van een Manufacturer object op één moment.
+ */
+
+public class ManufacturerSnapshot {
+    private final Long id;
+    private final String name;
+    private final String mainProductType;
+    private final String placeFounded;
+    private final int yearFounded;
+
+    /**
+     * Constructor voor een ManufacturerSnapshot object.
+     * @param id Het id van het Manufacturer object.
+     * @param name De naam van het Manufacturer object.
+     * @param mainProductType Het type product dat het Manufacturer object het meest produceert.
+     * @param placeFounded De plaats waar het Manufacturer object is opgericht.
+     * @param yearFounded Het jaar waarin het Manufacturer object is opgericht.
+     */
+    public ManufacturerSnapshot(Long id, String name, String mainProductType, String placeFounded, int yearFounded) {
+        this.id = id;
+        this.name = name;
+        this.mainProductType = mainProductType;
+        this.placeFounded = placeFounded;
+        this.yearFounded = yearFounded;
+    }
+
+    /**
+     * Maakt een kopie van de huidige toestand van een Manufacturer object.
+     * @param manufacturer Het Manufacturer object.
+     * @return De kopie van de toestand.
+     */
+    public static ManufacturerSnapshot of(Manufacturer manufacturer) {
+        return new ManufacturerSnapshot(manufacturer.getId(), manufacturer.getName(), manufacturer.getMainProductType(),
+                manufacturer.getPlaceFounded(), manufacturer.getYearFounded());
+    }
+
+    /**
+     * Getter voor het id.
+     * @return Het id van het Manufacturer object.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Getter voor de naam.
+     * @return De naam van het Manufacturer object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor het type product dat het meest geproduceerd wordt.
+     * @return Het mainProductType van het Manufacturer object.
+     */
+    public String getMainProductType() {
+        return mainProductType;
+    }
+
+    /**
+     * Getter voor de plaats van oprichting.
+     * @return Het placeFounded van het Manufacturer object.
+     */
+    public String getPlaceFounded() {
+        return placeFounded;
+    }
+
+    /**
+     * Getter voor het jaar van oprichting.
+     * @return Het yearFounded van het Manufacturer object.
+     */
+    public int getYearFounded() {
+        return yearFounded;
+    }
+}
@@ -0,0 +1,120 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+import javax.persistence.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Statistieken van de gear van één Manufacturer object. Worden bij iedere wijziging van gear bijgewerkt
+ * door ManufacturerStatsService, zodat ze nooit uit de volledige Gear tabel berekend hoeven te worden.
+ */
+
+@Entity
+public class ManufacturerStats {
+
+    @Id
+    private Long manufacturerId;
+
+    private long gearCount;
+    private long totalWeightInGrams;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "manufacturer_stats_type_count", joinColumns = @JoinColumn(name = "manufacturer_id"))
+    @MapKeyColumn(name = "type")
+    @Column(name = "gear_count")
+    private Map<String, Long> gearCountByType = new HashMap<>();
+
+    /**
+     * Default constructor voor een ManufacturerStats object.
+     */
+    public ManufacturerStats() {}
+
+    /**
+     * Constructor voor een leeg ManufacturerStats object.
+     * @param manufacturerId Het id van het Manufacturer object waar de statistieken bij horen.
+     */
+    public ManufacturerStats(Long manufacturerId) {
+        this.manufacturerId = manufacturerId;
+    }
+
+    /**
+     * Telt een groep Gear objecten van hetzelfde type mee in de statistieken.
+     * @param type Het genormaliseerde type van de groep. Mag null zijn.
+     * @param count Het aantal Gear objecten in de groep. Negatief om ze eraf te halen.
+     * @param weightInGrams Het totale gewicht in grammen van de groep. Negatief om het eraf te halen.
+     */
+    void addGroup(String type, long count, long weightInGrams) {
+        gearCount += count;
+        totalWeightInGrams += weightInGrams;
+        if (type != null) {
+            long typeCount = gearCountByType.getOrDefault(type, 0L) + count;
+            if (typeCount > 0) {
+                gearCountByType.put(type, typeCount);
+            } else {
+                gearCountByType.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Vergelijkt de tellingen met die van andere statistieken, bijvoorbeeld met opnieuw berekende.
+     * @param other De andere statistieken.
+     * @return true als het aantal, het totale gewicht en de aantallen per type gelijk zijn.
+     */
+    boolean hasSameCounts(ManufacturerStats other) {
+        return gearCount == other.gearCount && totalWeightInGrams == other.totalWeightInGrams
+                && gearCountByType.equals(other.gearCountByType);
+    }
+
+    /**
+     * Vervangt de tellingen door die van andere statistieken.
+     * @param other De statistieken waarvan de tellingen overgenomen worden.
+     */
+    void copyCountsFrom(ManufacturerStats other) {
+        gearCount = other.gearCount;
+        totalWeightInGrams = other.totalWeightInGrams;
+        gearCountByType.clear();
+        gearCountByType.putAll(other.gearCountByType);
+    }
+
+    /**
+     * Getter voor het id van het Manufacturer object.
+     * @return Het id van het Manufacturer object.
+     */
+    public Long getManufacturerId() {
+        return manufacturerId;
+    }
+
+    /**
+     * Getter voor het aantal Gear objecten van dit merk.
+     * @return Het aantal Gear objecten van dit merk.
+     */
+    public long getGearCount() {
+        return gearCount;
+    }
+
+    /**
+     * Getter voor het totale gewicht van alle Gear objecten van dit merk.
+     * @return Het totale gewicht in grammen.
+     */
+    public long getTotalWeightInGrams() {
+        return totalWeightInGrams;
+    }
+
+    /**
+     * Berekent het gemiddelde gewicht van de Gear objecten van dit merk.
+     * @return Het gemiddelde gewicht in grammen, of 0 als er geen Gear objecten zijn.
+     */
+    public double getAverageWeightInGrams() {
+        return gearCount == 0 ? 0 : (double) totalWeightInGrams / gearCount;
+    }
+
+    /**
+     * Getter voor het aantal Gear objecten per type.
+     * @return Het aantal Gear objecten per genormaliseerd type.
+     */
+    public Map<String, Long> getGearCountByType() {
+        return gearCountByType;
+    }
+}
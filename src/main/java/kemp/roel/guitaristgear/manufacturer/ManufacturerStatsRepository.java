@@ -0,0 +1,47 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+@Repository
+public interface ManufacturerStatsRepository extends JpaRepository<ManufacturerStats, Long> {
+
+    /**
+     * Haalt de statistieken van een aantal Manufacturer objecten op en vergrendelt de rijen tot het einde van de
+     * transactie, zodat gelijktijdige wijzigingen van gear elkaars tellingen niet overschrijven. De rijen worden
+     * op id vergrendeld, zodat twee transacties met dezelfde merken elkaar niet in omgekeerde volgorde blokkeren.
+     * @param manufacturerIds De id's van de Manufacturer objecten.
+     * @return De gevonden statistieken. Merken zonder statistieken ontbreken.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ManufacturerStats s where s.manufacturerId in :manufacturerIds order by s.manufacturerId")
+    List<ManufacturerStats> findAllForUpdate(@Param("manufacturerIds") Collection<Long> manufacturerIds);
+
+    /**
+     * Haalt alle statistieken op en vergrendelt ze, voor het opnieuw opbouwen.
+     * @return Alle statistieken, gesorteerd op id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ManufacturerStats s order by s.manufacturerId")
+    List<ManufacturerStats> findAllForUpdate();
+
+    /**
+     * Berekent per merk en type het aantal Gear objecten en hun totale gewicht. Wordt alleen gebruikt om de
+     * statistieken op te bouwen of te controleren.
+     * @return Rijen met [merk id, genormaliseerd type, aantal, totaal gewicht].
+     */
+    @Query("select g.brand.id, g.typeNormalized, count(g), sum(g.weightInGrams) from Gear g " +
+            "where g.brand is not null group by g.brand.id, g.typeNormalized")
+    List<Object[]> sumGearPerManufacturerAndType();
+}
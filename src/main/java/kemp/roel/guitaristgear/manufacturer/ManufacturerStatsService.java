@@ -0,0 +1,285 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+import kemp.roel.guitaristgear.gear.GearChangedEvent;
+import kemp.roel.guitaristgear.gear.GearSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Houdt de statistieken per Manufacturer object bij. Luistert naar GearChangedEvent en werkt de statistieken bij
+ * binnen dezelfde transactie als de wijziging van het Gear object. De wijzigingen van een transactie worden eerst
+ * verzameld en vlak voor de commit per merk in één keer verwerkt: een blok van de bulk import met duizend rijen van
+ * vijf merken vergrendelt vijf rijen met één query, in plaats van duizend keer een SELECT ... FOR UPDATE.
+ */
+
+@Service
+public class ManufacturerStatsService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManufacturerStatsService.class);
+
+    private final ManufacturerStatsRepository manufacturerStatsRepository;
+    private final ManufacturerRepository manufacturerRepository;
+    private final TransactionTemplate newTransaction;
+
+    /**
+     * Constructor voor ManufacturerStatsService.
+     * @param manufacturerStatsRepository Nodig om de statistieken op te halen en op te slaan.
+     * @param manufacturerRepository Nodig om te controleren of een Manufacturer object bestaat.
+     * @param transactionManager Nodig om ontbrekende statistieken in een eigen transactie aan te maken.
+     */
+    @Autowired
+    public ManufacturerStatsService(ManufacturerStatsRepository manufacturerStatsRepository,
+                                    ManufacturerRepository manufacturerRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.manufacturerStatsRepository = manufacturerStatsRepository;
+        this.manufacturerRepository = manufacturerRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Geeft de statistieken van een Manufacturer object terug.
+     * @param manufacturerId Het id van het Manufacturer object.
+     * @return De statistieken van het Manufacturer object.
+     * @throws ResponseStatusException Gooit HTTP code 404 als het Manufacturer object niet bestaat.
+     */
+    @Transactional(readOnly = true)
+    public ManufacturerStats getStats(Long manufacturerId) {
+        Optional<ManufacturerStats> stats = manufacturerStatsRepository.findById(manufacturerId);
+        if (stats.isPresent()) {
+            return stats.get();
+        } else if (manufacturerRepository.existsById(manufacturerId)) {
+            return new ManufacturerStats(manufacturerId);
+        } else {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Manufacturer with id " + manufacturerId + " not found");
+        }
+    }
+
+    /**
+     * Geeft het aantal Gear objecten van een Manufacturer object terug, zonder de Gear tabel te lezen.
+     * @param manufacturerId Het id van het Manufacturer object.
+     * @return Het aantal Gear objecten van dit merk.
+     */
+    @Transactional(readOnly = true)
+    public long getGearCount(Long manufacturerId) {
+        return manufacturerStatsRepository.findById(manufacturerId).map(ManufacturerStats::getGearCount).orElse(0L);
+    }
+
+    /**
+     * Maakt lege statistieken aan voor een nieuw Manufacturer object, als die er nog niet zijn.
+     * @param manufacturerId Het id van het nieuwe Manufacturer object.
+     */
+    @Transactional
+    public void createStats(Long manufacturerId) {
+        if (!manufacturerStatsRepository.existsById(manufacturerId)) {
+            manufacturerStatsRepository.save(new ManufacturerStats(manufacturerId));
+        }
+    }
+
+    /**
+     * Verwijdert de statistieken van een Manufacturer object dat verwijderd wordt.
+     * @param manufacturerId Het id van het te verwijderen Manufacturer object.
+     */
+    @Transactional
+    public void deleteStats(Long manufacturerId) {
+        if (manufacturerStatsRepository.existsById(manufacturerId)) {
+            manufacturerStatsRepository.deleteById(manufacturerId);
+        }
+    }
+
+    /**
+     * Onthoudt een wijziging van een Gear object voor de statistieken: het oude merk verliest het Gear object en het
+     * nieuwe merk krijgt het erbij. De statistieken zelf worden vlak voor de commit bijgewerkt, zie apply.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    @Transactional
+    public void onGearChanged(GearChangedEvent event) {
+        GearSnapshot before = event.getBefore();
+        GearSnapshot after = event.getAfter();
+        if (before != null && before.hasSameBrandTypeAndWeight(after)) {
+            return;
+        }
+        PendingChanges changes = pendingChanges();
+        if (before != null && before.getBrandId() != null) {
+            changes.add(before.getBrandId(), before.getNormalizedType(), -1, -before.getWeightInGrams());
+        }
+        if (after != null && after.getBrandId() != null) {
+            changes.add(after.getBrandId(), after.getNormalizedType(), 1, after.getWeightInGrams());
+        }
+    }
+
+    /**
+     * Controleert bij het opstarten de statistieken tegen de Gear tabel en herstelt wat afwijkt, bijvoorbeeld bij
+     * een bestaande database zonder statistieken of na een wijziging buiten de applicatie om.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void repairStatsOnStartup() {
+        int repaired = rebuildStats();
+        if (repaired > 0) {
+            LOGGER.info("Repaired the gear statistics of {} manufacturers", repaired);
+        }
+    }
+
+    /**
+     * Berekent de statistieken van alle merken opnieuw uit de Gear tabel en vervangt de rijen die afwijken.
+     * Alle statistieken blijven tot de commit vergrendeld, zodat een gelijktijdige wijziging van gear pas daarna
+     * verwerkt wordt en niet verloren gaat.
+     * @return Het aantal statistieken dat aangemaakt, hersteld of verwijderd is.
+     */
+    @Transactional
+    public int rebuildStats() {
+        Map<Long, ManufacturerStats> stored = new HashMap<>();
+        for (ManufacturerStats stats : manufacturerStatsRepository.findAllForUpdate()) {
+            stored.put(stats.getManufacturerId(), stats);
+        }
+        Map<Long, ManufacturerStats> expected = new HashMap<>();
+        for (Long manufacturerId : manufacturerRepository.findAllIds()) {
+            expected.put(manufacturerId, new ManufacturerStats(manufacturerId));
+        }
+        for (Object[] row : manufacturerStatsRepository.sumGearPerManufacturerAndType()) {
+            expected.get((Long) row[0]).addGroup((String) row[1], (Long) row[2], (Long) row[3]);
+        }
+
+        int repaired = 0;
+        for (ManufacturerStats rebuilt : expected.values()) {
+            ManufacturerStats current = stored.remove(rebuilt.getManufacturerId());
+            if (current == null) {
+                manufacturerStatsRepository.save(rebuilt);
+                repaired++;
+            } else if (!current.hasSameCounts(rebuilt)) {
+                current.copyCountsFrom(rebuilt);
+                repaired++;
+            }
+        }
+        // wat overblijft hoort bij merken die niet meer bestaan
+        manufacturerStatsRepository.deleteAll(stored.values());
+        return repaired + stored.size();
+    }
+
+    /**
+     * Geeft de verzamelde wijzigingen van de huidige transactie terug. De eerste wijziging registreert een
+     * TransactionSynchronization die ze vlak voor de commit verwerkt, nadat alle Gear objecten geschreven zijn.
+     * @return De wijzigingen van de huidige transactie.
+     */
+    private PendingChanges pendingChanges() {
+        PendingChanges changes = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            PendingChanges newChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, newChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply(newChanges);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ManufacturerStatsService.this);
+                }
+            });
+            changes = newChanges;
+        }
+        return changes;
+    }
+
+    /**
+     * Vergrendelt de statistieken van alle merken uit de wijzigingen met één query en telt de wijzigingen erbij op,
+     * in de volgorde waarin ze gebeurd zijn. Hibernate schrijft de gewijzigde statistieken bij de commit weg.
+     * @param changes De wijzigingen van de transactie.
+     */
+    private void apply(PendingChanges changes) {
+        if (changes.changes.isEmpty()) {
+            return;
+        }
+        Map<Long, ManufacturerStats> stats = lockStats(changes.manufacturerIds);
+        for (Change change : changes.changes) {
+            stats.get(change.manufacturerId).addGroup(change.type, change.count, change.weightInGrams);
+        }
+        changes.changes.clear();
+        changes.manufacturerIds.clear();
+    }
+
+    /**
+     * Haalt de statistieken van een aantal merken vergrendeld op. Merken zonder statistieken krijgen eerst lege
+     * statistieken in een eigen transactie; maakt een andere transactie ze tegelijk aan, dan mislukt die insert op
+     * de primary key en worden de statistieken van de andere transactie gebruikt.
+     * @param manufacturerIds De id's van de merken.
+     * @return De (beheerde, vergrendelde) statistieken per merk.
+     */
+    private Map<Long, ManufacturerStats> lockStats(Collection<Long> manufacturerIds) {
+        Map<Long, ManufacturerStats> locked = new HashMap<>();
+        manufacturerStatsRepository.findAllForUpdate(manufacturerIds)
+                .forEach(stats -> locked.put(stats.getManufacturerId(), stats));
+        List<Long> missing = manufacturerIds.stream()
+                .filter(manufacturerId -> !locked.containsKey(manufacturerId))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            for (Long manufacturerId : missing) {
+                try {
+                    newTransaction.executeWithoutResult(status ->
+                            manufacturerStatsRepository.save(new ManufacturerStats(manufacturerId)));
+                } catch (DataIntegrityViolationException alreadyCreated) {
+                    // een andere transactie was ons voor, die rij wordt hieronder vergrendeld
+                }
+            }
+            manufacturerStatsRepository.findAllForUpdate(missing)
+                    .forEach(stats -> locked.put(stats.getManufacturerId(), stats));
+        }
+        return locked;
+    }
+
+    /**
+     * De nog niet verwerkte wijzigingen van één transactie.
+     */
+    private static class PendingChanges {
+        private final List<Change> changes = new ArrayList<>();
+        private final Set<Long> manufacturerIds = new LinkedHashSet<>();
+
+        private void add(Long manufacturerId, String type, long count, long weightInGrams) {
+            changes.add(new Change(manufacturerId, type, count, weightInGrams));
+            manufacturerIds.add(manufacturerId);
+        }
+    }
+
+    /**
+     * Eén Gear object dat bij een merk bijkomt (count 1) of eraf gaat (count -1).
+     */
+    private static class Change {
+        private final Long manufacturerId;
+        private final String type;
+        private final long count;
+        private final long weightInGrams;
+
+        private Change(Long manufacturerId, String type, long count, long weightInGrams) {
+            this.manufacturerId = manufacturerId;
+            this.type = type;
+            this.count = count;
+            this.weightInGrams = weightInGrams;
+        }
+    }
+}
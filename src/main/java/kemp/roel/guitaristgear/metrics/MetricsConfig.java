@@ -0,0 +1,44 @@
+package kemp.roel.guitaristgear.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Koppelt het tellen van queries per request aan Hibernate en Spring MVC. De overige metrics (endpoints, Hibernate
+ * statistieken, Hikari) komen uit de auto-configuratie van actuator; zie application.properties.
+ */
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor voor MetricsConfig.
+     * @param meterRegistry De registry waarin het aantal queries per request komt.
+     */
+    @Autowired
+    public MetricsConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Registreert de QueryCountingStatementInspector bij Hibernate.
+     * @return De customizer die de inspector aan de Hibernate properties toevoegt.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountingStatementInspector());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(meterRegistry));
+    }
+}
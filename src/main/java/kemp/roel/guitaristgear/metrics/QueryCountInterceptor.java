@@ -0,0 +1,46 @@
+package kemp.roel.guitaristgear.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Legt per endpoint vast hoeveel SQL statements een request kostte, als distributie "gg.http.queries" met
+ * dezelfde "uri" en "method" tags als "http.server.requests". Queries van gestreamde responses (export) worden
+ * op een andere thread uitgevoerd en tellen niet mee.
+ */
+
+public class QueryCountInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor voor QueryCountInterceptor.
+     * @param meterRegistry De registry waarin de distributies komen.
+     */
+    public QueryCountInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountingStatementInspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("gg.http.queries")
+                .baseUnit("queries")
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .tag("method", request.getMethod())
+                .register(meterRegistry)
+                .record(QueryCountingStatementInspector.count());
+    }
+}
@@ -0,0 +1,34 @@
+package kemp.roel.guitaristgear.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Telt de SQL statements die Hibernate op de huidige thread voorbereidt, zodat QueryCountInterceptor per request
+ * kan vastleggen hoeveel queries het kostte.
+ */
+
+public class QueryCountingStatementInspector implements StatementInspector {
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Zet de teller van de huidige thread op 0.
+     */
+    static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * Geeft het aantal statements op de huidige thread sinds de laatste reset terug.
+     * @return Het aantal statements.
+     */
+    static long count() {
+        return COUNT.get()[0];
+    }
+}
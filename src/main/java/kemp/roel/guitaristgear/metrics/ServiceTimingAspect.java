@@ -0,0 +1,54 @@
+package kemp.roel.guitaristgear.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Meet de duur van iedere publieke methode van de *Service klassen als timer "gg.service", met de klasse, de
+ * methode en de eventuele exception als tags.
+ */
+
+@Aspect
+@Component
+public class ServiceTimingAspect {
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor voor ServiceTimingAspect.
+     * @param meterRegistry De registry waarin de timers komen.
+     */
+    @Autowired
+    public ServiceTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Meet een aanroep van een publieke service methode.
+     * @param joinPoint De aanroep.
+     * @return Het resultaat van de methode.
+     * @throws Throwable De exception van de methode, ongewijzigd.
+     */
+    @Around("execution(public * kemp.roel.guitaristgear..*Service.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("gg.service")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Houdt de abonnees van de change stream bij en verdeelt de events van de OutboxDispatcher over hun buffers.
+ * Het versturen gebeurt op een vaste pool met verzendthreads, zodat één trage client de dispatcher en de andere
+ * abonnees niet ophoudt. Een abonnee met een volle buffer wordt afgesloten en haalt na het opnieuw verbinden zijn
+ * achterstand in uit de outbox tabel.
+ * Wordt ook in het "fast" profiel direct aangemaakt, anders worden er geen heartbeats verstuurd.
+ */
+
+@Component
+@Lazy(false)
+public class ChangeStreamBroadcaster implements DisposableBean {
+    static final int REPLAY_PAGE_SIZE = 500;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService senders;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeout;
+
+    private final Set<ChangeStreamSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+
+    /**
+     * Constructor voor ChangeStreamBroadcaster.
+     * @param outboxEventRepository Nodig om gemiste events uit de outbox te lezen.
+     * @param transactionManager Nodig om de outbox altijd op de primaire database te lezen.
+     * @param bufferSize Het aantal events dat per abonnee mag wachten, in te stellen met "gg.changes.buffer-size".
+     * @param maxSubscribers Het maximale aantal abonnees, in te stellen met "gg.changes.max-subscribers".
+     * @param senderThreads Het aantal verzendthreads, in te stellen met "gg.changes.sender-threads".
+     * @param timeout Na hoeveel ms een verbinding gesloten wordt, in te stellen met "gg.changes.timeout".
+     *                De client maakt daarna zelf opnieuw verbinding.
+     */
+    @Autowired
+    public ChangeStreamBroadcaster(OutboxEventRepository outboxEventRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${gg.changes.buffer-size:1000}") int bufferSize,
+                                   @Value("${gg.changes.max-subscribers:1000}") int maxSubscribers,
+                                   @Value("${gg.changes.sender-threads:16}") int senderThreads,
+                                   @Value("${gg.changes.timeout:1800000}") long timeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        // een schrijftransactie, zodat de lees/schrijf routering nooit een replica kiest die nog achterloopt
+        // op de volgnummers die al verstuurd zijn
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("gg-change-stream-");
+        threadFactory.setDaemon(true);
+        this.senders = Executors.newFixedThreadPool(senderThreads, threadFactory);
+    }
+
+    /**
+     * Voegt een abonnee toe. Met een lastEventId worden eerst de events na dat volgnummer uit de outbox
+     * verstuurd, daarna de nieuwe events.
+     * @param lastEventId Het laatste event dat de client ontvangen heeft. Mag null zijn.
+     * @param resource Alleen events van dit soort object versturen. Mag null zijn.
+     * @return De SSE verbinding.
+     * @throws ResponseStatusException Gooit HTTP code 503 als het maximale aantal abonnees bereikt is.
+     */
+    public SseEmitter subscribe(Long lastEventId, String resource) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change stream subscribers");
+        }
+        Long resumeFrom = lastEventId;
+        boolean resetRequired = false;
+        if (lastEventId != null) {
+            Long[] bounds = transactionTemplate.execute(status -> new Long[] {
+                    outboxEventRepository.findMinSequenceNumber(), outboxEventRepository.findMaxSequenceNumber()});
+            long max = bounds[1] == null ? 0 : bounds[1];
+            if (lastEventId > max) {
+                // de client kent volgnummers die hier niet (meer) bestaan, bijvoorbeeld na een nieuwe database
+                resumeFrom = max;
+                resetRequired = true;
+            } else if (bounds[0] != null && lastEventId < bounds[0] - 1) {
+                resetRequired = true;
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout);
+        ChangeStreamSubscriber subscriber = new ChangeStreamSubscriber(emitter, resource, bufferSize, senders,
+                this::replayPage, resumeFrom, resetRequired);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.start();
+        return emitter;
+    }
+
+    /**
+     * Zet nieuwe events in de buffers van alle abonnees. Blokkeert nooit: een abonnee waarvan de buffer vol is,
+     * wordt afgesloten.
+     * @param events De events, oplopend op volgnummer.
+     */
+    void broadcast(List<OutboxEvent> events) {
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            for (OutboxEvent event : events) {
+                if (!subscriber.offer(event)) {
+                    slowConsumerDisconnects.incrementAndGet();
+                    subscribers.remove(subscriber);
+                    subscriber.disconnect();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stuurt iedere "gg.changes.heartbeat-interval" ms een SSE commentaar naar alle abonnees, zodat proxies de
+     * verbinding open houden en verbroken verbindingen opgeruimd worden.
+     */
+    @Scheduled(fixedDelayString = "${gg.changes.heartbeat-interval:15000}")
+    public void heartbeat() {
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    /**
+     * Geeft het aantal abonnees en het aantal afgesloten trage abonnees terug.
+     * @return De tellers van de change stream.
+     */
+    public Map<String, Object> getStats() {
+        long buffered = 0;
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            buffered += subscriber.getBuffered();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("bufferSize", bufferSize);
+        stats.put("buffered", buffered);
+        stats.put("slowConsumerDisconnects", slowConsumerDisconnects.get());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            subscriber.markClosed();
+        }
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private List<OutboxEvent> replayPage(long after) {
+        return transactionTemplate.execute(status ->
+                outboxEventRepository.findDispatchedAfter(after, PageRequest.of(0, REPLAY_PAGE_SIZE)));
+    }
+
+    private void remove(ChangeStreamSubscriber subscriber) {
+        subscriber.markClosed();
+        subscribers.remove(subscriber);
+    }
+}
@@ -0,0 +1,80 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+@RestController
+@RequestMapping("/gg/changes")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ChangeStreamController {
+    private static final Set<String> RESOURCES = Set.of("gear", "guitarist", "manufacturer");
+
+    private final ChangeStreamBroadcaster broadcaster;
+    private final OutboxDispatcher dispatcher;
+
+    /**
+     * Constructor voor ChangeStreamController.
+     * @param broadcaster De ChangeStreamBroadcaster waarbij abonnees zich aanmelden.
+     * @param dispatcher De OutboxDispatcher waarvan de tellers opgevraagd worden.
+     */
+    @Autowired
+    public ChangeStreamController(ChangeStreamBroadcaster broadcaster, OutboxDispatcher dispatcher) {
+        this.broadcaster = broadcaster;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/changes".
+     * Opent een Server-Sent Events stream met iedere wijziging van gear, gitaristen en merken. Het id van ieder
+     * event is zijn volgnummer; een browser stuurt dat na een onderbreking zelf mee als Last-Event-ID header.
+     * @param lastEventIdHeader Het laatst ontvangen volgnummer, zoals EventSource het meestuurt.
+     * @param lastEventId Het laatst ontvangen volgnummer als parameter, voor clients die geen headers kunnen zetten.
+     * @param resource Optioneel filter: "gear", "guitarist" of "manufacturer".
+     * @return De event stream.
+     * @throws ResponseStatusException Gooit HTTP code 400 bij een ongeldig volgnummer of filter.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                 @RequestParam(required = false) String lastEventId,
+                                 @RequestParam(required = false) String resource) {
+        if (resource != null && !RESOURCES.contains(resource)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown resource \"" + resource + "\"");
+        }
+        String resumeFrom = lastEventIdHeader != null ? lastEventIdHeader : lastEventId;
+        Long sequenceNumber = null;
+        if (resumeFrom != null && !resumeFrom.isBlank()) {
+            try {
+                sequenceNumber = Long.parseLong(resumeFrom.trim());
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid Last-Event-ID \"" + resumeFrom + "\"");
+            }
+        }
+        return broadcaster.subscribe(sequenceNumber, resource);
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/changes/stats".
+     * Geeft de tellers van de dispatcher en van de abonnees terug.
+     * @return De tellers.
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getChangeStreamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dispatcher", dispatcher.getStats());
+        stats.put("subscribers", broadcaster.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,210 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén abonnee van de change stream. De dispatcher zet events alleen in de begrensde buffer van de abonnee en
+ * wacht nooit op het netwerk; het versturen gebeurt door een taak op de executor van de ChangeStreamBroadcaster,
+ * met per abonnee hooguit één taak tegelijk. Loopt de buffer vol, dan wordt de verbinding gesloten. De client
+ * maakt dan zelf opnieuw verbinding met zijn Last-Event-ID en leest de gemiste events uit de database.
+ */
+
+class ChangeStreamSubscriber {
+    static final OutboxEvent HEARTBEAT = new OutboxEvent();
+
+    private final SseEmitter emitter;
+    private final String resource;
+    private final ArrayBlockingQueue<OutboxEvent> buffer;
+    private final Executor executor;
+    private final LongFunction<List<OutboxEvent>> replaySource;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // alleen gebruikt door de verzendtaak, die via "scheduled" nooit met zichzelf overlapt
+    private long lastSent;
+    private boolean resetRequired;
+
+    private volatile boolean replaying;
+    private volatile boolean closed;
+
+    /**
+     * Constructor voor ChangeStreamSubscriber.
+     * @param emitter De SSE verbinding.
+     * @param resource Alleen events van dit soort object worden verstuurd. Null voor alle events.
+     * @param bufferSize Het maximale aantal events dat op versturen mag wachten.
+     * @param executor De executor waarop verstuurd wordt.
+     * @param replaySource Haalt een pagina verstuurde events na een volgnummer uit de outbox.
+     * @param lastEventId Het laatste event dat de client ontvangen heeft, of null om alleen nieuwe events te krijgen.
+     * @param resetRequired Of er events na lastEventId al opgeruimd zijn, zodat de client opnieuw moet beginnen.
+     */
+    ChangeStreamSubscriber(SseEmitter emitter, String resource, int bufferSize, Executor executor,
+                           LongFunction<List<OutboxEvent>> replaySource, Long lastEventId, boolean resetRequired) {
+        this.emitter = emitter;
+        this.resource = resource;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+        this.replaySource = replaySource;
+        this.lastSent = lastEventId == null ? 0 : lastEventId;
+        this.replaying = lastEventId != null;
+        this.resetRequired = resetRequired;
+    }
+
+    /**
+     * Start het versturen: eerst de gemiste events uit de outbox, daarna de events uit de buffer.
+     */
+    void start() {
+        schedule();
+    }
+
+    /**
+     * Zet een event in de buffer zonder te blokkeren. Tijdens het inhalen uit de database worden nieuwe events
+     * niet gebufferd; die komen bij het inhalen vanzelf mee.
+     * @param event Het te versturen event.
+     * @return false als de buffer vol is en de abonnee afgesloten moet worden.
+     */
+    boolean offer(OutboxEvent event) {
+        if (closed) {
+            return true;
+        }
+        if (replaying) {
+            return true;
+        }
+        if (!buffer.offer(event)) {
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * Zet een heartbeat in de buffer, zodat verbroken verbindingen opvallen. Een volle buffer wordt hier genegeerd;
+     * die wordt bij het volgende event afgehandeld.
+     */
+    void heartbeat() {
+        if (!closed && !replaying && buffer.offer(HEARTBEAT)) {
+            schedule();
+        }
+    }
+
+    /**
+     * Sluit de verbinding. Het afsluiten zelf gebeurt in de verzendtaak, omdat de SseEmitter geblokkeerd kan zijn
+     * in het versturen naar een trage client en de aanroeper (de dispatcher) daar niet op mag wachten.
+     */
+    void disconnect() {
+        closed = true;
+        buffer.clear();
+        schedule();
+    }
+
+    /**
+     * Markeert de abonnee als afgesloten, bijvoorbeeld als de client de verbinding verbroken heeft.
+     */
+    void markClosed() {
+        closed = true;
+        buffer.clear();
+    }
+
+    /**
+     * Geeft aan of de abonnee afgesloten is.
+     * @return true als er niets meer verstuurd wordt.
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Geeft het aantal events dat op versturen wacht.
+     * @return Het aantal events in de buffer.
+     */
+    int getBuffered() {
+        return buffer.size();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                closed = true;
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            if (closed) {
+                emitter.complete();
+                return;
+            }
+            if (resetRequired) {
+                emitter.send(SseEmitter.event().name("reset")
+                        .data("events after the given Last-Event-ID were removed"));
+                resetRequired = false;
+            }
+            if (replaying) {
+                replay();
+            }
+            OutboxEvent event;
+            while (!closed && (event = buffer.poll()) != null) {
+                send(event);
+            }
+        } catch (IOException | RuntimeException e) {
+            // de client is weg of de verbinding is al afgesloten
+            markClosed();
+            emitter.completeWithError(e);
+            return;
+        } finally {
+            scheduled.set(false);
+        }
+        if (closed || !buffer.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Leest de gemiste events pagina voor pagina uit de outbox. Na de laatste (niet volle) pagina gaat de abonnee
+     * over op de buffer en wordt er nog één keer gelezen, voor events die tussen de laatste pagina en het
+     * overschakelen verstuurd zijn. Events die daardoor zowel uit de database als uit de buffer komen,
+     * worden op volgnummer overgeslagen.
+     */
+    private void replay() throws IOException {
+        while (!closed) {
+            List<OutboxEvent> page = replaySource.apply(lastSent);
+            for (OutboxEvent event : page) {
+                send(event);
+            }
+            if (page.size() < ChangeStreamBroadcaster.REPLAY_PAGE_SIZE) {
+                if (!replaying) {
+                    return;
+                }
+                replaying = false;
+            }
+        }
+    }
+
+    private void send(OutboxEvent event) throws IOException {
+        if (event == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return;
+        }
+        if (event.getSequenceNumber() <= lastSent) {
+            return;
+        }
+        lastSent = event.getSequenceNumber();
+        if (resource == null || resource.equals(event.getResource())) {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getSequenceNumber()))
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Leest iedere "gg.outbox.poll-interval" ms de gecommitte outbox rijen zonder volgnummer, geeft ze een oplopend
+ * volgnummer en geeft ze na de commit door aan de ChangeStreamBroadcaster. De volgnummers worden pas hier
+ * uitgedeeld en niet bij het schrijven: transacties committen niet in de volgorde van hun id's, en een client die
+ * verder leest vanaf zijn laatste volgnummer mag geen later gecommitte rij met een lager nummer missen.
+ * Er is één dispatcher per database; meerdere instanties van de applicatie op één database worden niet ondersteund.
+ * Nooit lazy: @Scheduled methodes worden pas ingepland als de bean bestaat, en niemand vraagt deze bean op.
+ */
+
+@Component
+@Lazy(false)
+public class OutboxDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ChangeStreamBroadcaster broadcaster;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long retention;
+
+    // -1 zolang het hoogste volgnummer nog niet uit de database gelezen is
+    private long lastSequenceNumber = -1;
+    private long dispatched;
+    private long removed;
+
+    /**
+     * Constructor voor OutboxDispatcher.
+     * @param outboxEventRepository Nodig om de outbox te lezen en bij te werken.
+     * @param broadcaster Verstuurt de events naar de abonnees.
+     * @param transactionManager Nodig om de volgnummers in een eigen transactie op te slaan.
+     * @param batchSize Het aantal rijen per transactie, in te stellen met "gg.outbox.batch-size".
+     * @param retention Hoe lang verstuurde rijen bewaard worden om verder te kunnen lezen, in ms,
+     *                  in te stellen met "gg.outbox.retention".
+     */
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, ChangeStreamBroadcaster broadcaster,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${gg.outbox.batch-size:500}") int batchSize,
+                            @Value("${gg.outbox.retention:86400000}") long retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.broadcaster = broadcaster;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Verstuurt alle nieuwe outbox rijen, in blokken van "gg.outbox.batch-size". Een blok wordt pas aan de
+     * abonnees gegeven als de volgnummers gecommit zijn, zodat een abonnee die daarna verder leest uit de
+     * outbox dezelfde nummers ziet.
+     */
+    @Scheduled(fixedDelayString = "${gg.outbox.poll-interval:200}")
+    public synchronized void dispatch() {
+        List<OutboxEvent> batch;
+        do {
+            try {
+                batch = transactionTemplate.execute(status -> assignSequenceNumbers());
+            } catch (RuntimeException e) {
+                // de nummers in het geheugen kunnen nu voor lopen op de database; bij de volgende poging opnieuw lezen
+                lastSequenceNumber = -1;
+                throw e;
+            }
+            if (!batch.isEmpty()) {
+                dispatched += batch.size();
+                broadcaster.broadcast(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * Verwijdert verstuurde rijen die ouder zijn dan "gg.outbox.retention" ms. Een client die daarna verder wil
+     * lezen vanaf een verwijderd volgnummer krijgt een "reset" event.
+     */
+    @Scheduled(fixedDelayString = "${gg.outbox.cleanup-interval:60000}")
+    public void removeExpired() {
+        long cutoff = System.currentTimeMillis() - retention;
+        Integer count = transactionTemplate.execute(status -> outboxEventRepository.deleteDispatchedBefore(cutoff));
+        if (count != null && count > 0) {
+            LOGGER.debug("Removed {} dispatched outbox events", count);
+            synchronized (this) {
+                removed += count;
+            }
+        }
+    }
+
+    /**
+     * Geeft het laatst uitgedeelde volgnummer en het aantal verstuurde en opgeruimde rijen terug.
+     * @return De tellers van de dispatcher.
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lastSequenceNumber", lastSequenceNumber);
+        stats.put("dispatched", dispatched);
+        stats.put("removed", removed);
+        return stats;
+    }
+
+    private List<OutboxEvent> assignSequenceNumbers() {
+        if (lastSequenceNumber < 0) {
+            Long max = outboxEventRepository.findMaxSequenceNumber();
+            lastSequenceNumber = max == null ? 0 : max;
+        }
+        List<OutboxEvent> batch = outboxEventRepository.findUndispatched(PageRequest.of(0, batchSize));
+        for (OutboxEvent event : batch) {
+            event.setSequenceNumber(++lastSequenceNumber);
+        }
+        return batch;
+    }
+}
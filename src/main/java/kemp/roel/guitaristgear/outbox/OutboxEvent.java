@@ -0,0 +1,123 @@
+package kemp.roel.guitaristgear.outbox;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import javax.persistence.*;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén rij in de outbox: een wijziging van gear, een gitarist of een merk, geschreven in dezelfde transactie als de
+ * wijziging zelf. De OutboxDispatcher geeft iedere gecommitte rij een volgnummer en stuurt hem daarna naar de
+ * abonnees van de change stream. Het volgnummer is ook het SSE event id waarmee een client verder kan lezen.
+ */
+
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    // iedere wijziging schrijft een rij; met een pool van 50 id's kost niet iedere insert een extra sequence aanroep
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    @JsonIgnore
+    private Long id;
+
+    // null zolang de rij nog niet verstuurd is
+    private Long sequenceNumber;
+
+    private long createdAt;
+    private String resource;
+    private Long resourceId;
+    private String action;
+
+    @Lob
+    @JsonRawValue
+    private String payload;
+
+    /**
+     * Default constructor voor een OutboxEvent object.
+     */
+    public OutboxEvent() {}
+
+    /**
+     * Constructor voor een nieuw, nog niet verstuurd OutboxEvent object.
+     * @param resource Het soort object dat gewijzigd is: "gear", "guitarist" of "manufacturer".
+     * @param resourceId Het id van het gewijzigde object.
+     * @param action Wat er gebeurd is: "created", "updated", "deleted" of "gear-list-changed".
+     * @param payload De wijziging als JSON object.
+     * @param createdAt Het moment van de wijziging in milliseconden sinds 1970.
+     */
+    public OutboxEvent(String resource, Long resourceId, String action, String payload, long createdAt) {
+        this.resource = resource;
+        this.resourceId = resourceId;
+        this.action = action;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Getter voor het id van de rij. Dit is niet het volgnummer: id's worden in de volgorde van het schrijven
+     * uitgedeeld, niet in de volgorde van het committen.
+     * @return Het id van de rij.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Getter voor het volgnummer in de change stream.
+     * @return Het volgnummer, of null als de rij nog niet verstuurd is.
+     */
+    public Long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Setter voor het volgnummer. Wordt alleen door de OutboxDispatcher gezet.
+     * @param sequenceNumber Het volgnummer in de change stream.
+     */
+    void setSequenceNumber(Long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Getter voor het moment van de wijziging.
+     * @return Het moment in milliseconden sinds 1970.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Getter voor het soort object dat gewijzigd is.
+     * @return "gear", "guitarist" of "manufacturer".
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    /**
+     * Getter voor het id van het gewijzigde object.
+     * @return Het id van het gewijzigde object.
+     */
+    public Long getResourceId() {
+        return resourceId;
+    }
+
+    /**
+     * Getter voor wat er met het object gebeurd is.
+     * @return "created", "updated", "deleted" of "gear-list-changed".
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Getter voor de wijziging zelf. Wordt als JSON object (en niet als String) geschreven.
+     * @return De wijziging als JSON.
+     */
+    public String getPayload() {
+        return payload;
+    }
+}
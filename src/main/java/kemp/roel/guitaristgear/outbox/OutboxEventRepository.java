@@ -0,0 +1,56 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Haalt de gecommitte rijen op die nog geen volgnummer hebben, in de volgorde waarin ze geschreven zijn.
+     * @param pageable Het maximale aantal rijen.
+     * @return De nog niet verstuurde rijen.
+     */
+    @Query("select e from OutboxEvent e where e.sequenceNumber is null order by e.id")
+    List<OutboxEvent> findUndispatched(Pageable pageable);
+
+    /**
+     * Haalt de verstuurde rijen na een bepaald volgnummer op, om een client te laten verder lezen.
+     * @param after Het laatste volgnummer dat de client ontvangen heeft.
+     * @param pageable Het maximale aantal rijen.
+     * @return De rijen met een hoger volgnummer, oplopend.
+     */
+    @Query("select e from OutboxEvent e where e.sequenceNumber > :after order by e.sequenceNumber")
+    List<OutboxEvent> findDispatchedAfter(@Param("after") long after, Pageable pageable);
+
+    /**
+     * Zoekt het hoogste uitgedeelde volgnummer.
+     * @return Het hoogste volgnummer, of null als er nog niets verstuurd is.
+     */
+    @Query("select max(e.sequenceNumber) from OutboxEvent e")
+    Long findMaxSequenceNumber();
+
+    /**
+     * Zoekt het laagste volgnummer dat nog bewaard wordt.
+     * @return Het laagste volgnummer, of null als er geen verstuurde rijen meer zijn.
+     */
+    @Query("select min(e.sequenceNumber) from OutboxEvent e")
+    Long findMinSequenceNumber();
+
+    /**
+     * Verwijdert verstuurde rijen die ouder zijn dan een bepaald moment.
+     * @param createdBefore Het moment in milliseconden sinds 1970.
+     * @return Het aantal verwijderde rijen.
+     */
+    @Modifying
+    @Query("delete from OutboxEvent e where e.sequenceNumber is not null and e.createdAt < :createdBefore")
+    int deleteDispatchedBefore(@Param("createdBefore") long createdBefore);
+}
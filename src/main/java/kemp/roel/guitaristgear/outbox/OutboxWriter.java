@@ -0,0 +1,111 @@
+package kemp.roel.guitaristgear.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kemp.roel.guitaristgear.gear.GearChangedEvent;
+import kemp.roel.guitaristgear.guitarist.GearListChangedEvent;
+import kemp.roel.guitaristgear.guitarist.GuitaristChangedEvent;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Schrijft iedere wijziging die de services publiceren als rij in de outbox. De listeners draaien synchroon binnen
+ * de transactie van de service (Propagation.MANDATORY), zodat de rij precies dan gecommit wordt als de wijziging
+ * zelf gecommit wordt: een rollback laat geen event achter en een commit verliest er nooit één.
+ */
+
+@Component
+public class OutboxWriter {
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor voor OutboxWriter.
+     * @param outboxEventRepository Nodig om de rijen op te slaan.
+     * @param objectMapper Nodig om de toestand voor en na de wijziging als JSON op te slaan.
+     */
+    @Autowired
+    public OutboxWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Schrijft een nieuw, gewijzigd of verwijderd Gear object naar de outbox.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGearChanged(GearChangedEvent event) {
+        write("gear", event.getGearId(), action(event.getBefore(), event.getAfter()),
+                beforeAndAfter(event.getBefore(), event.getAfter()));
+    }
+
+    /**
+     * Schrijft een nieuw, gewijzigd of verwijderd Guitarist object naar de outbox.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGuitaristChanged(GuitaristChangedEvent event) {
+        write("guitarist", event.getGuitaristId(), action(event.getBefore(), event.getAfter()),
+                beforeAndAfter(event.getBefore(), event.getAfter()));
+    }
+
+    /**
+     * Schrijft een nieuw, gewijzigd of verwijderd Manufacturer object naar de outbox.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onManufacturerChanged(ManufacturerChangedEvent event) {
+        Long id = event.getAfter() != null ? event.getAfter().getId() : event.getBefore().getId();
+        write("manufacturer", id, action(event.getBefore(), event.getAfter()),
+                beforeAndAfter(event.getBefore(), event.getAfter()));
+    }
+
+    /**
+     * Schrijft een wijziging van de "gear list" van een gitarist naar de outbox, met de toegevoegde en
+     * verwijderde Gear id's.
+     * @param event Het event met de toegevoegde en verwijderde Gear id's.
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGearListChanged(GearListChangedEvent event) {
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.set("addedGearIds", objectMapper.valueToTree(event.getAddedGearIds()));
+        payload.set("removedGearIds", objectMapper.valueToTree(event.getRemovedGearIds()));
+        write("guitarist", event.getGuitaristId(), "gear-list-changed", payload);
+    }
+
+    private void write(String resource, Long resourceId, String action, ObjectNode payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            // de snapshots bestaan alleen uit Strings en getallen, dus dit hoort niet te kunnen
+            throw new IllegalStateException("Could not serialize outbox payload for " + resource + " " + resourceId, e);
+        }
+        outboxEventRepository.save(new OutboxEvent(resource, resourceId, action, json, System.currentTimeMillis()));
+    }
+
+    private ObjectNode beforeAndAfter(Object before, Object after) {
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.set("before", objectMapper.valueToTree(before));
+        payload.set("after", objectMapper.valueToTree(after));
+        return payload;
+    }
+
+    private static String action(Object before, Object after) {
+        if (before == null) {
+            return "created";
+        }
+        return after == null ? "deleted" : "updated";
+    }
+}
@@ -0,0 +1,89 @@
+package kemp.roel.guitaristgear.paging;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een pagina uit een lijst die met een cursor (keyset) doorlopen wordt. De volgende pagina wordt opgevraagd met
+ * "nextPageToken", zodat de database vanaf de laatste rij verder zoekt in plaats van rijen over te slaan (OFFSET).
+ */
+
+public class CursorPage<T> {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    /**
+     * Constructor voor een CursorPage object.
+     * @param items De objecten op deze pagina.
+     * @param nextPageToken Het token voor de volgende pagina. Is null als dit de laatste pagina is.
+     */
+    public CursorPage(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * Begrenst de gevraagde paginagrootte tussen 1 en MAX_PAGE_SIZE.
+     * @param pageSize De gevraagde paginagrootte. Mag null zijn, dan wordt DEFAULT_PAGE_SIZE gebruikt.
+     * @return De paginagrootte die gebruikt moet worden.
+     */
+    public static int pageSize(Integer pageSize) {
+        if (pageSize == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Geeft de limiet voor een seek query terug. Er wordt één rij extra opgehaald om te weten of er nog
+     * een volgende pagina is.
+     * @param pageSize De (begrensde) paginagrootte.
+     * @return Een Pageable die alleen als limiet gebruikt wordt.
+     */
+    public static Pageable limit(int pageSize) {
+        return PageRequest.of(0, pageSize + 1);
+    }
+
+    /**
+     * Maakt een CursorPage van het resultaat van een seek query die met limit(pageSize) is uitgevoerd.
+     * @param rows De opgehaalde rijen, maximaal pageSize + 1.
+     * @param pageSize De (begrensde) paginagrootte.
+     * @param sort De sorteersleutel waarmee de rijen zijn opgehaald.
+     * @param id Functie die het id van een rij teruggeeft.
+     * @param sortValue Functie die de waarde van de sorteersleutel van een rij teruggeeft.
+     * @return De pagina met eventueel een token voor de volgende pagina.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, String sort,
+                                       Function<T, Long> id, Function<T, Object> sortValue) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        T last = items.get(pageSize - 1);
+        PageToken token = new PageToken(sort, id.apply(last), String.valueOf(sortValue.apply(last)));
+        return new CursorPage<>(items, token.encode());
+    }
+
+    /**
+     * Getter voor de objecten op deze pagina.
+     * @return De objecten op deze pagina. Kan leeg zijn.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Getter voor het token van de volgende pagina.
+     * @return Het token van de volgende pagina, of null als dit de laatste pagina is.
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+}
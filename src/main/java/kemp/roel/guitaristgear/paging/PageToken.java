@@ -0,0 +1,100 @@
+package kemp.roel.guitaristgear.paging;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Het (voor de client ondoorzichtige) token waarmee de volgende pagina van een CursorPage opgevraagd wordt.
+ * Het token bevat de sorteersleutel, het id en de sorteerwaarde van de laatste rij van de vorige pagina.
+ */
+
+public class PageToken {
+    private final String sort;
+    private final Long lastId;
+    private final String lastValue;
+
+    /**
+     * Constructor voor een PageToken object.
+     * @param sort De sorteersleutel waarmee de pagina's opgehaald worden.
+     * @param lastId Het id van de laatste rij van de vorige pagina.
+     * @param lastValue De sorteerwaarde van de laatste rij van de vorige pagina.
+     */
+    public PageToken(String sort, Long lastId, String lastValue) {
+        this.sort = sort;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * Zet dit token om naar een url-veilige String.
+     * @return Het gecodeerde token.
+     */
+    public String encode() {
+        String raw = sort + "\n" + lastId + "\n" + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Leest een gecodeerd token in en controleert of het bij de gevraagde sorteersleutel hoort.
+     * @param token Het gecodeerde token. Mag null zijn voor de eerste pagina.
+     * @param sort De sorteersleutel van het huidige verzoek.
+     * @return Het ingelezen PageToken object, of null als er geen token is meegegeven.
+     * @throws ResponseStatusException Gooit HTTP code 400 als het token ongeldig is of bij een andere sortering hoort.
+     */
+    public static PageToken decode(String token, String sort) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 3);
+            if (parts.length == 3 && parts[0].equals(sort)) {
+                return new PageToken(parts[0], Long.valueOf(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException ignored) {
+            // valt door naar de foutmelding hieronder
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page token for sort \"" + sort + "\"");
+    }
+
+    /**
+     * Getter voor de sorteersleutel.
+     * @return De sorteersleutel.
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    /**
+     * Getter voor het id van de laatste rij van de vorige pagina.
+     * @return Het id van de laatste rij van de vorige pagina.
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Getter voor de sorteerwaarde van de laatste rij van de vorige pagina.
+     * @return De sorteerwaarde van de laatste rij van de vorige pagina.
+     */
+    public String getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * Geeft de sorteerwaarde terug als geheel getal, bijvoorbeeld voor het geboortejaar.
+     * @return De sorteerwaarde als int.
+     * @throws ResponseStatusException Gooit HTTP code 400 als de sorteerwaarde geen getal is.
+     */
+    public int getLastValueAsInt() {
+        try {
+            return Integer.parseInt(lastValue);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page token for sort \"" + sort + "\"");
+        }
+    }
+}
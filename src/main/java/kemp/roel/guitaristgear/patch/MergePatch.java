@@ -0,0 +1,69 @@
+package kemp.roel.guitaristgear.patch;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Hulpmethodes voor JSON Merge Patch (RFC 7396). Een patch is een JSON object met alleen de velden die veranderen;
+ * null betekent dat het veld leeg gemaakt wordt. De velden worden rechtstreeks op een geladen entity gezet, zodat
+ * Hibernate bij het flushen alleen de gewijzigde kolommen schrijft.
+ */
+
+public final class MergePatch {
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private MergePatch() {}
+
+    /**
+     * Controleert een patch en geeft een kopie terug die de aanroeper kan aanpassen, bijvoorbeeld om velden met
+     * een relatie eruit te halen en zelf af te handelen.
+     * @param patch De patch uit de request body.
+     * @param patchable De namen van de velden die gewijzigd mogen worden.
+     * @return Een kopie van de patch.
+     * @throws ResponseStatusException Met status 400 als de patch geen JSON object is of een veld bevat dat niet
+     *                                 gewijzigd mag worden.
+     */
+    public static ObjectNode fields(JsonNode patch, Set<String> patchable) {
+        if (patch == null || !patch.isObject()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A merge patch must be a JSON object");
+        }
+        for (Iterator<String> names = patch.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!patchable.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot patch field \"" + name + "\"");
+            }
+        }
+        return ((ObjectNode) patch).deepCopy();
+    }
+
+    /**
+     * Zet de velden uit een patch op een object. Velden die niet in de patch staan blijven ongewijzigd.
+     * @param objectMapper De ObjectMapper van de applicatie.
+     * @param target Het object dat gewijzigd wordt, meestal een entity uit de huidige transactie.
+     * @param fields De gecontroleerde velden uit fields().
+     * @param <T> Het type van het object.
+     * @throws ResponseStatusException Met status 400 als een waarde niet bij het type van het veld past, of null is
+     *                                 voor een getal dat niet leeg kan zijn.
+     */
+    public static <T> void apply(ObjectMapper objectMapper, T target, ObjectNode fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        try {
+            objectMapper.readerForUpdating(target)
+                    .with(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)
+                    .readValue(fields);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid merge patch: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package kemp.roel.guitaristgear.reactive;
+
+import kemp.roel.guitaristgear.cache.CacheKey;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * De niet-blokkerende lees endpoints, met dezelfde paden en filters als de GET mappings van de MVC controllers.
+ * Lijsten worden gestreamd: als JSON array, of als NDJSON als de client "application/x-ndjson" accepteert.
+ */
+
+@Component
+@ConditionalOnProperty(name = "gg.reactive.enabled", havingValue = "true")
+public class ReactiveCatalogHandler {
+    private final ReactiveCatalogRepository repository;
+
+    /**
+     * Constructor voor ReactiveCatalogHandler.
+     * @param repository Het ReactiveCatalogRepository object waar de handler zijn informatie uit haalt.
+     */
+    @Autowired
+    public ReactiveCatalogHandler(ReactiveCatalogRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Geeft de routes van de reactieve lees API terug.
+     * @return De routes voor gear, gitaristen en merken.
+     */
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route(GET("/gg/gear"), this::getAllGear)
+                .andRoute(GET("/gg/gear/{id}"), this::getGearById)
+                .andRoute(GET("/gg/guitarist"), this::getAllGuitarists)
+                .andRoute(GET("/gg/guitarist/{id}"), this::getGuitaristById)
+                .andRoute(GET("/gg/manufacturer"), this::getAllManufacturers)
+                .andRoute(GET("/gg/manufacturer/{id}"), this::getManufacturerById);
+    }
+
+    private Mono<ServerResponse> getAllGear(ServerRequest request) {
+        Flux<Gear> gear = repository.findGear(normalizedParam(request, "brandName"), normalizedParam(request, "type"));
+        return stream(request, gear, Gear.class);
+    }
+
+    private Mono<ServerResponse> getGearById(ServerRequest request) {
+        Long id = id(request);
+        return single(repository.findGearById(id), Gear.class, "Gear with id " + id + " not found");
+    }
+
+    private Mono<ServerResponse> getAllGuitarists(ServerRequest request) {
+        Integer birthYear = request.queryParam("birthYear").map(value -> {
+            try {
+                return Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid birthYear \"" + value + "\"");
+            }
+        }).orElse(null);
+        return stream(request, repository.findGuitarists(normalizedParam(request, "genre"), birthYear), Guitarist.class);
+    }
+
+    private Mono<ServerResponse> getGuitaristById(ServerRequest request) {
+        Long id = id(request);
+        return single(repository.findGuitaristById(id), Guitarist.class, "Guitarist with id " + id + " not found");
+    }
+
+    private Mono<ServerResponse> getAllManufacturers(ServerRequest request) {
+        return stream(request, repository.findManufacturers(normalizedParam(request, "mainProductType")),
+                Manufacturer.class);
+    }
+
+    private Mono<ServerResponse> getManufacturerById(ServerRequest request) {
+        Long id = id(request);
+        return single(repository.findManufacturerById(id), Manufacturer.class,
+                "Manufacturer with id " + id + " not found");
+    }
+
+    private static <T> Mono<ServerResponse> stream(ServerRequest request, Flux<T> body, Class<T> type) {
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(contentType).body(body, type);
+    }
+
+    private static <T> Mono<ServerResponse> single(Mono<T> body, Class<T> type, String notFoundMessage) {
+        return body.flatMap(value -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(value))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage)));
+    }
+
+    private static Long id(ServerRequest request) {
+        try {
+            return Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id \"" + request.pathVariable("id") + "\"");
+        }
+    }
+
+    /**
+     * Leest een filter uit de url en normaliseert hem met CacheKey.normalize, net als de MVC kant.
+     */
+    private static String normalizedParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(CacheKey::normalize).orElse(null);
+    }
+}
@@ -0,0 +1,208 @@
+package kemp.roel.guitaristgear.reactive;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Leest de catalogus met R2DBC, zonder JDBC verbinding of Tomcat thread. Rijen worden pas opgehaald als de client
+ * erom vraagt (backpressure) en direct als Gear, Guitarist of Manufacturer object doorgegeven, zodat de JSON gelijk
+ * is aan die van de MVC controllers. Alleen lezen: schrijven blijft via de services en JPA lopen.
+ * De H2 driver blokkeert tijdens een query, daarom draait iedere query op de reactiveQueryScheduler en niet op de
+ * Netty event loop.
+ */
+
+@Component
+@ConditionalOnProperty(name = "gg.reactive.enabled", havingValue = "true")
+public class ReactiveCatalogRepository {
+    private static final String GEAR_COLUMNS = "ge.id as gear_id, ge.name as gear_name, ge.type as gear_type, "
+            + "ge.weight_in_grams as gear_weight, m.id as brand_id, m.name as brand_name, "
+            + "m.main_product_type as brand_main_product_type, m.place_founded as brand_place_founded, "
+            + "m.year_founded as brand_year_founded";
+    private static final String MANUFACTURER_COLUMNS = "m.id as brand_id, m.name as brand_name, "
+            + "m.main_product_type as brand_main_product_type, m.place_founded as brand_place_founded, "
+            + "m.year_founded as brand_year_founded";
+    private static final String GUITARIST_COLUMNS = "g.id as guitarist_id, g.name as guitarist_name, "
+            + "g.birth_place as guitarist_birth_place, g.birth_year as guitarist_birth_year, g.genre as guitarist_genre";
+
+    private final ConnectionFactory connectionFactory;
+    private final Scheduler scheduler;
+
+    /**
+     * Constructor voor ReactiveCatalogRepository.
+     * @param connectionFactory De R2DBC verbindingen naar dezelfde H2 database als JPA ("spring.r2dbc.*").
+     * @param scheduler De threads waarop de queries uitgevoerd worden.
+     */
+    @Autowired
+    public ReactiveCatalogRepository(ConnectionFactory connectionFactory, Scheduler scheduler) {
+        this.connectionFactory = connectionFactory;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Haalt Gear objecten met hun merk op, eventueel gefilterd op genormaliseerde merknaam en type.
+     * @param brandName De genormaliseerde merknaam. Mag null zijn.
+     * @param type Het genormaliseerde type. Mag null zijn.
+     * @return De Gear objecten, gesorteerd op id.
+     */
+    public Flux<Gear> findGear(String brandName, String type) {
+        StringBuilder sql = new StringBuilder("select " + GEAR_COLUMNS
+                + " from gear ge left join manufacturer m on m.id = ge.brand_id where 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (brandName != null) {
+            parameters.add(brandName);
+            sql.append(" and m.name_normalized = $").append(parameters.size());
+        }
+        if (type != null) {
+            parameters.add(type);
+            sql.append(" and ge.type_normalized = $").append(parameters.size());
+        }
+        sql.append(" order by ge.id");
+        return query(sql.toString(), parameters, ReactiveCatalogRepository::toGear);
+    }
+
+    /**
+     * Haalt een Gear object met zijn merk op.
+     * @param id Het id van het Gear object.
+     * @return Het Gear object, of een lege Mono.
+     */
+    public Mono<Gear> findGearById(Long id) {
+        return query("select " + GEAR_COLUMNS + " from gear ge left join manufacturer m on m.id = ge.brand_id "
+                + "where ge.id = $1", List.of(id), ReactiveCatalogRepository::toGear).next();
+    }
+
+    /**
+     * Haalt Manufacturer objecten op, eventueel gefilterd op genormaliseerd mainProductType.
+     * @param mainProductType Het genormaliseerde mainProductType. Mag null zijn.
+     * @return De Manufacturer objecten, gesorteerd op id.
+     */
+    public Flux<Manufacturer> findManufacturers(String mainProductType) {
+        if (mainProductType == null) {
+            return query("select " + MANUFACTURER_COLUMNS + " from manufacturer m order by m.id", List.of(),
+                    ReactiveCatalogRepository::toManufacturer);
+        }
+        return query("select " + MANUFACTURER_COLUMNS + " from manufacturer m "
+                + "where lower(m.main_product_type) = $1 order by m.id", List.of(mainProductType),
+                ReactiveCatalogRepository::toManufacturer);
+    }
+
+    /**
+     * Haalt een Manufacturer object op.
+     * @param id Het id van het Manufacturer object.
+     * @return Het Manufacturer object, of een lege Mono.
+     */
+    public Mono<Manufacturer> findManufacturerById(Long id) {
+        return query("select " + MANUFACTURER_COLUMNS + " from manufacturer m where m.id = $1", List.of(id),
+                ReactiveCatalogRepository::toManufacturer).next();
+    }
+
+    /**
+     * Haalt Guitarist objecten met hun "gear list" op, eventueel gefilterd op genormaliseerd genre en geboortejaar.
+     * Alles komt uit één query, gesorteerd op gitarist; opeenvolgende rijen van dezelfde gitarist worden samengevoegd.
+     * @param genre Het genormaliseerde genre. Mag null zijn.
+     * @param birthYear Het geboortejaar. Mag null zijn.
+     * @return De Guitarist objecten, gesorteerd op id.
+     */
+    public Flux<Guitarist> findGuitarists(String genre, Integer birthYear) {
+        StringBuilder sql = new StringBuilder("select " + GUITARIST_COLUMNS + ", " + GEAR_COLUMNS
+                + " from guitarist g left join guitarist_gear_list l on l.guitarist_id = g.id"
+                + " left join gear ge on ge.id = l.gear_list_id left join manufacturer m on m.id = ge.brand_id"
+                + " where 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (genre != null) {
+            parameters.add(genre);
+            sql.append(" and lower(g.genre) = $").append(parameters.size());
+        }
+        if (birthYear != null) {
+            parameters.add(birthYear);
+            sql.append(" and g.birth_year = $").append(parameters.size());
+        }
+        sql.append(" order by g.id, ge.id");
+        return groupGuitarists(query(sql.toString(), parameters, GuitaristRow::new));
+    }
+
+    /**
+     * Haalt een Guitarist object met zijn "gear list" op.
+     * @param id Het id van het Guitarist object.
+     * @return Het Guitarist object, of een lege Mono.
+     */
+    public Mono<Guitarist> findGuitaristById(Long id) {
+        return groupGuitarists(query("select " + GUITARIST_COLUMNS + ", " + GEAR_COLUMNS
+                + " from guitarist g left join guitarist_gear_list l on l.guitarist_id = g.id"
+                + " left join gear ge on ge.id = l.gear_list_id left join manufacturer m on m.id = ge.brand_id"
+                + " where g.id = $1 order by ge.id", List.of(id), GuitaristRow::new)).next();
+    }
+
+    /**
+     * Voert een query uit op een eigen verbinding, die gesloten wordt als de Flux klaar, afgebroken of mislukt is.
+     * Ook het opvragen van de volgende rijen (request) gaat via de scheduler, niet alleen het abonneren.
+     */
+    private <T> Flux<T> query(String sql, List<Object> parameters, Function<Row, T> mapper) {
+        return Flux.usingWhen(connectionFactory.create(), connection -> {
+            Statement statement = connection.createStatement(sql);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.bind(i, parameters.get(i));
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.map((row, metadata) -> mapper.apply(row)));
+        }, Connection::close).subscribeOn(scheduler);
+    }
+
+    private static Flux<Guitarist> groupGuitarists(Flux<GuitaristRow> rows) {
+        return rows.bufferUntilChanged(row -> row.guitarist.getId()).map(group -> {
+            Guitarist guitarist = group.get(0).guitarist;
+            for (GuitaristRow row : group) {
+                if (row.gear != null) {
+                    guitarist.addGearToGearList(row.gear);
+                }
+            }
+            return guitarist;
+        });
+    }
+
+    private static Gear toGear(Row row) {
+        Gear gear = new Gear(row.get("gear_id", Long.class), row.get("gear_name", String.class),
+                row.get("gear_type", String.class), row.get("gear_weight", Integer.class));
+        if (row.get("brand_id", Long.class) != null) {
+            gear.setBrand(toManufacturer(row));
+        }
+        return gear;
+    }
+
+    private static Manufacturer toManufacturer(Row row) {
+        Integer yearFounded = row.get("brand_year_founded", Integer.class);
+        return new Manufacturer(row.get("brand_id", Long.class), row.get("brand_name", String.class),
+                row.get("brand_main_product_type", String.class), row.get("brand_place_founded", String.class),
+                yearFounded == null ? 0 : yearFounded);
+    }
+
+    /**
+     * Eén rij van de gitaristen query: een gitarist en hoogstens één Gear object uit zijn "gear list".
+     */
+    private static class GuitaristRow {
+        private final Guitarist guitarist;
+        private final Gear gear;
+
+        private GuitaristRow(Row row) {
+            Integer birthYear = row.get("guitarist_birth_year", Integer.class);
+            guitarist = new Guitarist(row.get("guitarist_id", Long.class), row.get("guitarist_name", String.class),
+                    row.get("guitarist_birth_place", String.class), birthYear == null ? 0 : birthYear,
+                    row.get("guitarist_genre", String.class));
+            gear = row.get("gear_id", Long.class) == null ? null : toGear(row);
+        }
+    }
+}
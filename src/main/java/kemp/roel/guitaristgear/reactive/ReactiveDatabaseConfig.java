@@ -0,0 +1,62 @@
+package kemp.roel.guitaristgear.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Maakt de R2DBC verbindingen voor de reactieve lees API. De H2 url wordt uit "spring.datasource.url" gehaald,
+ * zodat R2DBC en JPA binnen dezelfde JVM dezelfde database gebruiken, ook als die in het geheugen staat.
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "gg.reactive.enabled", havingValue = "true")
+public class ReactiveDatabaseConfig {
+    private static final String JDBC_PREFIX = "jdbc:h2:";
+
+    /**
+     * Maakt een pool van R2DBC verbindingen naar de H2 database van de applicatie.
+     * @param url De JDBC url van de applicatie, bijvoorbeeld "jdbc:h2:file:./data/GGDB".
+     * @param username De gebruikersnaam van de database.
+     * @param password Het wachtwoord van de database.
+     * @param poolSize Het maximale aantal R2DBC verbindingen, in te stellen met "gg.reactive.pool-size".
+     * @return De pool, die bij het afsluiten van de applicatie opgeruimd wordt.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionFactory(@Value("${spring.datasource.url}") String url,
+                                                    @Value("${spring.datasource.username:}") String username,
+                                                    @Value("${spring.datasource.password:}") String password,
+                                                    @Value("${gg.reactive.pool-size:20}") int poolSize) {
+        if (!url.startsWith(JDBC_PREFIX)) {
+            throw new IllegalStateException("The reactive read API only supports H2, not " + url);
+        }
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(JDBC_PREFIX.length()))
+                .username(username)
+                .password(password)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(poolSize)
+                .build());
+    }
+
+    /**
+     * Maakt de threads waarop de R2DBC queries draaien. De H2 driver is niet echt asynchroon: een query wordt
+     * uitgevoerd in de thread die erop abonneert of om meer rijen vraagt. Zonder eigen scheduler is dat een Netty
+     * event loop thread, die zolang geen andere verbindingen kan bedienen.
+     * @param poolSize Het maximale aantal threads, gelijk aan het aantal R2DBC verbindingen.
+     * @return De scheduler, die bij het afsluiten van de applicatie opgeruimd wordt.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler reactiveQueryScheduler(@Value("${gg.reactive.pool-size:20}") int poolSize) {
+        return Schedulers.newBoundedElastic(poolSize, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "gg-r2dbc");
+    }
+}
@@ -0,0 +1,75 @@
+package kemp.roel.guitaristgear.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Start de reactieve lees API op een eigen Netty server naast Tomcat, op poort "gg.reactive.port". Reads op deze
+ * poort houden geen Tomcat thread of JDBC verbinding vast; schrijven gaat nog steeds via de MVC controllers.
+ */
+
+@Component
+@ConditionalOnProperty(name = "gg.reactive.enabled", havingValue = "true")
+public class ReactiveServer implements SmartLifecycle {
+    private final ReactiveCatalogHandler handler;
+    private final ObjectMapper objectMapper;
+    private final int port;
+
+    private DisposableServer server;
+
+    /**
+     * Constructor voor ReactiveServer.
+     * @param handler De handler met de routes van de reactieve API.
+     * @param objectMapper De ObjectMapper van de applicatie, zodat de JSON gelijk is aan die van MVC.
+     * @param port De poort van de Netty server; 0 kiest een vrije poort.
+     */
+    @Autowired
+    public ReactiveServer(ReactiveCatalogHandler handler, ObjectMapper objectMapper,
+                          @Value("${gg.reactive.port:0}") int port) {
+        this.handler = handler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void start() {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(handler.routes(), strategies);
+        server = HttpServer.create().port(port).handle(new ReactorHttpHandlerAdapter(httpHandler)).bindNow();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Geeft de poort terug waarop de server luistert, bijvoorbeeld als "gg.reactive.port" 0 is.
+     * @return De poort, of -1 als de server niet draait.
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.port();
+    }
+}
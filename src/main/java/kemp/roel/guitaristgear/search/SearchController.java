@@ -0,0 +1,41 @@
+package kemp.roel.guitaristgear.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ */
+
+@RestController
+@RequestMapping("/gg/search")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    /**
+     * Constructor voor SearchController.
+     * @param searchService Het SearchService object waar de controller zijn informatie uit haalt.
+     */
+    @Autowired
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * De methode die aangeroepen wordt als er een GET request wordt gestuurd naar "/gg/search".
+     * Zoekt gear, gitaristen en merken op (een deel van) hun naam, met ruimte voor een typfout.
+     * @param q De zoekopdracht, bijvoorbeeld "strat".
+     * @param type Het soort object waarin gezocht wordt: "gear", "guitarist" of "manufacturer". Mag null zijn.
+     * @param limit Het maximale aantal resultaten (standaard 20, maximaal 100). Mag null zijn.
+     * @return De resultaten, de best passende eerst. Kan leeg zijn.
+     */
+    @GetMapping
+    public List<SearchHit> search(@RequestParam String q, @RequestParam(required = false) String type,
+                                  @RequestParam(required = false) Integer limit) {
+        return searchService.search(q, type, limit);
+    }
+}
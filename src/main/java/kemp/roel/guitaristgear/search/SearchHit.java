@@ -0,0 +1,59 @@
+package kemp.roel.guitaristgear.search;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Eén resultaat van een zoekopdracht: een Gear, Guitarist of Manufacturer object met zijn score.
+ */
+
+public class SearchHit {
+    private final String type;
+    private final Long id;
+    private final String name;
+    private final double score;
+
+    /**
+     * Constructor voor een SearchHit object.
+     * @param type Het soort object: "gear", "guitarist" of "manufacturer".
+     * @param id Het id van het object.
+     * @param name De naam van het object.
+     * @param score Hoe goed het object bij de zoekopdracht past, tussen 0 en 1.
+     */
+    public SearchHit(String type, Long id, String name, double score) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.score = score;
+    }
+
+    /**
+     * Getter voor het soort object.
+     * @return "gear", "guitarist" of "manufacturer".
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Getter voor het id van het object.
+     * @return Het id van het object.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Getter voor de naam van het object.
+     * @return De naam van het object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor de score.
+     * @return Hoe goed het object bij de zoekopdracht past, tussen 0 en 1.
+     */
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,134 @@
+package kemp.roel.guitaristgear.search;
+
+import kemp.roel.guitaristgear.gear.GearChangedEvent;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.gear.GearSnapshot;
+import kemp.roel.guitaristgear.guitarist.GuitaristChangedEvent;
+import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerChangedEvent;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Zoekt op (een deel van) de namen van gear, gitaristen en merken, en op het type van gear. De TrigramIndex wordt
+ * bij het opstarten gevuld en na iedere commit bijgewerkt met de events van de services.
+ */
+
+@Service
+public class SearchService {
+    public static final String GEAR = "gear";
+    public static final String GUITARIST = "guitarist";
+    public static final String MANUFACTURER = "manufacturer";
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final GearRepository gearRepository;
+    private final GuitaristRepository guitaristRepository;
+    private final ManufacturerRepository manufacturerRepository;
+    private final TrigramIndex index = new TrigramIndex();
+
+    /**
+     * Constructor voor SearchService.
+     * @param gearRepository Nodig om de index bij het opstarten te vullen met gear.
+     * @param guitaristRepository Nodig om de index bij het opstarten te vullen met gitaristen.
+     * @param manufacturerRepository Nodig om de index bij het opstarten te vullen met merken.
+     */
+    @Autowired
+    public SearchService(GearRepository gearRepository, GuitaristRepository guitaristRepository,
+                         ManufacturerRepository manufacturerRepository) {
+        this.gearRepository = gearRepository;
+        this.guitaristRepository = guitaristRepository;
+        this.manufacturerRepository = manufacturerRepository;
+    }
+
+    /**
+     * Zoekt objecten waarvan de naam (of bij gear het type) op de zoekopdracht lijkt.
+     * @param query De zoekopdracht, bijvoorbeeld "strat" of "hendr".
+     * @param type Het soort object waarin gezocht wordt: "gear", "guitarist" of "manufacturer". Mag null zijn.
+     * @param limit Het maximale aantal resultaten. Mag null zijn.
+     * @return De resultaten, de best passende eerst. Kan leeg zijn.
+     * @throws ResponseStatusException Als de zoekopdracht leeg is of het type onbekend.
+     */
+    public List<SearchHit> search(String query, String type, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query must not be empty");
+        }
+        if (type != null && !type.equals(GEAR) && !type.equals(GUITARIST) && !type.equals(MANUFACTURER)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown search type \"" + type + "\"");
+        }
+        int size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return index.search(query, type, size);
+    }
+
+    /**
+     * Vult de index bij het opstarten met alleen de velden waarop gezocht wordt.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndex() {
+        for (Object[] row : gearRepository.findAllSearchFields()) {
+            indexGear((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        for (Object[] row : guitaristRepository.findAllIdsAndNames()) {
+            index.put(GUITARIST, (Long) row[0], (String) row[1], (String) row[1]);
+        }
+        for (Object[] row : manufacturerRepository.findAllIdsAndNames()) {
+            index.put(MANUFACTURER, (Long) row[0], (String) row[1], (String) row[1]);
+        }
+    }
+
+    /**
+     * Werkt de index bij na een gecommitte wijziging van een Gear object.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGearChanged(GearChangedEvent event) {
+        GearSnapshot after = event.getAfter();
+        if (after == null) {
+            index.remove(GEAR, event.getGearId());
+        } else {
+            indexGear(after.getId(), after.getName(), after.getType());
+        }
+    }
+
+    /**
+     * Werkt de index bij na een gecommitte wijziging van een Guitarist object.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuitaristChanged(GuitaristChangedEvent event) {
+        if (event.getAfter() == null) {
+            index.remove(GUITARIST, event.getGuitaristId());
+        } else {
+            index.put(GUITARIST, event.getAfter().getId(), event.getAfter().getName(), event.getAfter().getName());
+        }
+    }
+
+    /**
+     * Werkt de index bij na een gecommitte wijziging van een Manufacturer object.
+     * @param event Het event met de toestand voor en na de wijziging.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onManufacturerChanged(ManufacturerChangedEvent event) {
+        if (event.getAfter() == null) {
+            index.remove(MANUFACTURER, event.getManufacturerId());
+        } else {
+            index.put(MANUFACTURER, event.getAfter().getId(), event.getAfter().getName(), event.getAfter().getName());
+        }
+    }
+
+    private void indexGear(Long id, String name, String type) {
+        index.put(GEAR, id, name, type == null ? name : name + " " + type);
+    }
+}
@@ -0,0 +1,272 @@
+package kemp.roel.guitaristgear.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een inverted index van trigrammen (drie opeenvolgende tekens) naar documenten. Ieder woord krijgt een spatie
+ * ervoor, zodat een zoekopdracht als "hendr" het begin van "Hendrix" vindt. Een document past als genoeg trigrammen
+ * van de zoekopdracht erin voorkomen, waardoor een typfout niet alle resultaten kost.
+ * Documenten krijgen oplopende nummers, dus iedere posting list is gesorteerd. Een gewijzigd document wordt als
+ * verwijderd gemarkeerd en opnieuw toegevoegd; als de helft van de documenten verwijderd is wordt de index opnieuw
+ * opgebouwd.
+ */
+
+public class TrigramIndex {
+    // een typfout midden in een woord raakt maximaal drie trigrammen
+    private static final int MAX_MISSES = 3;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+    private static final Postings EMPTY = new Postings();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Postings> postings = new HashMap<>();
+    private List<Document> documents = new ArrayList<>();
+    private Map<String, Integer> documentNumbers = new HashMap<>();
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    /**
+     * Voegt een document toe aan de index, of vervangt het als het er al in staat.
+     * @param type Het soort object, bijvoorbeeld "gear".
+     * @param id Het id van het object.
+     * @param name De naam die in het resultaat getoond wordt.
+     * @param text De tekst waarop gezocht kan worden.
+     */
+    public void put(String type, Long id, String name, String text) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(type, id);
+            add(new Document(type, id, name, text));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Verwijdert een document uit de index.
+     * @param type Het soort object, bijvoorbeeld "gear".
+     * @param id Het id van het object.
+     */
+    public void remove(String type, Long id) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(type, id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zoekt documenten die op de zoekopdracht lijken, gesorteerd op score (Dice coëfficiënt van de trigrammen).
+     * @param query De zoekopdracht.
+     * @param type Het soort object waartoe gezocht wordt. Mag null zijn om in alles te zoeken.
+     * @param limit Het maximale aantal resultaten.
+     * @return De best passende documenten. Kan leeg zijn.
+     */
+    public List<SearchHit> search(String query, String type, int limit) {
+        long[] queryTrigrams = trigrams(query);
+        int n = queryTrigrams.length;
+        if (n == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int minMatches = Math.max(1, n - Math.min(MAX_MISSES, n / 2));
+
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::getScore));
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[n];
+            for (int i = 0; i < n; i++) {
+                lists[i] = postings.getOrDefault(queryTrigrams[i], EMPTY);
+            }
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+            // Een document met minMatches trigrammen moet in een van de (n - minMatches + 1) kortste lijsten staan,
+            // dus alleen die lijsten worden helemaal doorlopen. In de overige lijsten wordt binair gezocht.
+            // De kandidaatlijsten (hooguit MAX_MISSES + 1) zijn gesorteerd en worden samen doorlopen, zoals bij een
+            // merge sort: per stap het laagste documentnummer, geteld over de lijsten waarin het vooraan staat.
+            int candidateLists = n - minMatches + 1;
+            int[] cursors = new int[candidateLists];
+            while (true) {
+                int documentNumber = Integer.MAX_VALUE;
+                for (int i = 0; i < candidateLists; i++) {
+                    if (cursors[i] < lists[i].size) {
+                        documentNumber = Math.min(documentNumber, lists[i].documents[cursors[i]]);
+                    }
+                }
+                if (documentNumber == Integer.MAX_VALUE) {
+                    break;
+                }
+                int matches = 0;
+                for (int i = 0; i < candidateLists; i++) {
+                    if (cursors[i] < lists[i].size && lists[i].documents[cursors[i]] == documentNumber) {
+                        cursors[i]++;
+                        matches++;
+                    }
+                }
+
+                if (deleted.get(documentNumber)) {
+                    continue;
+                }
+                Document document = documents.get(documentNumber);
+                if (type != null && !type.equals(document.type)) {
+                    continue;
+                }
+                for (int i = candidateLists; i < n && matches + (n - i) >= minMatches; i++) {
+                    if (lists[i].contains(documentNumber)) {
+                        matches++;
+                    }
+                }
+                if (matches < minMatches) {
+                    continue;
+                }
+                double score = 2.0 * matches / (n + document.trigramCount);
+                if (best.size() < limit) {
+                    best.add(new SearchHit(document.type, document.id, document.name, score));
+                } else if (score > best.peek().getScore()) {
+                    best.poll();
+                    best.add(new SearchHit(document.type, document.id, document.name, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed().thenComparing(SearchHit::getName,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return hits;
+    }
+
+    /**
+     * Geeft het aantal documenten in de index terug.
+     * @return Het aantal niet verwijderde documenten.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size() - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splitst een tekst in unieke trigrammen. Ieder trigram wordt als drie chars in een long opgeslagen.
+     * @param text De tekst. Mag null zijn.
+     * @return De unieke trigrammen van de tekst.
+     */
+    static long[] trigrams(String text) {
+        if (text == null) {
+            return new long[0];
+        }
+        Set<Long> trigrams = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String token = word.length() == 1 ? " " + word + " " : " " + word;
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                trigrams.add(((long) token.charAt(i) << 32) | ((long) token.charAt(i + 1) << 16) | token.charAt(i + 2));
+            }
+        }
+        long[] result = new long[trigrams.size()];
+        int i = 0;
+        for (Long trigram : trigrams) {
+            result[i++] = trigram;
+        }
+        return result;
+    }
+
+    private void add(Document document) {
+        int documentNumber = documents.size();
+        documents.add(document);
+        documentNumbers.put(document.key(), documentNumber);
+        long[] documentTrigrams = trigrams(document.text);
+        document.trigramCount = documentTrigrams.length;
+        for (long trigram : documentTrigrams) {
+            postings.computeIfAbsent(trigram, t -> new Postings()).add(documentNumber);
+        }
+    }
+
+    private void markDeleted(String type, Long id) {
+        Integer documentNumber = documentNumbers.remove(type + ":" + id);
+        if (documentNumber != null) {
+            deleted.set(documentNumber);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Bouwt de index opnieuw op zonder de verwijderde documenten, als die meer dan de helft van de index zijn.
+     */
+    private void compactIfNeeded() {
+        if (deletedCount < MIN_DELETED_FOR_COMPACTION || deletedCount * 2 < documents.size()) {
+            return;
+        }
+        List<Document> live = new ArrayList<>(documents.size() - deletedCount);
+        for (int i = 0; i < documents.size(); i++) {
+            if (!deleted.get(i)) {
+                live.add(documents.get(i));
+            }
+        }
+        postings = new HashMap<>();
+        documents = new ArrayList<>(live.size());
+        documentNumbers = new HashMap<>();
+        deleted = new BitSet();
+        deletedCount = 0;
+        for (Document document : live) {
+            add(document);
+        }
+    }
+
+    private static class Document {
+        private final String type;
+        private final Long id;
+        private final String name;
+        private final String text;
+        private int trigramCount;
+
+        private Document(String type, Long id, String name, String text) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+            this.text = text;
+        }
+
+        private String key() {
+            return type + ":" + id;
+        }
+    }
+
+    /**
+     * Een groeiende, gesorteerde lijst van documentnummers.
+     */
+    private static class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        private void add(int documentNumber) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = documentNumber;
+        }
+
+        private boolean contains(int documentNumber) {
+            return Arrays.binarySearch(documents, 0, size, documentNumber) >= 0;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package kemp.roel.guitaristgear.wireformat;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Een formaat waarin bodies verstuurd en ontvangen kunnen worden: JSON, CBOR of Smile. Alle drie worden door
+ * Jackson met dezelfde annotaties geschreven, dus een Gear object ziet er in ieder formaat hetzelfde uit.
+ * Ieder formaat heeft een media type voor één waarde en een voor een reeks waarden achter elkaar (bulk import
+ * en export).
+ */
+
+public enum WireFormat {
+    // de volgorde telt: bij gelijke voorkeur in de Accept header wint het eerste formaat
+    JSON("json", MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON),
+    CBOR("cbor", MediaType.APPLICATION_CBOR, MediaType.parseMediaType(WireFormat.CBOR_SEQ_VALUE)),
+    SMILE("smile", MediaType.parseMediaType(WireFormat.SMILE_VALUE), MediaType.parseMediaType(WireFormat.SMILE_VALUE));
+
+    public static final String CBOR_SEQ_VALUE = "application/cbor-seq";
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final String name;
+    private final MediaType mediaType;
+    private final MediaType sequenceMediaType;
+
+    WireFormat(String name, MediaType mediaType, MediaType sequenceMediaType) {
+        this.name = name;
+        this.mediaType = mediaType;
+        this.sequenceMediaType = sequenceMediaType;
+    }
+
+    /**
+     * Kiest het formaat van een antwoord op basis van de "Accept" header, met de voorkeur (q) van de client.
+     * @param accept De "Accept" header. Mag null zijn; dan wordt JSON gekozen.
+     * @return Het gekozen formaat.
+     * @throws ResponseStatusException Gooit HTTP code 406 als de client geen van de formaten accepteert.
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType accepted : acceptedTypes) {
+            for (WireFormat format : values()) {
+                if (accepted.getQualityValue() > 0 && accepted.isCompatibleWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE,
+                "Supported formats are " + JSON.mediaType + ", " + CBOR.mediaType + " and " + SMILE.mediaType);
+    }
+
+    /**
+     * Bepaalt het formaat van een request body op basis van de "Content-Type" header.
+     * @param contentType De "Content-Type" header. Mag null zijn; dan wordt JSON aangenomen.
+     * @return Het formaat van de body.
+     */
+    public static WireFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        for (WireFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(type) || format.sequenceMediaType.isCompatibleWith(type)) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Zoekt een formaat op naam.
+     * @param name "json", "cbor" of "smile".
+     * @return Het formaat.
+     * @throws IllegalArgumentException Als er geen formaat met die naam is.
+     */
+    public static WireFormat forName(String name) {
+        for (WireFormat format : values()) {
+            if (format.name.equals(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown wire format " + name);
+    }
+
+    /**
+     * Getter voor de naam van het formaat, zoals die in een CacheKey en in "?format=" gebruikt wordt.
+     * @return "json", "cbor" of "smile".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter voor het media type van één waarde in dit formaat.
+     * @return Het media type, bijv. "application/cbor".
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Getter voor het media type van een reeks waarden achter elkaar in dit formaat.
+     * @return Het media type, bijv. "application/x-ndjson" voor JSON.
+     */
+    public MediaType getSequenceMediaType() {
+        return sequenceMediaType;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,41 @@
+package kemp.roel.guitaristgear.wireformat;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Registreert de CBOR en Smile converters bij Spring MVC, zodat alle endpoints die objecten teruggeven of een
+ * @RequestBody lezen via de "Accept" en "Content-Type" headers ook deze formaten spreken. Spring MVC zou ze bij
+ * Jackson op het classpath zelf toevoegen, maar dan zonder de instellingen van Spring Boot; via de
+ * Jackson2ObjectMapperBuilder van Spring Boot gelden dezelfde modules en features als voor JSON.
+ */
+
+@Configuration
+public class WireFormatConfig {
+
+    /**
+     * De converter voor "application/cbor".
+     * @param builder De door Spring Boot geconfigureerde builder. Iedere injectie krijgt een eigen exemplaar.
+     * @return De CBOR converter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * De converter voor "application/x-jackson-smile".
+     * @param builder De door Spring Boot geconfigureerde builder. Iedere injectie krijgt een eigen exemplaar.
+     * @return De Smile converter.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
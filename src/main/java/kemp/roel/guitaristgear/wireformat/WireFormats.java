@@ -0,0 +1,44 @@
+package kemp.roel.guitaristgear.wireformat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Geeft de ObjectMapper per WireFormat, voor code die zelf serialiseert of leest in plaats van via de
+ * message converters: de ResponseCache, de bulk import en de export.
+ */
+
+@Component
+public class WireFormats {
+    private final Map<String, ObjectMapper> mappers;
+
+    /**
+     * Constructor voor WireFormats.
+     * @param objectMapper De ObjectMapper voor JSON.
+     * @param cborConverter De converter waarvan de ObjectMapper voor CBOR gebruikt wordt.
+     * @param smileConverter De converter waarvan de ObjectMapper voor Smile gebruikt wordt.
+     */
+    @Autowired
+    public WireFormats(ObjectMapper objectMapper, MappingJackson2CborHttpMessageConverter cborConverter,
+                       MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.mappers = Map.of(
+                WireFormat.JSON.getName(), objectMapper,
+                WireFormat.CBOR.getName(), cborConverter.getObjectMapper(),
+                WireFormat.SMILE.getName(), smileConverter.getObjectMapper());
+    }
+
+    /**
+     * Geeft de ObjectMapper voor een formaat.
+     * @param format Het formaat.
+     * @return De ObjectMapper die dit formaat leest en schrijft.
+     */
+    public ObjectMapper mapper(WireFormat format) {
+        return mappers.get(format.getName());
+    }
+}
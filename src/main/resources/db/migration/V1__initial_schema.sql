@@ -0,0 +1,117 @@
+-- Het volledige schema van GuitaristGear. Tot deze migratie maakte Hibernate het schema met ddl-auto=update.
+-- Een bestaande database wordt bij de eerste start op versie 0 gezet (spring.flyway.baseline-on-migrate), zodat
+-- deze migratie er ook op draait. Daarom is alles "IF NOT EXISTS": een nieuwe database krijgt hier het hele
+-- schema, een oude database (zoals data/GGDB uit de eerste versie) alleen wat er nog aan ontbreekt.
+
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START WITH 1 INCREMENT BY 1;
+-- pooled-lo: de stapgrootte moet gelijk zijn aan de allocationSize van de entities
+CREATE SEQUENCE IF NOT EXISTS gear_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS manufacturer_seq START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS outbox_event_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS manufacturer (
+    id                BIGINT       NOT NULL,
+    main_product_type VARCHAR(255),
+    name              VARCHAR(255),
+    name_normalized   VARCHAR(255) AS LOWER(name),
+    place_founded     VARCHAR(255),
+    version           BIGINT       DEFAULT 0 NOT NULL,
+    year_founded      INTEGER      NOT NULL,
+    CONSTRAINT pk_manufacturer PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS gear (
+    id              BIGINT       NOT NULL,
+    name            VARCHAR(255),
+    type            VARCHAR(255),
+    type_normalized VARCHAR(255) AS LOWER(type),
+    version         BIGINT       DEFAULT 0 NOT NULL,
+    weight_in_grams INTEGER      NOT NULL,
+    brand_id        BIGINT,
+    CONSTRAINT pk_gear PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS guitarist (
+    id          BIGINT       NOT NULL,
+    birth_place VARCHAR(255),
+    birth_year  INTEGER      NOT NULL,
+    genre       VARCHAR(255),
+    name        VARCHAR(255),
+    version     BIGINT       DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_guitarist PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS guitarist_gear_list (
+    guitarist_id BIGINT NOT NULL,
+    gear_list_id BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS manufacturer_stats (
+    manufacturer_id       BIGINT NOT NULL,
+    gear_count            BIGINT NOT NULL,
+    total_weight_in_grams BIGINT NOT NULL,
+    CONSTRAINT pk_manufacturer_stats PRIMARY KEY (manufacturer_id)
+);
+
+CREATE TABLE IF NOT EXISTS manufacturer_stats_type_count (
+    manufacturer_id BIGINT       NOT NULL,
+    type            VARCHAR(255) NOT NULL,
+    gear_count      BIGINT,
+    CONSTRAINT pk_manufacturer_stats_type_count PRIMARY KEY (manufacturer_id, type)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id              BIGINT       NOT NULL,
+    sequence_number BIGINT,
+    created_at      BIGINT       NOT NULL,
+    resource        VARCHAR(255),
+    resource_id     BIGINT,
+    action          VARCHAR(255),
+    payload         CLOB,
+    CONSTRAINT pk_outbox_event PRIMARY KEY (id)
+);
+
+-- kolommen die na de eerste versie bij de entities gekomen zijn; op een nieuwe database bestaan ze al
+ALTER TABLE manufacturer ADD COLUMN IF NOT EXISTS name_normalized VARCHAR(255) AS LOWER(name);
+ALTER TABLE manufacturer ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE gear ADD COLUMN IF NOT EXISTS type_normalized VARCHAR(255) AS LOWER(type);
+ALTER TABLE gear ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE guitarist ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- De indexes staan voor de foreign keys, zodat H2 ze voor de foreign keys gebruikt in plaats van er zelf een
+-- extra index voor aan te maken.
+
+-- GET /gg/gear?type=: exacte type (findGearByType) en genormaliseerd type met gewicht (filters, histogram)
+CREATE INDEX IF NOT EXISTS idx_gear_type ON gear (type);
+CREATE INDEX IF NOT EXISTS idx_gear_type_weight ON gear (type_normalized, weight_in_grams);
+CREATE INDEX IF NOT EXISTS idx_gear_weight_id ON gear (weight_in_grams, id);
+-- merk met type: findGearByBrandNameAndType zoekt beide met een gelijkheid; alleen het merk gebruikt de eerste kolom
+CREATE INDEX IF NOT EXISTS idx_gear_brand_type ON gear (brand_id, type_normalized);
+CREATE INDEX IF NOT EXISTS idx_gear_name_id ON gear (name, id);
+
+-- de merknaam wordt exact (findManufacturerByName) en in kleine letters (filter op merk in /gg/gear) gezocht
+CREATE INDEX IF NOT EXISTS idx_manufacturer_name_normalized ON manufacturer (name_normalized);
+CREATE INDEX IF NOT EXISTS idx_manufacturer_name_id ON manufacturer (name, id);
+
+CREATE INDEX IF NOT EXISTS idx_guitarist_name_id ON guitarist (name, id);
+CREATE INDEX IF NOT EXISTS idx_guitarist_birth_year_id ON guitarist (birth_year, id);
+
+-- beide richtingen van de koppeltabel: de gear van een gitarist (ook zonder de tabel zelf te lezen) en of gear
+-- in bezit is
+CREATE INDEX IF NOT EXISTS idx_guitarist_gear_list_guitarist ON guitarist_gear_list (guitarist_id, gear_list_id);
+CREATE INDEX IF NOT EXISTS idx_guitarist_gear_list_gear ON guitarist_gear_list (gear_list_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_outbox_event_sequence ON outbox_event (sequence_number);
+-- het opruimen van verstuurde rijen zoekt op leeftijd, zonder deze index leest iedere ronde de hele tabel
+CREATE INDEX IF NOT EXISTS idx_outbox_event_created_at ON outbox_event (created_at);
+
+-- De foreign keys hebben de namen die Hibernate ze met ddl-auto gaf (een hash van tabel en kolommen), zodat een
+-- bestaande database ze niet nog een keer krijgt.
+ALTER TABLE gear ADD CONSTRAINT IF NOT EXISTS FKmm0w2x1n7bfha04qir7jx9b30
+    FOREIGN KEY (brand_id) REFERENCES manufacturer (id);
+ALTER TABLE guitarist_gear_list ADD CONSTRAINT IF NOT EXISTS FKig69wa0aggwkfnkpi5ac0hyu9
+    FOREIGN KEY (guitarist_id) REFERENCES guitarist (id);
+ALTER TABLE guitarist_gear_list ADD CONSTRAINT IF NOT EXISTS FK9sfoley4jx8gfda4rye6ave2b
+    FOREIGN KEY (gear_list_id) REFERENCES gear (id);
+ALTER TABLE manufacturer_stats_type_count ADD CONSTRAINT IF NOT EXISTS FK388ys7iweo8k9aoxdoypy3ntf
+    FOREIGN KEY (manufacturer_id) REFERENCES manufacturer_stats (manufacturer_id);
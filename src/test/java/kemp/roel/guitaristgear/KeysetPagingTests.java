@@ -0,0 +1,141 @@
+package kemp.roel.guitaristgear;
+
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.guitarist.Guitarist;
+import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import kemp.roel.guitaristgear.paging.PageToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Loopt met een kleine paginagrootte door de seek queries en vergelijkt de rijen met een gewone sortering in Java.
+ * De testdata heeft steeds meerdere rijen met dezelfde sorteerwaarde, zodat die over een paginagrens heen vallen
+ * en het id als tweede sleutel de doorslag moet geven.
+ */
+
+@DataJpaTest
+class KeysetPagingTests {
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private GearRepository gearRepository;
+
+    @Autowired
+    private GuitaristRepository guitaristRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Test
+    void gearByNameVisitsEveryNamedRowOnceAndSkipsRowsWithoutName() {
+        for (String name : new String[]{"Stratocaster", "Les Paul", "Stratocaster", "Stratocaster", "AC30"}) {
+            gearRepository.save(new Gear(null, name, "Guitar", 3500));
+        }
+        Gear unnamed = gearRepository.saveAndFlush(new Gear(null, null, "Guitar", 3500));
+
+        List<Gear> visited = walk((after, afterId) -> gearRepository.findPageOrderByName(after, afterId,
+                CursorPage.limit(PAGE_SIZE)), "", Gear::getId, Gear::getName);
+
+        List<Gear> expected = gearRepository.findAll().stream()
+                .filter(gear -> gear.getName() != null)
+                .sorted(Comparator.comparing(Gear::getName).thenComparing(Gear::getId))
+                .collect(Collectors.toList());
+        assertEquals(ids(expected, Gear::getId), ids(visited, Gear::getId));
+        assertTrue(visited.stream().noneMatch(gear -> gear.getId().equals(unnamed.getId())));
+    }
+
+    @Test
+    void guitaristsByNameCrossPageBoundaryOnTheId() {
+        for (String name : new String[]{"Slash", "Slash", "Slash", "Hendrix"}) {
+            guitaristRepository.save(new Guitarist(null, name, "London", 1965, "Rock"));
+        }
+        guitaristRepository.flush();
+
+        List<Guitarist> visited = walk((after, afterId) -> guitaristRepository.findPageOrderByName(after, afterId,
+                CursorPage.limit(PAGE_SIZE)), "", Guitarist::getId, Guitarist::getName);
+
+        List<Guitarist> expected = guitaristRepository.findAll().stream()
+                .filter(guitarist -> guitarist.getName() != null)
+                .sorted(Comparator.comparing(Guitarist::getName).thenComparing(Guitarist::getId))
+                .collect(Collectors.toList());
+        assertEquals(ids(expected, Guitarist::getId), ids(visited, Guitarist::getId));
+    }
+
+    @Test
+    void guitaristsByBirthYearIncludeEqualYearsOnTheNextPage() {
+        for (int birthYear : new int[]{1970, 1942, 1970, 1970, 1942}) {
+            guitaristRepository.save(new Guitarist(null, "Guitarist " + birthYear, "Seattle", birthYear, "Rock"));
+        }
+        guitaristRepository.flush();
+
+        List<Guitarist> visited = walk((after, afterId) -> guitaristRepository.findPageOrderByBirthYear(
+                Integer.parseInt(after), afterId, CursorPage.limit(PAGE_SIZE)),
+                String.valueOf(Integer.MIN_VALUE), Guitarist::getId, Guitarist::getBirthYear);
+
+        List<Guitarist> expected = guitaristRepository.findAll().stream()
+                .sorted(Comparator.comparingInt(Guitarist::getBirthYear).thenComparing(Guitarist::getId))
+                .collect(Collectors.toList());
+        assertEquals(ids(expected, Guitarist::getId), ids(visited, Guitarist::getId));
+    }
+
+    @Test
+    void manufacturersByNameEndWithoutToken() {
+        for (String name : new String[]{"Vox", "Fender", "Vox"}) {
+            manufacturerRepository.save(new Manufacturer(null, name, "Amplifier", "Dartford", 1957));
+        }
+        manufacturerRepository.flush();
+
+        List<Manufacturer> visited = walk((after, afterId) -> manufacturerRepository.findPageOrderByName(after,
+                afterId, CursorPage.limit(PAGE_SIZE)), "", Manufacturer::getId, Manufacturer::getName);
+
+        List<Manufacturer> expected = manufacturerRepository.findAll().stream()
+                .filter(manufacturer -> manufacturer.getName() != null)
+                .sorted(Comparator.comparing(Manufacturer::getName).thenComparing(Manufacturer::getId))
+                .collect(Collectors.toList());
+        assertEquals(ids(expected, Manufacturer::getId), ids(visited, Manufacturer::getId));
+    }
+
+    /**
+     * Vraagt pagina na pagina op, zoals een client met het "nextPageToken" doet, tot er geen token meer is.
+     * @param page De seek query met de sorteerwaarde en het id van de laatste rij van de vorige pagina.
+     * @param first De sorteerwaarde voor de eerste pagina.
+     * @return Alle rijen in de volgorde waarin ze teruggegeven zijn.
+     */
+    private static <T> List<T> walk(BiFunction<String, Long, List<T>> page, String first,
+                                    Function<T, Long> id, Function<T, Object> sortValue) {
+        List<T> visited = new ArrayList<>();
+        String after = first;
+        Long afterId = Long.MIN_VALUE;
+        while (true) {
+            CursorPage<T> cursorPage = CursorPage.of(page.apply(after, afterId), PAGE_SIZE, "sort", id, sortValue);
+            assertTrue(cursorPage.getItems().size() <= PAGE_SIZE);
+            visited.addAll(cursorPage.getItems());
+            if (cursorPage.getNextPageToken() == null) {
+                return visited;
+            }
+            PageToken token = PageToken.decode(cursorPage.getNextPageToken(), "sort");
+            after = token.getLastValue();
+            afterId = token.getLastId();
+        }
+    }
+
+    private static <T> List<Long> ids(List<T> rows, Function<T, Long> id) {
+        return rows.stream().map(id).collect(Collectors.toList());
+    }
+}
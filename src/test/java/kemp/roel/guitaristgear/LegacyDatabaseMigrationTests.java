@@ -0,0 +1,116 @@
+package kemp.roel.guitaristgear;
+
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.Manufacturer;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Migreert een kopie van data/GGDB, de database uit de eerste versie die nog met ddl-auto=update is aangemaakt.
+ * Het opstarten zelf is de belangrijkste controle: Flyway moet V1 op de oude database uitvoeren en Hibernate moet
+ * het resultaat daarna valideren. De kopie staat in een tijdelijke map, zodat data/GGDB niet verandert.
+ * Voor de migratie krijgt de kopie een gear en een merk met een id boven de 1000, zoals een oude database die lang
+ * genoeg in gebruik was; nieuwe rijen moeten daarna een id boven die rijen krijgen.
+ */
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LegacyDatabaseMigrationTests {
+    private static final String USER = "rolo";
+    private static final String PASSWORD = "waspoort";
+    private static final long LEGACY_GEAR_ID = 4321;
+    private static final long LEGACY_MANUFACTURER_ID = 2345;
+
+    private static long gearBefore;
+    private static long guitaristsBefore;
+    private static long manufacturersBefore;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private GearRepository gearRepository;
+
+    @Autowired
+    private GuitaristRepository guitaristRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws IOException, SQLException {
+        Path directory = Files.createTempDirectory("ggdb-legacy");
+        Files.copy(Paths.get("data", "GGDB.mv.db"), directory.resolve("GGDB.mv.db"));
+        String url = "jdbc:h2:file:" + directory.toAbsolutePath().resolve("GGDB");
+
+        try (Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into manufacturer (id, name, main_product_type, place_founded, year_founded) "
+                    + "values (" + LEGACY_MANUFACTURER_ID + ", 'Mesa Boogie', 'Amplifier', 'Petaluma', 1969)");
+            statement.executeUpdate("insert into gear (id, name, type, weight_in_grams) "
+                    + "values (" + LEGACY_GEAR_ID + ", 'Mark IIC+', 'Amplifier', 21000)");
+            gearBefore = count(statement, "gear");
+            guitaristsBefore = count(statement, "guitarist");
+            manufacturersBefore = count(statement, "manufacturer");
+        }
+        registry.add("spring.datasource.url", () -> url);
+        directory.toFile().deleteOnExit();
+    }
+
+    @Test
+    void migratesTheOldSchemaToTheCurrentVersion() {
+        assertEquals("2", flyway.info().current().getVersion().getVersion());
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void keepsTheExistingRows() {
+        assertEquals(gearBefore, gearRepository.count());
+        assertEquals(guitaristsBefore, guitaristRepository.count());
+        assertEquals(manufacturersBefore, manufacturerRepository.count());
+        assertTrue(gearRepository.existsById(LEGACY_GEAR_ID));
+        assertTrue(manufacturerRepository.existsById(LEGACY_MANUFACTURER_ID));
+    }
+
+    @Test
+    void writesWithTheNewColumnsAndSequences() {
+        Gear gear = gearRepository.saveAndFlush(new Gear(null, "Twin Reverb", "Amplifier", 29000));
+
+        // V2 zet gear_seq en manufacturer_seq voorbij de hoogste id's die de oude database al uitgedeeld heeft
+        assertTrue(gear.getId() > LEGACY_GEAR_ID, () -> "new id " + gear.getId());
+        Manufacturer manufacturer = manufacturerRepository.saveAndFlush(
+                new Manufacturer(null, "Orange", "Amplifier", "London", 1968));
+        assertTrue(manufacturer.getId() > LEGACY_MANUFACTURER_ID, () -> "new id " + manufacturer.getId());
+        assertEquals(1, gearRepository.findGearByNormalizedType("amplifier").stream()
+                .filter(found -> found.getId().equals(gear.getId())).count());
+    }
+
+    private static long count(Statement statement, String table) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("select count(*) from " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
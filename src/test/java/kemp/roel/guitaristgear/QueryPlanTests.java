@@ -0,0 +1,233 @@
+package kemp.roel.guitaristgear;
+
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.guitarist.GuitaristRepository;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerRepository;
+import kemp.roel.guitaristgear.outbox.OutboxEventRepository;
+import kemp.roel.guitaristgear.paging.CursorPage;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Controleert dat de queries van de repositories een index gebruiken. Het schema komt uit de Flyway migraties, net
+ * als in productie. Iedere query wordt uitgevoerd; de SQL die Hibernate daarvoor verstuurt wordt opgevangen en met
+ * EXPLAIN aan H2 voorgelegd. Het plan mag geen "tableScan" bevatten en moet de verwachte index noemen. Iedere
+ * query die een pagina of een opruimronde bepaalt heeft hier een test, zodat een nieuwe migratie die een index
+ * weghaalt of hernoemt direct opvalt.
+ */
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "kemp.roel.guitaristgear.QueryPlanTests$SqlRecorder")
+class QueryPlanTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private GearRepository gearRepository;
+
+    @Autowired
+    private GuitaristRepository guitaristRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void gearByTypeUsesTypeIndex() {
+        assertUsesIndex(() -> gearRepository.findGearByType("Amplifier"), "idx_gear_type");
+    }
+
+    @Test
+    void gearByNormalizedTypeUsesTypeWeightIndex() {
+        assertUsesIndex(() -> gearRepository.findGearByNormalizedType("amplifier"), "idx_gear_type_weight");
+    }
+
+    @Test
+    void gearByBrandNameUsesBrandIndexes() {
+        assertUsesIndex(() -> gearRepository.findGearByBrandName("fender"), "idx_manufacturer_name_normalized");
+        assertUsesIndex(() -> gearRepository.findGearByBrandName("fender"), "idx_gear_brand_type");
+    }
+
+    @Test
+    void gearByBrandNameAndTypeUsesBrandTypeIndex() {
+        assertUsesIndex(() -> gearRepository.findGearByBrandNameAndType("fender", "amplifier"),
+                "idx_manufacturer_name_normalized");
+        assertUsesIndex(() -> gearRepository.findGearByBrandNameAndType("fender", "amplifier"),
+                "idx_gear_brand_type");
+    }
+
+    @Test
+    void gearPageByNameUsesNameIndex() {
+        assertUsesIndex(() -> gearRepository.findPageOrderByName("Les Paul", 10L, CursorPage.limit(50)),
+                "idx_gear_name_id");
+    }
+
+    @Test
+    void gearColumnsByTypeAndWeightUseTypeWeightIndex() {
+        assertUsesIndex(() -> gearRepository.findColumnsFiltered(null, "amplifier", 1000, 5000, true, false),
+                "idx_gear_type_weight");
+    }
+
+    @Test
+    void weightHistogramByTypeUsesTypeWeightIndex() {
+        assertUsesIndex(() -> gearRepository.findWeightHistogram("amplifier", null, null, 500),
+                "idx_gear_type_weight");
+    }
+
+    @Test
+    void guitaristByNameUsesNameIndex() {
+        assertUsesIndex(() -> guitaristRepository.findGuitaristByName("Slash"), "idx_guitarist_name_id");
+    }
+
+    @Test
+    void guitaristsByBirthYearUseBirthYearAndGearListIndexes() {
+        assertUsesIndex(() -> guitaristRepository.findGuitaristsByBirthYear(1965), "idx_guitarist_birth_year_id");
+        assertUsesIndex(() -> guitaristRepository.findGuitaristsByBirthYear(1966),
+                "idx_guitarist_gear_list_guitarist");
+    }
+
+    @Test
+    void guitaristPageByNameUsesNameIndex() {
+        assertUsesIndex(() -> guitaristRepository.findPageOrderByName("Slash", 10L, CursorPage.limit(50)),
+                "idx_guitarist_name_id");
+    }
+
+    @Test
+    void guitaristPageByBirthYearUsesBirthYearIndex() {
+        assertUsesIndex(() -> guitaristRepository.findPageOrderByBirthYear(1965, 10L, CursorPage.limit(50)),
+                "idx_guitarist_birth_year_id");
+    }
+
+    @Test
+    void gearListIdsUseGuitaristIndex() {
+        assertUsesIndex(() -> guitaristRepository.findGearListIds(1L), "idx_guitarist_gear_list_guitarist");
+    }
+
+    @Test
+    void gearOwnershipUsesGearIndex() {
+        assertUsesIndex(() -> guitaristRepository.isGearOwned(1L), "idx_guitarist_gear_list_gear");
+    }
+
+    @Test
+    void manufacturerByNameUsesNameIndex() {
+        assertUsesIndex(() -> manufacturerRepository.findManufacturerByName("Fender"), "idx_manufacturer_name_id");
+    }
+
+    @Test
+    void manufacturerPageByNameUsesNameIndex() {
+        assertUsesIndex(() -> manufacturerRepository.findPageOrderByName("Fender", 10L, CursorPage.limit(50)),
+                "idx_manufacturer_name_id");
+    }
+
+    @Test
+    void dispatchedOutboxEventsUseSequenceIndex() {
+        assertUsesIndex(() -> outboxEventRepository.findDispatchedAfter(0, PageRequest.of(0, 100)),
+                "idx_outbox_event_sequence");
+    }
+
+    @Test
+    void undispatchedOutboxEventsUseSequenceIndex() {
+        // "sequence_number is null" is voor H2 een gelijkheid op de index, ook al is die uniek
+        assertUsesIndex(() -> outboxEventRepository.findUndispatched(PageRequest.of(0, 100)),
+                "idx_outbox_event_sequence");
+    }
+
+    @Test
+    void outboxCleanupUsesCreatedAtIndex() {
+        assertUsesIndex(() -> outboxEventRepository.deleteDispatchedBefore(System.currentTimeMillis()),
+                "idx_outbox_event_created_at");
+    }
+
+    /**
+     * Voert de query uit en controleert het plan van het eerste select of delete statement dat daarbij verstuurd
+     * wordt. De second-level cache en de query cache worden eerst geleegd, zodat de query de database echt bereikt.
+     * @param query De aanroep van de repository methode.
+     * @param index De index die in het plan moet staan.
+     */
+    private void assertUsesIndex(Runnable query, String index) {
+        entityManager.flush();
+        entityManager.clear();
+        entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getCache()
+                .evictAllRegions();
+        SqlRecorder.clear();
+
+        query.run();
+
+        String sql = SqlRecorder.firstQuery();
+        String plan = explain(sql);
+        assertFalse(plan.contains("tableScan"), "Table scan in plan:\n" + plan);
+        assertTrue(plan.toLowerCase(Locale.ROOT).contains("." + index + ":"),
+                "Index " + index + " not used in plan:\n" + plan);
+    }
+
+    /**
+     * Geeft het plan van H2 voor een statement. De parameters krijgen de waarde null; H2 kiest de indexes al bij
+     * het voorbereiden van het statement, los van de waarden.
+     */
+    private String explain(String sql) {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Vangt alle SQL op die Hibernate verstuurt. Hibernate maakt zelf een exemplaar aan via de naam van de klasse,
+     * daarom staat de lijst in een statisch veld.
+     */
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+        static void clear() {
+            STATEMENTS.clear();
+        }
+
+        static String firstQuery() {
+            synchronized (STATEMENTS) {
+                for (String sql : STATEMENTS) {
+                    String start = sql.trim().toLowerCase(Locale.ROOT);
+                    if (start.startsWith("select") || start.startsWith("delete")) {
+                        return sql;
+                    }
+                }
+            }
+            throw new AssertionError("No select or delete statement was sent to the database, only " + STATEMENTS);
+        }
+    }
+}
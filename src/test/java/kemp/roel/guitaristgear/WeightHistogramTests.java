@@ -0,0 +1,40 @@
+package kemp.roel.guitaristgear;
+
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.gear.WeightBucket;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Controleert de gewichtsklassen van GearRepository.findWeightHistogram rond nul: iedere klasse loopt van de
+ * ondergrens (inclusief) tot de bovengrens (exclusief), ook voor negatieve gewichten.
+ */
+
+@DataJpaTest
+class WeightHistogramTests {
+
+    @Autowired
+    private GearRepository gearRepository;
+
+    @Test
+    void negativeWeightsFallInTheBucketBelowZero() {
+        for (int weight : new int[]{-501, -500, -1, 0, 499, 500}) {
+            gearRepository.save(new Gear(null, "Theremin " + weight, "Theremin", weight));
+        }
+        gearRepository.flush();
+
+        List<WeightBucket> buckets = gearRepository.findWeightHistogram("theremin", null, null, 500);
+
+        assertEquals(List.of("-1000..-500:1", "-500..0:2", "0..500:2", "500..1000:1"), buckets.stream()
+                .map(bucket -> bucket.getFromGrams() + ".." + bucket.getToGrams() + ":" + bucket.getCount())
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,53 @@
+package kemp.roel.guitaristgear.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Controleert welke body een CachedResponse kiest bij verschillende "Accept-Encoding" headers, inclusief q-waarden
+ * die gzip juist uitsluiten.
+ */
+
+class CachedResponseTests {
+    private static final byte[] BODY = "[{\"name\":\"Stratocaster\"}]".getBytes(StandardCharsets.UTF_8);
+
+    private final CachedResponse response = new CachedResponse(MediaType.APPLICATION_JSON, BODY);
+
+    @Test
+    void gzipIsServedWhenTheClientAcceptsIt() {
+        for (String header : new String[]{"gzip", "gzip, deflate, br", "deflate;q=0.5, GZIP;q=0.1", "*", "x-gzip"}) {
+            assertEquals("gzip", contentEncoding(header), header);
+        }
+    }
+
+    @Test
+    void gzipWithQualityZeroIsNotServed() {
+        for (String header : new String[]{"gzip;q=0", "gzip; q=0.000, deflate", "identity, *;q=0", "br", "",
+                "*;q=0.5, gzip;q=0", "gzip;q=oops"}) {
+            assertNull(contentEncoding(header), header);
+        }
+        assertArrayEquals(BODY, response.toResponseEntity("identity, *;q=0").getBody());
+        assertNull(contentEncoding(null));
+    }
+
+    @Test
+    void theWildcardOnlyCountsWhenGzipIsNotListed() {
+        assertEquals(0.5, CachedResponse.gzipQuality("*;q=0.5"));
+        assertEquals(0.8, CachedResponse.gzipQuality("gzip;q=0.8, *;q=0"));
+        assertEquals(0, CachedResponse.gzipQuality("deflate"));
+    }
+
+    private String contentEncoding(String acceptEncoding) {
+        ResponseEntity<byte[]> entity = response.toResponseEntity(acceptEncoding);
+        return entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+    }
+}
@@ -0,0 +1,152 @@
+package kemp.roel.guitaristgear.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Zet de routering op dezelfde manier op als DataSourceRoutingConfig, met twee H2 databases in het geheugen.
+ * Iedere database heeft een tabel "node" met zijn eigen naam, zodat een query laat zien waar hij terechtkwam.
+ */
+
+class ReadWriteRoutingTests {
+    private final DataSource primary = database("primary");
+    private final DataSource replica = database("replica");
+    private final CountDownLatch refreshing = new CountDownLatch(1);
+    private final CountDownLatch releaseRefresh = new CountDownLatch(1);
+    private volatile boolean blockRefresh;
+
+    private ReplicaRefresher replicaRefresher;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readTransaction;
+
+    @BeforeEach
+    void setUp() {
+        replicaRefresher = new ReplicaRefresher((from, to) -> {
+            if (blockRefresh) {
+                refreshing.countDown();
+                await(releaseRefresh);
+            }
+        }, primary, replica, event -> {});
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primary);
+        targets.put(ReadWriteRoutingDataSource.REPLICA, replica);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaRefresher);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToTheReplica() {
+        replicaRefresher.refresh();
+
+        assertEquals("replica", readTransaction.execute(status -> node()));
+        assertEquals("primary", node(), "without a transaction the primary is used");
+        assertEquals(1L, replicaRefresher.getStats().get("replicaTransactions"));
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        replicaRefresher.refresh();
+
+        String node = writeTransaction.execute(status -> {
+            jdbcTemplate.update("insert into written (id) values (1)");
+            return node();
+        });
+
+        assertEquals("primary", node);
+        assertEquals(1, count(primary));
+        assertEquals(0, count(replica));
+    }
+
+    @Test
+    void readsAfterAWriteInTheSameRequestGoToThePrimary() {
+        replicaRefresher.refresh();
+        writeTransaction.execute(status -> jdbcTemplate.update("insert into written (id) values (1)"));
+
+        // de replica is nog niet ververst, dus alleen de primaire database ziet de nieuwe rij
+        assertEquals("primary", readTransaction.execute(status -> node()));
+        assertEquals(1, readTransaction.execute(status ->
+                jdbcTemplate.queryForObject("select count(*) from written", Integer.class)));
+
+        ReadYourWrites.clear();
+        assertEquals("replica", readTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void readsFallBackToThePrimaryBeforeTheFirstRefreshAndDuringARefresh() throws Exception {
+        assertEquals("primary", readTransaction.execute(status -> node()));
+
+        blockRefresh = true;
+        Thread refresh = new Thread(replicaRefresher::refresh, "gg-replica-refresh");
+        refresh.start();
+        try {
+            assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+            assertEquals("primary", readTransaction.execute(status -> node()));
+        } finally {
+            releaseRefresh.countDown();
+            refresh.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertEquals("replica", readTransaction.execute(status -> node()));
+        assertEquals(2L, replicaRefresher.getStats().get("primaryFallbacks"));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static int count(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from written", Integer.class);
+    }
+
+    private static DataSource database(String name) {
+        // een eigen naam per test, zodat de databases (DB_CLOSE_DELAY=-1) niet tussen tests gedeeld worden
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:gg-" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(16))");
+        jdbcTemplate.update("insert into node (name) values (?)", name);
+        jdbcTemplate.execute("create table written (id int)");
+        return dataSource;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerChangedEvent;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test de buffer per transactie van de GearColumnStore. De transactie wordt met de TransactionSynchronizationManager
+ * nagebootst, zodat er geen database nodig is; de repositories worden alleen bij het opstarten gebruikt.
+ */
+
+class GearColumnStoreTests {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final GearColumnStore store = new GearColumnStore(null, null, true);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void withoutTransactionAChangeIsAppliedImmediately() {
+        store.onGearChanged(new GearChangedEvent(null, gear(1L, 3500)));
+
+        assertEquals(1, store.select(null, null).size());
+    }
+
+    @Test
+    void changesAreInvisibleUntilCommitAndAppliedInOneCopy() throws IOException {
+        TransactionSynchronizationManager.initSynchronization();
+        store.onManufacturerChanged(new ManufacturerChangedEvent(null,
+                new ManufacturerSnapshot(1L, "Fender", "Guitar", "Fullerton", 1946)));
+        store.onGearChanged(new GearChangedEvent(null, gear(1L, 3500)));
+        store.onGearChanged(new GearChangedEvent(null, gear(2L, 3600)));
+        store.onGearChanged(new GearChangedEvent(gear(1L, 3500), gear(1L, 3400)));
+
+        assertEquals(0, store.select(null, null).size());
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size(),
+                "one synchronization per transaction, however many changes");
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        JsonNode rows = MAPPER.valueToTree(store.select("fender", null));
+        assertEquals(2, rows.size());
+        assertEquals(3400, rows.get(0).get("weightInGrams").asInt(), "the last state of a Gear id wins");
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+    }
+
+    @Test
+    void newColumnsAreInPlaceBeforeOtherSynchronizationsRun() {
+        List<Integer> seen = new ArrayList<>();
+        TransactionSynchronizationManager.initSynchronization();
+        // zoals de ResponseCacheInvalidator: order 0, na de commit; al geregistreerd voor de eerste wijziging
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return 0;
+            }
+
+            @Override
+            public void afterCommit() {
+                seen.add(store.select(null, null).size());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                seen.add(store.select(null, null).size());
+            }
+        });
+        store.onGearChanged(new GearChangedEvent(null, gear(1L, 3500)));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of(1, 1), seen);
+    }
+
+    @Test
+    void rollbackDiscardsTheBuffer() {
+        store.onGearChanged(new GearChangedEvent(null, gear(1L, 3500)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        store.onGearChanged(new GearChangedEvent(gear(1L, 3500), null));
+        store.onGearChanged(new GearChangedEvent(null, gear(2L, 3600)));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(1, store.select(null, null).size());
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+
+        // de volgende transactie begint met een lege buffer
+        TransactionSynchronizationManager.initSynchronization();
+        store.onGearChanged(new GearChangedEvent(gear(1L, 3500), null));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(0, store.select(null, null).size());
+    }
+
+    @Test
+    void statsReportRowsAndBytesPerRow() {
+        store.onGearChanged(new GearChangedEvent(null, gear(1L, 3500)));
+
+        assertEquals(1, store.getStats().get("rows"));
+        // afgeleid uit GearColumns.estimatedBytes: 5 x 16 + 24 + (40 + "Stratocaster".length())
+        assertEquals(156L, store.getStats().get("bytesPerRow"));
+    }
+
+    private static GearSnapshot gear(Long id, int weightInGrams) {
+        return new GearSnapshot(id, "Stratocaster", "Guitar", weightInGrams, 1L, "Fender");
+    }
+
+    /**
+     * Rondt de nagebootste transactie af zoals de transactiemanager dat doet: na een commit eerst afterCommit, daarna
+     * afterCompletion, beide in de volgorde van getOrder().
+     */
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,121 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.manufacturer.ManufacturerSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test het opbouwen van GearColumns met woordenboeken voor type en merk, het filteren op die codes en het maken
+ * van een nieuwe kopie bij wijzigingen, waarbij de oude kopie onveranderd moet blijven.
+ */
+
+class GearColumnsTests {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ManufacturerSnapshot FENDER = new ManufacturerSnapshot(1L, "Fender", "Guitar", "Fullerton", 1946);
+    private static final ManufacturerSnapshot VOX = new ManufacturerSnapshot(2L, "Vox", "Amplifier", "Dartford", 1957);
+
+    @Test
+    void typesAndBrandsAreEncodedAndFilteredLikeTheJpaRoute() throws IOException {
+        GearColumns columns = catalog();
+
+        assertArrayEquals(new int[]{0, 2}, columns.select(null, "guitar"));
+        assertArrayEquals(new int[]{0, 2}, columns.select("fender", null));
+        assertArrayEquals(new int[]{1}, columns.select("vox", "amplifier"));
+        assertArrayEquals(new int[0], columns.select(null, "drums"));
+        assertEquals(5, columns.select(null, null).length);
+
+        List<JsonNode> rows = json(columns, columns.select(null, null));
+        // "Guitar" en "guitar" hebben ieder een eigen code, zodat het type precies zo teruggegeven wordt
+        assertEquals("Guitar", rows.get(0).get("type").asText());
+        assertEquals("guitar", rows.get(2).get("type").asText());
+        assertEquals("Fender", rows.get(2).get("brand").get("name").asText());
+        assertEquals(1946, rows.get(2).get("brand").get("yearFounded").asInt());
+        assertTrue(rows.get(3).get("type").isNull());
+        assertTrue(rows.get(3).get("brand").isNull());
+        assertTrue(rows.get(4).get("brand").isNull(), "an unknown brand id has no code");
+    }
+
+    @Test
+    void applyMakesANewCopyAndLeavesTheOldOneAlone() throws IOException {
+        GearColumns columns = catalog();
+        Map<Long, GearSnapshot> changes = new HashMap<>();
+        changes.put(10L, null);
+        changes.put(20L, new GearSnapshot(20L, "AC30", "Amplifier", 26000, 2L, "Vox"));
+        changes.put(25L, new GearSnapshot(25L, "Jazz Bass", "Bass", 4200, 1L, "Fender"));
+        changes.put(60L, new GearSnapshot(60L, "Big Muff", "Pedal", 500, null, null));
+
+        GearColumns changed = columns.apply(changes, List.of());
+
+        assertEquals(List.of(20L, 25L, 30L, 40L, 50L, 60L), ids(changed));
+        assertEquals(26000, json(changed, new int[]{0}).get(0).get("weightInGrams").asInt());
+        assertArrayEquals(new int[]{1}, changed.select(null, "bass"));
+        assertArrayEquals(new int[]{1, 2}, changed.select("fender", null));
+
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L), ids(columns));
+        assertEquals(25000, json(columns, new int[]{1}).get(0).get("weightInGrams").asInt());
+        assertArrayEquals(new int[0], columns.select(null, "bass"));
+    }
+
+    @Test
+    void aChangedBrandIsSeenByAllItsRows() throws IOException {
+        GearColumns columns = catalog();
+        ManufacturerSnapshot renamed = new ManufacturerSnapshot(1L, "Fender Musical Instruments", "Guitar",
+                "Fullerton", 1946);
+        ManufacturerSnapshot gretsch = new ManufacturerSnapshot(3L, "Gretsch", "Guitar", "New York", 1883);
+        Map<Long, GearSnapshot> changes = new HashMap<>();
+        changes.put(70L, new GearSnapshot(70L, "White Falcon", "Guitar", 3800, 3L, "Gretsch"));
+
+        GearColumns changed = columns.apply(changes, List.of(renamed, gretsch));
+
+        assertArrayEquals(new int[]{0, 2}, changed.select("fender musical instruments", null));
+        assertArrayEquals(new int[0], changed.select("fender", null));
+        assertEquals("Gretsch", json(changed, changed.select("gretsch", null)).get(0).get("brand").get("name").asText());
+        assertArrayEquals(new int[]{0, 2}, columns.select("fender", null));
+    }
+
+    @Test
+    void estimatedBytesCountTheArraysAndTheNames() {
+        GearColumns columns = GearColumns.build(List.of(
+                new Object[]{1L, "AC30", "Amplifier", 25000, 2L},
+                new Object[]{2L, "Les Paul", "Guitar", 4000, null}), List.of(VOX));
+
+        // 5 array headers van 16 bytes, per rij 8 (id) + 4 (naamreferentie) + 3 x 4 (gewicht, type, merk) en per
+        // naam 40 bytes plus één byte per teken
+        assertEquals(5 * 16 + 2 * 24 + (40 + 4) + (40 + 8), columns.estimatedBytes());
+    }
+
+    private static GearColumns catalog() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{10L, "Stratocaster", "Guitar", 3500, 1L});
+        rows.add(new Object[]{20L, "AC30", "Amplifier", 25000, 2L});
+        rows.add(new Object[]{30L, "Telecaster", "guitar", 3600, 1L});
+        rows.add(new Object[]{40L, "Prototype", null, 1000, null});
+        rows.add(new Object[]{50L, "Tube Screamer", "Pedal", 300, 99L});
+        return GearColumns.build(rows, List.of(FENDER, VOX));
+    }
+
+    private static List<JsonNode> json(GearColumns columns, int[] rows) throws IOException {
+        List<JsonNode> result = new ArrayList<>();
+        MAPPER.readTree(MAPPER.writeValueAsString(new GearColumnView(columns, rows))).forEach(result::add);
+        return result;
+    }
+
+    private static List<Long> ids(GearColumns columns) throws IOException {
+        return json(columns, columns.select(null, null)).stream()
+                .map(row -> row.get("id").asLong())
+                .collect(Collectors.toList());
+    }
+}
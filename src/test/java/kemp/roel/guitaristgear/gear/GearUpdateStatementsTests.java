@@ -0,0 +1,112 @@
+package kemp.roel.guitaristgear.gear;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kemp.roel.guitaristgear.bulk.BulkImporter;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Legt vast welke SQL een PUT en een PATCH van alleen het gewicht naar de database sturen, zoals in
+ * GearUpdateBenchmark. De statements worden met een StatementInspector opgevangen; de tijd wordt niet gemeten.
+ */
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "kemp.roel.guitaristgear.gear.GearUpdateStatementsTests$SqlRecorder")
+@Import(GearService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class GearUpdateStatementsTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private GearService gearService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private BulkImporter bulkImporter;
+
+    @Test
+    void patchOnlyLoadsTheRowAndWritesTheWeight() {
+        Long id = saveGear();
+
+        gearService.patchGear(id, objectMapper.createObjectNode().put("weightInGrams", 3600), null);
+        List<String> statements = flushAndRecord();
+
+        assertEquals(2, statements.size(), statements::toString);
+        assertTrue(statements.get(0).startsWith("select"), statements::toString);
+        assertEquals("weight_in_grams=?, version=?", setClause(statements.get(1)));
+    }
+
+    @Test
+    void putAlsoReadsTheVersionForTheETag() {
+        Long id = saveGear();
+
+        gearService.updateGear(id, new Gear(null, "Stratocaster", "Guitar", 3600), null);
+        List<String> statements = flushAndRecord();
+
+        // met @DynamicUpdate schrijft ook een PUT alleen de gewijzigde kolom; het verschil is de extra query
+        // voor de ETag, die een PATCH zonder "If-Match" header overslaat
+        assertEquals(3, statements.size(), statements::toString);
+        assertTrue(statements.get(1).contains("version"), statements::toString);
+        assertEquals("weight_in_grams=?, version=?", setClause(statements.get(2)));
+    }
+
+    private Long saveGear() {
+        Long id = entityManager.persistAndFlush(new Gear(null, "Stratocaster", "Guitar", 3500)).getId();
+        entityManager.clear();
+        SqlRecorder.clear();
+        return id;
+    }
+
+    private List<String> flushAndRecord() {
+        entityManager.flush();
+        return SqlRecorder.statements();
+    }
+
+    private static String setClause(String update) {
+        assertTrue(update.startsWith("update gear set "), update);
+        return update.substring("update gear set ".length(), update.indexOf(" where "));
+    }
+
+    /**
+     * Onthoudt de SQL van ieder statement dat Hibernate voorbereidt, in kleine letters.
+     */
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.trim().toLowerCase(Locale.ROOT));
+            return sql;
+        }
+
+        static void clear() {
+            STATEMENTS.clear();
+        }
+
+        static List<String> statements() {
+            synchronized (STATEMENTS) {
+                return new ArrayList<>(STATEMENTS);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package kemp.roel.guitaristgear.manufacturer;
+
+import kemp.roel.guitaristgear.bulk.BulkImporter;
+import kemp.roel.guitaristgear.gear.Gear;
+import kemp.roel.guitaristgear.gear.GearRepository;
+import kemp.roel.guitaristgear.gear.GearService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test de statistieken per merk met echte commits: ManufacturerStatsService werkt ze pas vlak voor de commit bij,
+ * dus de tests draaien zonder de transactie die @DataJpaTest om iedere test legt en ruimen zelf op.
+ */
+
+@DataJpaTest
+@Import({GearService.class, ManufacturerStatsService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ManufacturerStatsServiceTests {
+
+    @Autowired
+    private GearService gearService;
+
+    @Autowired
+    private ManufacturerStatsService manufacturerStatsService;
+
+    @Autowired
+    private GearRepository gearRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private ManufacturerStatsRepository manufacturerStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private BulkImporter bulkImporter;
+
+    private Long fenderId;
+    private Long voxId;
+    private Gear stratocaster;
+
+    @BeforeEach
+    void setUp() {
+        fenderId = manufacturerRepository.save(new Manufacturer(null, "Fender", "Guitar", "Fullerton", 1946)).getId();
+        voxId = manufacturerRepository.save(new Manufacturer(null, "Vox", "Amplifier", "Dartford", 1957)).getId();
+        manufacturerStatsService.createStats(fenderId);
+        manufacturerStatsService.createStats(voxId);
+
+        stratocaster = new Gear(null, "Stratocaster", "Guitar", 3500);
+        gearService.addGear(stratocaster);
+        gearService.addGearToManufacturer(fenderId, stratocaster);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gearRepository.deleteAllInBatch();
+        manufacturerStatsRepository.deleteAll();
+        manufacturerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void aBrandChangeMovesTheCountsToTheOtherManufacturer() {
+        assertStats(fenderId, 1, 3500, Map.of("guitar", 1L));
+
+        gearService.addGearToManufacturer(voxId, stratocaster);
+
+        assertStats(fenderId, 0, 0, Map.of());
+        assertStats(voxId, 1, 3500, Map.of("guitar", 1L));
+    }
+
+    @Test
+    void aRollbackLeavesTheStatsUntouched() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            gearService.addGearToManufacturer(voxId, stratocaster);
+            status.setRollbackOnly();
+        });
+
+        assertStats(fenderId, 1, 3500, Map.of("guitar", 1L));
+        assertStats(voxId, 0, 0, Map.of());
+
+        // de teruggedraaide wijziging mag niet in de volgende transactie meegeteld worden
+        Gear ac30 = new Gear(null, "AC30", "Amplifier", 25000);
+        gearService.addGear(ac30);
+        gearService.addGearToManufacturer(voxId, ac30);
+
+        assertStats(fenderId, 1, 3500, Map.of("guitar", 1L));
+        assertStats(voxId, 1, 25000, Map.of("amplifier", 1L));
+    }
+
+    @Test
+    void rebuildStatsRepairsATamperedRow() {
+        jdbcTemplate.update("update manufacturer_stats set gear_count = 7, total_weight_in_grams = 1 "
+                + "where manufacturer_id = ?", fenderId);
+        jdbcTemplate.update("delete from manufacturer_stats_type_count where manufacturer_id = ?", fenderId);
+        assertStats(fenderId, 7, 1, Map.of());
+
+        assertEquals(1, manufacturerStatsService.rebuildStats());
+
+        assertStats(fenderId, 1, 3500, Map.of("guitar", 1L));
+        assertStats(voxId, 0, 0, Map.of());
+        assertEquals(0, manufacturerStatsService.rebuildStats(), "nothing is left to repair");
+    }
+
+    private void assertStats(Long manufacturerId, long gearCount, long totalWeightInGrams,
+                             Map<String, Long> gearCountByType) {
+        ManufacturerStats stats = manufacturerStatsService.getStats(manufacturerId);
+        assertEquals(gearCount, stats.getGearCount());
+        assertEquals(totalWeightInGrams, stats.getTotalWeightInGrams());
+        assertEquals(gearCountByType, stats.getGearCountByType());
+    }
+}
@@ -0,0 +1,162 @@
+package kemp.roel.guitaristgear.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test de overgang van inhalen uit de outbox naar de live buffer, en het afsluiten van een trage abonnee.
+ * De verzendtaken worden in een wachtrij gezet en door de test zelf uitgevoerd, zodat de volgorde vastligt.
+ */
+
+class ChangeStreamSubscriberTests {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor = tasks::add;
+    private final RecordingEmitter emitter = new RecordingEmitter();
+    private final List<OutboxEvent> outbox = new ArrayList<>();
+
+    @Test
+    void replayHandsOverToTheBufferWithoutGapsOrDuplicates() {
+        outbox.add(event(1, "gear"));
+        outbox.add(event(2, "gear"));
+        outbox.add(event(3, "gear"));
+        List<ChangeStreamSubscriber> subscriber = new ArrayList<>();
+        int[] reads = {0};
+        LongFunction<List<OutboxEvent>> replaySource = after -> {
+            reads[0]++;
+            if (reads[0] == 2) {
+                // event 5 wordt verstuurd terwijl de abonnee overschakelt: het komt uit de laatste leesronde én
+                // uit de buffer, en mag maar één keer aankomen
+                OutboxEvent fifth = event(5, "gear");
+                outbox.add(fifth);
+                assertTrue(subscriber.get(0).offer(fifth));
+            }
+            return dispatchedAfter(after);
+        };
+        subscriber.add(new ChangeStreamSubscriber(emitter, null, 10, executor, replaySource, 0L, false));
+        ChangeStreamSubscriber changes = subscriber.get(0);
+        changes.start();
+
+        // tijdens het inhalen wordt een live event niet gebufferd, het staat al in de outbox
+        OutboxEvent fourth = event(4, "gear");
+        outbox.add(fourth);
+        assertTrue(changes.offer(fourth));
+        assertEquals(0, changes.getBuffered());
+
+        runTasks();
+        assertTrue(changes.offer(event(6, "gear")));
+        runTasks();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), emitter.sentSequenceNumbers());
+        assertEquals(2, reads[0]);
+        assertFalse(changes.isClosed());
+    }
+
+    @Test
+    void replayStartsAfterTheLastEventId() {
+        for (long sequenceNumber = 1; sequenceNumber <= 4; sequenceNumber++) {
+            outbox.add(event(sequenceNumber, "gear"));
+        }
+        ChangeStreamSubscriber changes = new ChangeStreamSubscriber(emitter, null, 10, executor,
+                this::dispatchedAfter, 2L, false);
+        changes.start();
+        runTasks();
+
+        assertEquals(List.of(3L, 4L), emitter.sentSequenceNumbers());
+    }
+
+    @Test
+    void slowConsumerIsDisconnectedWhenItsBufferIsFull() {
+        ChangeStreamSubscriber changes = new ChangeStreamSubscriber(emitter, null, 2, executor,
+                this::dispatchedAfter, null, false);
+        changes.start();
+
+        // de verzendtaak komt niet aan de beurt, zoals bij een client die niets meer leest
+        assertTrue(changes.offer(event(1, "gear")));
+        assertTrue(changes.offer(event(2, "gear")));
+        assertFalse(changes.offer(event(3, "gear")));
+
+        changes.disconnect();
+        assertTrue(changes.isClosed());
+        assertEquals(0, changes.getBuffered());
+        assertTrue(changes.offer(event(4, "gear")), "a closed subscriber ignores events instead of failing again");
+
+        runTasks();
+        assertTrue(emitter.completed);
+        assertEquals(List.of(), emitter.sentSequenceNumbers());
+    }
+
+    @Test
+    void onlyEventsOfTheRequestedResourceAreSent() {
+        ChangeStreamSubscriber changes = new ChangeStreamSubscriber(emitter, "guitarist", 10, executor,
+                this::dispatchedAfter, null, false);
+        changes.start();
+        changes.offer(event(1, "gear"));
+        changes.offer(event(2, "guitarist"));
+        runTasks();
+
+        assertEquals(List.of(2L), emitter.sentSequenceNumbers());
+    }
+
+    private List<OutboxEvent> dispatchedAfter(long after) {
+        return outbox.stream()
+                .filter(event -> event.getSequenceNumber() > after)
+                .limit(ChangeStreamBroadcaster.REPLAY_PAGE_SIZE)
+                .collect(Collectors.toList());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static OutboxEvent event(long sequenceNumber, String resource) {
+        OutboxEvent event = new OutboxEvent(resource, sequenceNumber, "updated", "{}", 0);
+        event.setSequenceNumber(sequenceNumber);
+        return event;
+    }
+
+    /**
+     * Een SseEmitter die niets verstuurt, maar onthoudt welke events hij had moeten versturen.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<OutboxEvent> sent = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(data -> data instanceof OutboxEvent)
+                    .forEach(data -> sent.add((OutboxEvent) data));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completed = true;
+        }
+
+        private List<Long> sentSequenceNumbers() {
+            return sent.stream().map(OutboxEvent::getSequenceNumber).collect(Collectors.toList());
+        }
+    }
+}
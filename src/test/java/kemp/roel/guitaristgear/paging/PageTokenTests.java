@@ -0,0 +1,110 @@
+package kemp.roel.guitaristgear.paging;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test het coderen en inlezen van PageToken en het afkappen van een pagina door CursorPage.
+ */
+
+class PageTokenTests {
+
+    @Test
+    void decodesWhatWasEncoded() {
+        PageToken token = PageToken.decode(new PageToken("name", 42L, "Les Paul").encode(), "name");
+
+        assertEquals("name", token.getSort());
+        assertEquals(42L, token.getLastId());
+        assertEquals("Les Paul", token.getLastValue());
+    }
+
+    @Test
+    void keepsNewlinesAndUnicodeInTheSortValue() {
+        String value = "Mötley\nCrüe";
+        PageToken token = PageToken.decode(new PageToken("name", 7L, value).encode(), "name");
+
+        assertEquals(value, token.getLastValue());
+    }
+
+    @Test
+    void encodesUrlSafeWithoutPadding() {
+        String encoded = new PageToken("name", 1L, "??>>").encode();
+
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="), encoded);
+    }
+
+    @Test
+    void returnsNullWithoutToken() {
+        assertNull(PageToken.decode(null, "id"));
+        assertNull(PageToken.decode("", "id"));
+    }
+
+    @Test
+    void rejectsATokenOfAnotherSort() {
+        String encoded = new PageToken("name", 1L, "Gibson").encode();
+
+        assertBadRequest(() -> PageToken.decode(encoded, "id"));
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertBadRequest(() -> PageToken.decode("not base64!", "id"));
+        assertBadRequest(() -> PageToken.decode(raw("id\nnot-a-number\n5"), "id"));
+        assertBadRequest(() -> PageToken.decode(raw("id\n5"), "id"));
+    }
+
+    @Test
+    void rejectsANonNumericBirthYear() {
+        PageToken token = PageToken.decode(new PageToken("birthYear", 1L, "1960s").encode(), "birthYear");
+
+        assertBadRequest(token::getLastValueAsInt);
+    }
+
+    @Test
+    void lastPageHasNoToken() {
+        CursorPage<Long> page = CursorPage.of(Arrays.asList(1L, 2L, 3L), 3, "id", id -> id, id -> id);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), page.getItems());
+        assertNull(page.getNextPageToken());
+    }
+
+    @Test
+    void extraRowIsCutOffAndBecomesTheBoundary() {
+        List<Long> rows = Arrays.asList(1L, 2L, 3L, 4L);
+        CursorPage<Long> page = CursorPage.of(rows, 3, "id", id -> id, id -> id * 10);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), page.getItems());
+        PageToken token = PageToken.decode(page.getNextPageToken(), "id");
+        assertEquals(3L, token.getLastId());
+        assertEquals("30", token.getLastValue());
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertEquals(CursorPage.DEFAULT_PAGE_SIZE, CursorPage.pageSize(null));
+        assertEquals(1, CursorPage.pageSize(0));
+        assertEquals(CursorPage.MAX_PAGE_SIZE, CursorPage.pageSize(CursorPage.MAX_PAGE_SIZE + 1));
+        assertEquals(4, CursorPage.limit(3).getPageSize());
+    }
+
+    private static String raw(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertBadRequest(Runnable decode) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, decode::run);
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+}
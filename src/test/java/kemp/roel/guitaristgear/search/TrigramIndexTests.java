@@ -0,0 +1,129 @@
+package kemp.roel.guitaristgear.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Auteur: Roel Kemp (500781)
+ * Test het maken van trigrammen, de volgorde van de zoekresultaten en het opnieuw opbouwen van de TrigramIndex.
+ */
+
+class TrigramIndexTests {
+
+    @Test
+    void everyWordGetsALeadingSpace() {
+        // " le", "les", " pa", "pau", "aul"
+        assertEquals(5, TrigramIndex.trigrams("Les Paul").length);
+        assertEquals(union(TrigramIndex.trigrams("les"), TrigramIndex.trigrams("paul")),
+                set(TrigramIndex.trigrams("Les Paul")));
+    }
+
+    @Test
+    void singleCharacterWordsArePadded() {
+        assertEquals(1, TrigramIndex.trigrams("a").length);
+        assertEquals(set(TrigramIndex.trigrams("x")), set(TrigramIndex.trigrams(" X ")));
+    }
+
+    @Test
+    void trigramsAreUniqueAndIgnoreCaseAndPunctuation() {
+        assertEquals(set(TrigramIndex.trigrams("paul")), set(TrigramIndex.trigrams("Paul, PAUL; paul!")));
+        assertEquals(TrigramIndex.trigrams("paul").length, TrigramIndex.trigrams("paul paul").length);
+        assertEquals(set(TrigramIndex.trigrams("ac dc")), set(TrigramIndex.trigrams("AC/DC")));
+    }
+
+    @Test
+    void emptyTextHasNoTrigrams() {
+        assertEquals(0, TrigramIndex.trigrams(null).length);
+        assertEquals(0, TrigramIndex.trigrams("").length);
+        assertEquals(0, TrigramIndex.trigrams(" - ").length);
+    }
+
+    @Test
+    void closestMatchRanksFirst() {
+        TrigramIndex index = catalog();
+
+        // Dice: Junior 2*5/(5+10), Standard 2*5/(5+11), Gilbert 2*3/(5+9); Stratocaster deelt niets
+        assertEquals(List.of(2L, 1L, 4L), ids(index.search("les paul", null, 10)));
+        assertEquals(List.of(2L), ids(index.search("les paul", null, 1)));
+    }
+
+    @Test
+    void aTypoStillMatches() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("guitarist", 1L, "Jimi Hendrix", "Jimi Hendrix");
+
+        assertEquals(List.of(1L), ids(index.search("hendirx", null, 10)));
+    }
+
+    @Test
+    void searchCanBeLimitedToOneType() {
+        TrigramIndex index = catalog();
+
+        assertEquals(List.of(4L), ids(index.search("paul", "guitarist", 10)));
+    }
+
+    @Test
+    void putReplacesAndRemoveHidesADocument() {
+        TrigramIndex index = catalog();
+        index.put("gear", 2L, "Flying V", "Flying V");
+        index.remove("gear", 3L);
+
+        assertEquals(List.of(), ids(index.search("junior", null, 10)));
+        assertEquals(List.of(2L), ids(index.search("flying", null, 10)));
+        assertEquals(List.of(), ids(index.search("stratocaster", null, 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void rebuildKeepsOnlyLiveDocuments() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 0; id < 2048; id++) {
+            index.put("gear", id, "Model " + id, "Model " + id);
+        }
+        // bij de 1024ste remove is de helft verwijderd en wordt de index opnieuw opgebouwd; daarna nog 76 in de nieuwe index
+        for (long id = 0; id < 1100; id++) {
+            index.remove("gear", id);
+        }
+        assertEquals(948, index.size());
+        assertEquals(LongStream.range(1100, 2048).boxed().collect(Collectors.toSet()),
+                new HashSet<>(ids(index.search("model", null, 5000))));
+
+        // na het opnieuw opbouwen werken vervangen en toevoegen nog
+        index.put("gear", 2047L, "Telecaster", "Telecaster");
+        index.put("gear", 5000L, "Jazzmaster", "Jazzmaster");
+        assertEquals(List.of(2047L), ids(index.search("telecaster", null, 10)));
+        assertEquals(List.of(5000L), ids(index.search("jazzmaster", null, 10)));
+        assertEquals(949, index.size());
+    }
+
+    private static TrigramIndex catalog() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("gear", 1L, "Les Paul Standard", "Les Paul Standard");
+        index.put("gear", 2L, "Les Paul Junior", "Les Paul Junior");
+        index.put("gear", 3L, "Stratocaster", "Stratocaster");
+        index.put("guitarist", 4L, "Paul Gilbert", "Paul Gilbert");
+        return index;
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+    }
+
+    private static Set<Long> set(long[] trigrams) {
+        return Arrays.stream(trigrams).boxed().collect(Collectors.toSet());
+    }
+
+    private static Set<Long> union(long[] first, long[] second) {
+        Set<Long> union = set(first);
+        union.addAll(set(second));
+        return union;
+    }
+}